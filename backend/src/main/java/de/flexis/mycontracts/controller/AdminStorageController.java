@@ -0,0 +1,80 @@
+package de.flexis.mycontracts.controller;
+
+import de.flexis.mycontracts.service.IntegrityIssue;
+import de.flexis.mycontracts.service.MaintenanceStatus;
+import de.flexis.mycontracts.service.ReconciliationReport;
+import de.flexis.mycontracts.service.StorageLayoutMigration;
+import de.flexis.mycontracts.service.StorageReconciliation;
+import de.flexis.mycontracts.service.StorageScrubber;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/storage")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class AdminStorageController {
+
+    private final StorageLayoutMigration layoutMigration;
+    private final StorageScrubber scrubber;
+    private final StorageReconciliation reconciliation;
+
+    public AdminStorageController(StorageLayoutMigration layoutMigration, StorageScrubber scrubber,
+                                  StorageReconciliation reconciliation) {
+        this.layoutMigration = layoutMigration;
+        this.scrubber = scrubber;
+        this.reconciliation = reconciliation;
+    }
+
+    @GetMapping("/migration")
+    public MaintenanceStatus migrationStatus() {
+        return layoutMigration.status();
+    }
+
+    @PostMapping("/migration")
+    public MaintenanceStatus startMigration() {
+        return layoutMigration.start();
+    }
+
+    @PostMapping("/migration/stop")
+    public MaintenanceStatus stopMigration() {
+        return layoutMigration.stop();
+    }
+
+    @GetMapping("/scrub")
+    public MaintenanceStatus scrubStatus() {
+        return scrubber.status();
+    }
+
+    @PostMapping("/scrub")
+    public MaintenanceStatus startScrub() {
+        return scrubber.start();
+    }
+
+    @PostMapping("/scrub/stop")
+    public MaintenanceStatus stopScrub() {
+        return scrubber.stop();
+    }
+
+    /** Files flagged by the last check: body missing or not matching the checksum. */
+    @GetMapping("/scrub/issues")
+    public List<IntegrityIssue> scrubIssues() {
+        return scrubber.issues();
+    }
+
+    @GetMapping("/reconciliation")
+    public ReconciliationReport reconciliationReport() {
+        return reconciliation.report();
+    }
+
+    /** Compares the blob directory with the files table; {@code deleteOrphans} removes unreferenced bodies. */
+    @PostMapping("/reconciliation")
+    public ReconciliationReport startReconciliation(@RequestParam(value = "deleteOrphans", defaultValue = "false") boolean deleteOrphans) {
+        return reconciliation.start(deleteOrphans);
+    }
+
+    @PostMapping("/reconciliation/stop")
+    public ReconciliationReport stopReconciliation() {
+        return reconciliation.stop();
+    }
+}
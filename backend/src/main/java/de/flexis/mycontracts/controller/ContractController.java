@@ -4,10 +4,18 @@ import de.flexis.mycontracts.controller.dto.CreateContractRequest;
 import de.flexis.mycontracts.controller.dto.LinkFileToContractRequest;
 import de.flexis.mycontracts.model.Contract;
 import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.service.ContractExportService;
 import de.flexis.mycontracts.service.ContractService;
+import de.flexis.mycontracts.service.StorageScrubber;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -16,9 +24,15 @@ import java.util.List;
 public class ContractController {
 
     private final ContractService contractService;
+    private final ContractExportService contractExportService;
+    private final StorageScrubber scrubber;
 
-    public ContractController(ContractService contractService) {
+    public ContractController(ContractService contractService,
+                              ContractExportService contractExportService,
+                              StorageScrubber scrubber) {
         this.contractService = contractService;
+        this.contractExportService = contractExportService;
+        this.scrubber = scrubber;
     }
 
     @GetMapping
@@ -76,6 +90,34 @@ public class ContractController {
         }
     }
 
+    /**
+     * ZIP of all linked files plus {@code manifest.json} (extracted fields, OCR status), written to the
+     * response while it is built; see {@link ContractExportService}.
+     */
+    @GetMapping("/{id}/export")
+    public void export(@PathVariable Long id, HttpServletResponse response) throws IOException {
+        Contract contract;
+        try {
+            contract = contractService.getContract(id);
+        } catch (IllegalArgumentException ex) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(ContractExportService.archiveFilename(contract), StandardCharsets.UTF_8).build().toString());
+        // reads like a download, so the scrubber pauses meanwhile
+        scrubber.foregroundStarted();
+        try {
+            contractExportService.write(contract, response.getOutputStream());
+            // the tail of the archive is still in the response buffer
+            response.flushBuffer();
+        } finally {
+            scrubber.foregroundFinished();
+        }
+    }
+
     @PatchMapping("/files/{fileId}/link")
     public ResponseEntity<StoredFile> linkFile(@PathVariable Long fileId, @RequestBody LinkFileToContractRequest request) {
         try {
@@ -1,13 +1,22 @@
 package de.flexis.mycontracts.controller;
 
 import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.service.BatchUploadResult;
+import de.flexis.mycontracts.service.BatchUploadService;
 import de.flexis.mycontracts.service.FileStorageService;
+import de.flexis.mycontracts.service.PreviewService;
+import de.flexis.mycontracts.service.StorageScrubber;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import de.flexis.mycontracts.controller.dto.FileDetailResponse;
 import de.flexis.mycontracts.controller.dto.FileListItemResponse;
@@ -19,9 +28,15 @@ import de.flexis.mycontracts.controller.dto.BulkUpdateMarkersRequest;
 import de.flexis.mycontracts.controller.dto.BulkUpdateDueDateRequest;
 import de.flexis.mycontracts.controller.dto.BulkUpdateNoteRequest;
 import de.flexis.mycontracts.model.OcrFile;
+import de.flexis.mycontracts.model.enums.PreviewSize;
 
-import java.net.MalformedURLException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/files")
@@ -29,9 +44,16 @@ import java.nio.file.Path;
 public class FileController {
 
     private final FileStorageService storageService;
+    private final BatchUploadService batchUploadService;
+    private final StorageScrubber scrubber;
+    private final PreviewService previewService;
 
-    public FileController(FileStorageService storageService) {
+    public FileController(FileStorageService storageService, BatchUploadService batchUploadService,
+                          StorageScrubber scrubber, PreviewService previewService) {
         this.storageService = storageService;
+        this.batchUploadService = batchUploadService;
+        this.scrubber = scrubber;
+        this.previewService = previewService;
     }
 
     @PostMapping("/upload")
@@ -44,6 +66,35 @@ public class FileController {
         }
     }
 
+    /**
+     * Multi-file upload ({@code files} parts): hashed in parallel, saved in one batch. Returns one
+     * result per part; invalid parts are reported, not failed.
+     */
+    @PostMapping("/upload/batch")
+    public ResponseEntity<List<BatchUploadResult>> uploadBatch(@RequestParam("files") List<MultipartFile> files,
+                                                               @RequestParam(value = "skipDuplicates", defaultValue = "false") boolean skipDuplicates) throws IOException {
+        if (files.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(batchUploadService.storeAll(files, skipDuplicates));
+    }
+
+    /**
+     * Raw-body upload: the request body is the file content, the name comes from the query string.
+     * Unlike {@link #upload} nothing is spooled by the container, the body is streamed straight to storage.
+     */
+    @PostMapping(value = "/stream", consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<StoredFile> uploadStream(@RequestParam("filename") String filename,
+                                                   @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+                                                   HttpServletRequest request) throws Exception {
+        try (InputStream in = request.getInputStream()) {
+            StoredFile sf = storageService.store(in, filename, contentType);
+            return ResponseEntity.ok(sf);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping
     public java.util.List<FileListItemResponse> list() {
         var files = storageService.list();
@@ -67,7 +118,8 @@ public class FileController {
         try {
             StoredFile file = storageService.get(id);
             var ocr = storageService.findOcrForFile(id).orElse(null);
-            return ResponseEntity.ok(FileDetailResponse.from(file, ocr));
+            String rawJson = storageService.loadOcrJson(ocr).orElse(null);
+            return ResponseEntity.ok(FileDetailResponse.from(file, ocr, rawJson));
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.notFound().build();
         }
@@ -113,14 +165,62 @@ public class FileController {
         }
     }
 
+    /** Also answers HEAD, conditional requests (ETag / Last-Modified) and byte ranges; see {@link FileDownload}. */
     @GetMapping("/{id}/download")
-    public ResponseEntity<Resource> download(@PathVariable Long id) throws MalformedURLException {
-        Path p = storageService.load(id);
-        Resource resource = new UrlResource(p.toUri());
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + p.getFileName() + "\"")
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(resource);
+    public void download(@PathVariable Long id, ServletWebRequest webRequest) throws IOException {
+        StoredFile file;
+        try {
+            file = storageService.get(id);
+        } catch (IllegalArgumentException ex) {
+            webRequest.getResponse().sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path path = Path.of(file.getPath());
+        if (!Files.isReadable(path)) {
+            webRequest.getResponse().sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        // the scrubber pauses while downloads are served; while it runs the body is written here
+        // instead of by sendfile after we return, so the pause lasts until the last byte
+        boolean scrubbing = scrubber.isRunning();
+        scrubber.foregroundStarted();
+        try {
+            FileDownload.serve(file, path, webRequest, !scrubbing);
+            if (scrubbing) webRequest.getResponse().flushBuffer();
+        } finally {
+            scrubber.foregroundFinished();
+        }
+    }
+
+    /**
+     * First page as JPEG, {@code size=thumbnail} (default) or {@code page}. Previews depend on the
+     * content only, so clients may cache them indefinitely; 404 if the format has none, 503 while
+     * one is still being rendered.
+     */
+    @GetMapping("/{id}/preview")
+    public ResponseEntity<Resource> preview(@PathVariable Long id,
+                                            @RequestParam(value = "size", defaultValue = "thumbnail") String size) {
+        PreviewSize previewSize;
+        try {
+            previewSize = PreviewSize.valueOf(size.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            StoredFile file = storageService.get(id);
+            return previewService.find(file, previewSize)
+                    .map(path -> ResponseEntity.ok()
+                            .contentType(MediaType.IMAGE_JPEG)
+                            .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable())
+                            // answered with 304 by Spring when If-None-Match matches
+                            .eTag(file.getChecksum() + "-" + previewSize.name().toLowerCase(Locale.ROOT))
+                            .body((Resource) new FileSystemResource(path)))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "2").build();
+        }
     }
 
     @DeleteMapping("/{id}")
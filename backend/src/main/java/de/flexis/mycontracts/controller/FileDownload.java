@@ -0,0 +1,230 @@
+package de.flexis.mycontracts.controller;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.StorageCodec;
+import de.flexis.mycontracts.service.StorageCompression;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a stored file to the response with conditional GET (strong ETag from the SHA-256,
+ * Last-Modified), single and multi-range ({@code multipart/byteranges}) support and HEAD.
+ * <p>
+ * Bodies never pass through the heap as a whole: on Tomcat a full or single-range body is handed
+ * to the connector's sendfile (if the caller allows it), otherwise it is streamed with
+ * {@link FileChannel#transferTo}. Sendfile runs after the handler returns, so a caller that has to
+ * know when the body is written passes {@code sendfile=false}.
+ * Compressed bodies ({@link StorageCodec#DEFLATE}) are inflated while streaming; offsets and
+ * lengths refer to the original content, so a range skips through the decompressed stream. The
+ * parts of a multi-range request are decoded in one forward pass; a compressed body whose ranges
+ * are not ascending and disjoint is sent whole with 200, which RFC 9110 allows for any Range.
+ */
+final class FileDownload {
+
+    // Tomcat's sendfile contract (NIO/NIO2 connectors, useSendfile=true by default)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileDownload() {}
+
+    static void serve(StoredFile file, Path path, ServletWebRequest webRequest, boolean sendfile) throws IOException {
+        HttpServletRequest request = webRequest.getRequest();
+        HttpServletResponse response = webRequest.getResponse();
+        boolean compressed = file.getCodec() != StorageCodec.NONE;
+        long length = compressed ? file.getSize() : Files.size(path);
+        String etag = file.getChecksum() != null ? "\"" + file.getChecksum() + "\"" : null;
+        // stored content never changes, so the upload time is its modification time
+        long lastModified = file.getCreatedAt() != null
+                ? file.getCreatedAt().toEpochMilli()
+                : Files.getLastModifiedTime(path).toMillis();
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        // sets ETag and Last-Modified, and 304 / 412 when the client's copy is current
+        if (webRequest.checkNotModified(etag, lastModified)) return;
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(file.getFilename(), StandardCharsets.UTF_8).build().toString());
+        String contentType = file.getMime() != null ? file.getMime() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        List<long[]> ranges;
+        try {
+            ranges = requestedRanges(request, etag, lastModified, length);
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        // a deflate stream can only be read forward
+        if (compressed && !isAscending(ranges)) ranges = List.of();
+
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!head) send(file, path, 0, length, sendfile, request, response);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long start = ranges.get(0)[0], end = ranges.get(0)[1];
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(start, end, length));
+            response.setContentLengthLong(end - start + 1);
+            if (!head) send(file, path, start, end - start + 1, sendfile, request, response);
+            return;
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long total = 0;
+        for (long[] r : ranges) {
+            byte[] h = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(r[0], r[1], length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(h);
+            total += h.length + (r[1] - r[0] + 1);
+        }
+        byte[] trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(total + trailer.length);
+        if (head) return;
+
+        OutputStream out = response.getOutputStream();
+        if (compressed) {
+            try (InputStream in = StorageCompression.open(path, file.getCodec())) {
+                long position = 0;
+                for (int i = 0; i < ranges.size(); i++) {
+                    long[] r = ranges.get(i);
+                    out.write(partHeaders.get(i));
+                    in.skipNBytes(r[0] - position);
+                    copy(in, r[1] - r[0] + 1, out);
+                    position = r[1] + 1;
+                }
+            }
+            out.write(trailer);
+            return;
+        }
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] r = ranges.get(i);
+                out.write(partHeaders.get(i));
+                transfer(channel, r[0], r[1] - r[0] + 1, target);
+            }
+        }
+        out.write(trailer);
+    }
+
+    /**
+     * Inclusive {start, end} pairs from the Range header, or an empty list for the whole file (no or
+     * outdated If-Range, or no Range at all).
+     *
+     * @throws IllegalArgumentException if the ranges are malformed or cannot be satisfied
+     */
+    private static List<long[]> requestedRanges(HttpServletRequest request, String etag, long lastModified, long length) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !isIfRangeCurrent(request, etag, lastModified)) return List.of();
+        List<long[]> ranges = new ArrayList<>();
+        for (HttpRange range : HttpRange.parseRanges(header)) {
+            long start = range.getRangeStart(length), end = range.getRangeEnd(length);
+            // HttpRange clamps the end but not the start
+            if (start >= length || start > end) throw new IllegalArgumentException("Range not satisfiable");
+            ranges.add(new long[]{start, end});
+        }
+        if (ranges.isEmpty()) throw new IllegalArgumentException("No ranges");
+        return ranges;
+    }
+
+    /** True if every range starts after the previous one ended. */
+    private static boolean isAscending(List<long[]> ranges) {
+        for (int i = 1; i < ranges.size(); i++) {
+            if (ranges.get(i)[0] <= ranges.get(i - 1)[1]) return false;
+        }
+        return true;
+    }
+
+    private static boolean isIfRangeCurrent(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) return ifRange.equals(etag);
+        try {
+            return lastModified / 1000 <= request.getDateHeader(HttpHeaders.IF_RANGE) / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String contentRange(long start, long end, long length) {
+        return "bytes " + start + "-" + end + "/" + length;
+    }
+
+    private static void send(StoredFile file, Path path, long start, long count, boolean sendfile,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (file.getCodec() != StorageCodec.NONE) {
+            copyDecoded(file, path, start, count, response.getOutputStream());
+            return;
+        }
+        if (sendfile && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the file with sendfile(2) after the handler returns
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            transfer(channel, start, count, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private static void copyDecoded(StoredFile file, Path path, long start, long count, OutputStream out) throws IOException {
+        try (InputStream in = StorageCompression.open(path, file.getCodec())) {
+            in.skipNBytes(start);
+            copy(in, count, out);
+        }
+    }
+
+    private static void copy(InputStream in, long count, OutputStream out) throws IOException {
+        byte[] buf = new byte[64 * 1024];
+        while (count > 0) {
+            int n = in.read(buf, 0, (int) Math.min(buf.length, count));
+            if (n < 0) throw new IOException("File ended early");
+            out.write(buf, 0, n);
+            count -= n;
+        }
+    }
+
+    private static void transfer(FileChannel channel, long position, long count, WritableByteChannel target) throws IOException {
+        while (count > 0) {
+            long n = channel.transferTo(position, count, target);
+            if (n <= 0) throw new IOException("File ended early");
+            position += n;
+            count -= n;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package de.flexis.mycontracts.controller;
+
+import de.flexis.mycontracts.controller.dto.CreateUploadRequest;
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.service.UploadSessionService;
+import de.flexis.mycontracts.service.UploadStatus;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.NoSuchElementException;
+
+/**
+ * Resumable uploads: {@code POST /api/uploads} announces a file, {@code PUT /api/uploads/{id}?offset=}
+ * sends chunks, {@code GET} tells where to continue after an interruption and
+ * {@code POST /api/uploads/{id}/complete} turns the upload into a stored file.
+ */
+@RestController
+@RequestMapping("/api/uploads")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class UploadController {
+
+    private final UploadSessionService uploadService;
+
+    public UploadController(UploadSessionService uploadService) {
+        this.uploadService = uploadService;
+    }
+
+    @PostMapping
+    public ResponseEntity<UploadStatus> create(@RequestBody CreateUploadRequest request) {
+        try {
+            UploadStatus status = uploadService.create(request.filename(), request.mime(),
+                    request.size() != null ? request.size() : 0);
+            return ResponseEntity.created(URI.create("/api/uploads/" + status.id())).body(status);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadStatus> status(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(uploadService.status(id));
+        } catch (NoSuchElementException ex) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /** Appends the request body at {@code offset}; answers 409 with the current status if the offset is wrong. */
+    @PutMapping(value = "/{id}", consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<UploadStatus> append(@PathVariable String id, @RequestParam("offset") long offset,
+                                               HttpServletRequest request) throws IOException {
+        try (InputStream in = request.getInputStream()) {
+            return ResponseEntity.ok(uploadService.append(id, offset, in));
+        } catch (NoSuchElementException ex) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException ex) {
+            return conflict(id);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /** {@code checksum} (optional) is the SHA-256 the client computed; on mismatch the upload is discarded. */
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<?> complete(@PathVariable String id,
+                                      @RequestParam(value = "checksum", required = false) String checksum) throws IOException {
+        try {
+            StoredFile stored = uploadService.complete(id, checksum);
+            return ResponseEntity.ok(stored);
+        } catch (NoSuchElementException ex) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException ex) {
+            return conflict(id);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abort(@PathVariable String id) throws IOException {
+        try {
+            uploadService.abort(id);
+            return ResponseEntity.noContent().build();
+        } catch (NoSuchElementException ex) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private ResponseEntity<UploadStatus> conflict(String id) {
+        try {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(uploadService.status(id));
+        } catch (NoSuchElementException ex) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
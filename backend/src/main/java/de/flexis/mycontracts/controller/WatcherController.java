@@ -0,0 +1,48 @@
+package de.flexis.mycontracts.controller;
+
+import de.flexis.mycontracts.controller.dto.OcrFilePageResponse;
+import de.flexis.mycontracts.model.enums.OcrStatus;
+import de.flexis.mycontracts.service.ScanReport;
+import de.flexis.mycontracts.service.WatcherService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/watcher")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class WatcherController {
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final WatcherService watcherService;
+
+    public WatcherController(WatcherService watcherService) {
+        this.watcherService = watcherService;
+    }
+
+    @GetMapping("/scan")
+    public ResponseEntity<ScanReport> lastScan() {
+        ScanReport report = watcherService.getLastScan();
+        return report == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(report);
+    }
+
+    @PostMapping("/scan")
+    public ScanReport scan() throws IOException {
+        return watcherService.scanOnce();
+    }
+
+    @GetMapping("/ocr-files")
+    public ResponseEntity<OcrFilePageResponse> listOcrFiles(@RequestParam(defaultValue = "0") int page,
+                                                            @RequestParam(defaultValue = "50") int size,
+                                                            @RequestParam(required = false) OcrStatus status) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        var pageable = PageRequest.of(page, size, Sort.by("id"));
+        return ResponseEntity.ok(OcrFilePageResponse.from(watcherService.listOcrFiles(status, pageable)));
+    }
+}
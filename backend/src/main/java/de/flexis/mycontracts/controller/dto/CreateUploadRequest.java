@@ -0,0 +1,7 @@
+package de.flexis.mycontracts.controller.dto;
+
+public record CreateUploadRequest(
+        String filename,
+        String mime,
+        Long size
+) {}
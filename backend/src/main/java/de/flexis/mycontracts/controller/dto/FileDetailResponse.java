@@ -3,6 +3,7 @@ package de.flexis.mycontracts.controller.dto;
 import de.flexis.mycontracts.model.OcrFile;
 import de.flexis.mycontracts.model.StoredFile;
 import de.flexis.mycontracts.model.enums.OcrStatus;
+import de.flexis.mycontracts.ocr.OcrFormat;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
@@ -20,7 +21,7 @@ public record FileDetailResponse(
         OcrInfo ocr,
         ContractInfo contract
 ) {
-    public static FileDetailResponse from(StoredFile file, OcrFile ocrFile) {
+    public static FileDetailResponse from(StoredFile file, OcrFile ocrFile, String ocrRawJson) {
         List<String> markers = file.getMarkersJson() != null && !file.getMarkersJson().isBlank()
                 ? Arrays.asList(file.getMarkersJson().split(","))
                 : List.of();
@@ -30,7 +31,11 @@ public record FileDetailResponse(
                 ocrFile.getCreatedAt(),
                 ocrFile.getProcessedAt(),
                 ocrFile.getRetryCount(),
-                ocrFile.getRawJson()
+                ocrFile.getOcrFormat(),
+                ocrFile.getPageCount(),
+                ocrFile.getWordCount(),
+                ocrFile.getMeanConfidence(),
+                ocrRawJson
         );
         ContractInfo contract = file.getContract() == null ? null : new ContractInfo(
                 file.getContract().getId(),
@@ -57,6 +62,10 @@ public record FileDetailResponse(
             Instant createdAt,
             Instant processedAt,
             Integer retryCount,
+            OcrFormat format,
+            Integer pageCount,
+            Long wordCount,
+            Double meanConfidence,
             String rawJson
     ) {}
 
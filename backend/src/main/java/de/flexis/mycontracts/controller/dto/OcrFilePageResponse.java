@@ -0,0 +1,45 @@
+package de.flexis.mycontracts.controller.dto;
+
+import de.flexis.mycontracts.model.enums.OcrStatus;
+import de.flexis.mycontracts.repository.OcrFileRepository;
+import org.springframework.data.domain.Page;
+
+import java.time.Instant;
+import java.util.List;
+
+public record OcrFilePageResponse(
+        List<Item> items,
+        int page,
+        int size,
+        long totalElements,
+        int totalPages
+) {
+    public static OcrFilePageResponse from(Page<OcrFileRepository.OcrFileSummary> page) {
+        List<Item> items = page.getContent().stream()
+                .map(o -> new Item(
+                        o.getId(),
+                        o.getPath(),
+                        o.getChecksum(),
+                        o.getStatus(),
+                        o.getMatchedFileId(),
+                        o.getCreatedAt(),
+                        o.getProcessedAt(),
+                        o.getRetryCount(),
+                        o.getNextAttemptAt()
+                ))
+                .toList();
+        return new OcrFilePageResponse(items, page.getNumber(), page.getSize(), page.getTotalElements(), page.getTotalPages());
+    }
+
+    public record Item(
+            Long id,
+            String path,
+            String checksum,
+            OcrStatus status,
+            Long matchedFileId,
+            Instant createdAt,
+            Instant processedAt,
+            Integer retryCount,
+            Instant nextAttemptAt
+    ) {}
+}
@@ -30,6 +30,10 @@ public class ExtractedField {
 
     private Instant createdAt = Instant.now();
 
+    // set when the OCR this field was extracted from has changed since
+    @Column(nullable = false, columnDefinition = "boolean default false not null")
+    private boolean stale = false;
+
     public ExtractedField() {}
 
     public ExtractedField(Contract contract, String fieldName, String fieldValue, Double confidence, FieldSource source) {
@@ -91,4 +95,12 @@ public class ExtractedField {
     public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void setStale(boolean stale) {
+        this.stale = stale;
+    }
 }
@@ -0,0 +1,110 @@
+package de.flexis.mycontracts.model;
+
+import de.flexis.mycontracts.model.enums.MaintenanceState;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Progress of a long-running background task (storage migration, scrubbing, ...), saved after
+ * every batch so the task can resume where it stopped after a restart.
+ */
+@Entity
+@Table(name = "maintenance_checkpoints")
+public class MaintenanceCheckpoint {
+    @Id
+    private String name;
+
+    // task-specific position, e.g. the last processed id; null = start from the beginning
+    private String cursor;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private MaintenanceState state;
+
+    // task-specific parameters the run was started with; a different value starts over
+    private String detail;
+
+    private long processed;
+    private long changed;
+    private long failed;
+
+    private Instant startedAt;
+    private Instant updatedAt;
+
+    public MaintenanceCheckpoint() {}
+
+    public MaintenanceCheckpoint(String name, String detail) {
+        this.name = name;
+        this.detail = detail;
+        this.state = MaintenanceState.NEW;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public MaintenanceState getState() {
+        return state;
+    }
+
+    public void setState(MaintenanceState state) {
+        this.state = state;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public void setDetail(String detail) {
+        this.detail = detail;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(long processed) {
+        this.processed = processed;
+    }
+
+    public long getChanged() {
+        return changed;
+    }
+
+    public void setChanged(long changed) {
+        this.changed = changed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
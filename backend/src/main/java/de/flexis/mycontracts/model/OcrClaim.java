@@ -0,0 +1,72 @@
+package de.flexis.mycontracts.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * Lease on an OCR file path held by one backend instance while it ingests the file.
+ * The path is the primary key, so inserting a claim is the atomic "claim" step.
+ */
+@Entity
+@Table(name = "ocr_claims", indexes = {
+        @Index(name = "idx_ocr_claims_leased_until", columnList = "leasedUntil")
+})
+public class OcrClaim implements Persistable<String> {
+    @Id
+    private String path;
+
+    @Column(nullable = false)
+    private String owner;
+
+    private Instant claimedAt;
+
+    @Column(nullable = false)
+    private Instant leasedUntil;
+
+    // always INSERT new claims instead of merge, so a concurrent claim fails on the primary key
+    @Transient
+    private boolean isNew = true;
+
+    public OcrClaim() {}
+
+    public OcrClaim(String path, String owner, Instant claimedAt, Instant leasedUntil) {
+        this.path = path;
+        this.owner = owner;
+        this.claimedAt = claimedAt;
+        this.leasedUntil = leasedUntil;
+    }
+
+    @Override
+    public String getId() {
+        return path;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Instant getClaimedAt() {
+        return claimedAt;
+    }
+
+    public Instant getLeasedUntil() {
+        return leasedUntil;
+    }
+}
@@ -1,12 +1,18 @@
 package de.flexis.mycontracts.model;
 
 import de.flexis.mycontracts.model.enums.OcrStatus;
+import de.flexis.mycontracts.ocr.OcrFormat;
 import jakarta.persistence.*;
 
 import java.time.Instant;
 
 @Entity
-@Table(name = "ocr_files")
+@Table(name = "ocr_files", indexes = {
+        @Index(name = "ux_ocr_files_path", columnList = "path", unique = true),
+        @Index(name = "idx_ocr_files_status_next_attempt", columnList = "status, nextAttemptAt"),
+        @Index(name = "idx_ocr_files_payload_ref", columnList = "payloadRef"),
+        @Index(name = "idx_ocr_files_text_ref", columnList = "textRef")
+})
 public class OcrFile {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -17,8 +23,17 @@ public class OcrFile {
 
     private String checksum;
 
-    @Lob
-    private String rawJson;
+    // raw OCR JSON lives compressed in OcrPayloadStore; the row only keeps its key and size
+    private String payloadRef;
+    private Long payloadSize;
+
+    // plain text parsed from the payload (also in OcrPayloadStore, keyed by its SHA-256) and its stats
+    private String textRef;
+    @Enumerated(EnumType.STRING)
+    private OcrFormat ocrFormat;
+    private Integer pageCount;
+    private Long wordCount;
+    private Double meanConfidence;
 
     @Enumerated(EnumType.STRING)
     private OcrStatus status = OcrStatus.PENDING;
@@ -29,16 +44,21 @@ public class OcrFile {
 
     private Instant createdAt = Instant.now();
     private Instant processedAt;
+    // fingerprint of the source file when it was read: last-modified time (also the start
+    // point for ingest lag), size and HashingIO.fastDigest; a change triggers a SHA-256 recheck
+    private Instant sourceModifiedAt;
+    private Long sourceSize;
+    private String fastDigest;
 
     // retry bookkeeping
     private int retryCount = 0;
     private Instant lastAttempt;
+    private Instant nextAttemptAt;
 
     public OcrFile() {}
 
-    public OcrFile(String path, String rawJson) {
+    public OcrFile(String path) {
         this.path = path;
-        this.rawJson = rawJson;
     }
 
     public Long getId() {
@@ -61,12 +81,60 @@ public class OcrFile {
         this.checksum = checksum;
     }
 
-    public String getRawJson() {
-        return rawJson;
+    public String getPayloadRef() {
+        return payloadRef;
+    }
+
+    public void setPayloadRef(String payloadRef) {
+        this.payloadRef = payloadRef;
+    }
+
+    public Long getPayloadSize() {
+        return payloadSize;
+    }
+
+    public void setPayloadSize(Long payloadSize) {
+        this.payloadSize = payloadSize;
+    }
+
+    public String getTextRef() {
+        return textRef;
+    }
+
+    public void setTextRef(String textRef) {
+        this.textRef = textRef;
+    }
+
+    public OcrFormat getOcrFormat() {
+        return ocrFormat;
+    }
+
+    public void setOcrFormat(OcrFormat ocrFormat) {
+        this.ocrFormat = ocrFormat;
+    }
+
+    public Integer getPageCount() {
+        return pageCount;
+    }
+
+    public void setPageCount(Integer pageCount) {
+        this.pageCount = pageCount;
+    }
+
+    public Long getWordCount() {
+        return wordCount;
+    }
+
+    public void setWordCount(Long wordCount) {
+        this.wordCount = wordCount;
     }
 
-    public void setRawJson(String rawJson) {
-        this.rawJson = rawJson;
+    public Double getMeanConfidence() {
+        return meanConfidence;
+    }
+
+    public void setMeanConfidence(Double meanConfidence) {
+        this.meanConfidence = meanConfidence;
     }
 
     public OcrStatus getStatus() {
@@ -116,4 +184,36 @@ public class OcrFile {
     public void setLastAttempt(Instant lastAttempt) {
         this.lastAttempt = lastAttempt;
     }
+
+    public Instant getSourceModifiedAt() {
+        return sourceModifiedAt;
+    }
+
+    public void setSourceModifiedAt(Instant sourceModifiedAt) {
+        this.sourceModifiedAt = sourceModifiedAt;
+    }
+
+    public Long getSourceSize() {
+        return sourceSize;
+    }
+
+    public void setSourceSize(Long sourceSize) {
+        this.sourceSize = sourceSize;
+    }
+
+    public String getFastDigest() {
+        return fastDigest;
+    }
+
+    public void setFastDigest(String fastDigest) {
+        this.fastDigest = fastDigest;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
 }
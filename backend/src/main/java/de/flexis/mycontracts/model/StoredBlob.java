@@ -0,0 +1,86 @@
+package de.flexis.mycontracts.model;
+
+import de.flexis.mycontracts.model.enums.StorageCodec;
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * Content-addressed file body in {@code BlobStore}, keyed by its SHA-256.
+ * {@code refCount} is the number of {@link StoredFile} rows pointing at it.
+ */
+@Entity
+@Table(name = "stored_blobs")
+public class StoredBlob implements Persistable<String> {
+    @Id
+    private String sha256;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private int refCount;
+
+    // encoding of the body on disk and its size there; null for blobs stored before compression existed
+    @Enumerated(EnumType.STRING)
+    private StorageCodec codec;
+
+    private Long storedSize;
+
+    private Instant createdAt = Instant.now();
+
+    // always INSERT new blobs, so two uploads of the same content race on the primary key
+    @Transient
+    private boolean isNew = true;
+
+    public StoredBlob() {}
+
+    public StoredBlob(String sha256, long size, StorageCodec codec, long storedSize) {
+        this.sha256 = sha256;
+        this.size = size;
+        this.refCount = 1;
+        this.codec = codec;
+        this.storedSize = storedSize;
+    }
+
+    @Override
+    public String getId() {
+        return sha256;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public StorageCodec getCodec() {
+        return codec != null ? codec : StorageCodec.NONE;
+    }
+
+    public Long getStoredSize() {
+        return storedSize;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -1,7 +1,10 @@
 package de.flexis.mycontracts.model;
 
+import de.flexis.mycontracts.model.enums.StorageCodec;
+import de.flexis.mycontracts.model.enums.StorageIntegrity;
 import jakarta.persistence.*;
 import java.time.Instant;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
@@ -9,7 +12,10 @@ import java.util.Set;
 import java.util.HashSet;
 
 @Entity
-@Table(name = "files")
+@Table(name = "files", indexes = {
+        @Index(name = "idx_files_basename", columnList = "basename"),
+        @Index(name = "idx_files_blob_key", columnList = "blobKey")
+})
 public class StoredFile {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -21,10 +27,30 @@ public class StoredFile {
     @Column(nullable = false)
     private String path;
 
+    // filename without extension, used to match OCR sidecars (foo_ocr.json -> foo.pdf)
+    @JsonIgnore
+    private String basename;
+
     private String mime;
     private Long size;
     private String checksum;
 
+    // SHA-256 of the body in BlobStore; null for files stored under their own name before blobs existed
+    @JsonIgnore
+    private String blobKey;
+
+    // how the body is encoded on disk (copied from the blob) and its size there; size stays the original size
+    @Enumerated(EnumType.STRING)
+    private StorageCodec codec;
+
+    private Long storedSize;
+
+    // result of the last check by StorageScrubber; null = not checked yet
+    @Enumerated(EnumType.STRING)
+    private StorageIntegrity integrity;
+
+    private Instant verifiedAt;
+
     @Lob
     private String markersJson; // JSON array: ["URGENT","REVIEW",...]
 
@@ -44,6 +70,20 @@ public class StoredFile {
     public StoredFile(String filename, String path) {
         this.filename = filename;
         this.path = path;
+        this.basename = basenameOf(filename);
+    }
+
+    public static String basenameOf(String filename) {
+        if (filename == null) return null;
+        int idx = filename.lastIndexOf('.');
+        if (idx > 0) return filename.substring(0, idx);
+        return filename;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void updateBasename() {
+        this.basename = basenameOf(filename);
     }
 
     public Long getId() {
@@ -56,6 +96,11 @@ public class StoredFile {
 
     public void setFilename(String filename) {
         this.filename = filename;
+        this.basename = basenameOf(filename);
+    }
+
+    public String getBasename() {
+        return basename;
     }
 
     public String getPath() {
@@ -82,6 +127,46 @@ public class StoredFile {
         this.size = size;
     }
 
+    public String getBlobKey() {
+        return blobKey;
+    }
+
+    public void setBlobKey(String blobKey) {
+        this.blobKey = blobKey;
+    }
+
+    public StorageCodec getCodec() {
+        return codec != null ? codec : StorageCodec.NONE;
+    }
+
+    public void setCodec(StorageCodec codec) {
+        this.codec = codec;
+    }
+
+    public Long getStoredSize() {
+        return storedSize;
+    }
+
+    public void setStoredSize(Long storedSize) {
+        this.storedSize = storedSize;
+    }
+
+    public StorageIntegrity getIntegrity() {
+        return integrity;
+    }
+
+    public void setIntegrity(StorageIntegrity integrity) {
+        this.integrity = integrity;
+    }
+
+    public Instant getVerifiedAt() {
+        return verifiedAt;
+    }
+
+    public void setVerifiedAt(Instant verifiedAt) {
+        this.verifiedAt = verifiedAt;
+    }
+
     public String getChecksum() {
         return checksum;
     }
@@ -0,0 +1,72 @@
+package de.flexis.mycontracts.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Resumable upload in progress. The bytes received so far are in a staging file named after the id;
+ * {@code received} is the offset the next chunk has to start at.
+ */
+@Entity
+@Table(name = "upload_sessions", indexes = {
+        @Index(name = "idx_upload_sessions_updated_at", columnList = "updatedAt")
+})
+public class UploadSession {
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private String filename;
+
+    private String mime;
+
+    // announced total size
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private long received;
+
+    private Instant createdAt = Instant.now();
+
+    // last chunk; sessions idle for longer than upload.session-ttl-hours are removed
+    private Instant updatedAt = Instant.now();
+
+    public UploadSession() {}
+
+    public UploadSession(String id, String filename, String mime, long size) {
+        this.id = id;
+        this.filename = filename;
+        this.mime = mime;
+        this.size = size;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getMime() {
+        return mime;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
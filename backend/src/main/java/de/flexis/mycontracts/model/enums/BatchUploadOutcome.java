@@ -0,0 +1,12 @@
+package de.flexis.mycontracts.model.enums;
+
+public enum BatchUploadOutcome {
+    // new content
+    STORED,
+    // stored, but the same content already existed (see duplicateOf)
+    DUPLICATE,
+    // not stored because the content already existed (skipDuplicates)
+    SKIPPED,
+    // empty, too large, invalid name or I/O error
+    REJECTED
+}
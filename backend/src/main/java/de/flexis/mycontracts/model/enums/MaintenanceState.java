@@ -0,0 +1,9 @@
+package de.flexis.mycontracts.model.enums;
+
+public enum MaintenanceState {
+    NEW,
+    RUNNING,
+    STOPPED,
+    DONE,
+    FAILED
+}
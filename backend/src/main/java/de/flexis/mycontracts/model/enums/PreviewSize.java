@@ -0,0 +1,8 @@
+package de.flexis.mycontracts.model.enums;
+
+public enum PreviewSize {
+    // small first-page image for file lists
+    THUMBNAIL,
+    // low-resolution first page for the detail view
+    PAGE
+}
@@ -0,0 +1,8 @@
+package de.flexis.mycontracts.model.enums;
+
+/** How a blob body is encoded on disk; the checksum always refers to the decoded bytes. */
+public enum StorageCodec {
+    NONE,
+    // zlib stream (java.util.zip.Deflater)
+    DEFLATE
+}
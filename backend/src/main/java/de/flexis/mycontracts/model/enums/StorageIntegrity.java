@@ -0,0 +1,8 @@
+package de.flexis.mycontracts.model.enums;
+
+/** Outcome of the last integrity check of a stored file's body. */
+public enum StorageIntegrity {
+    OK,
+    MISMATCH,
+    MISSING
+}
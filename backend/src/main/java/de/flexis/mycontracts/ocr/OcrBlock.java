@@ -0,0 +1,10 @@
+package de.flexis.mycontracts.ocr;
+
+import java.util.List;
+
+public record OcrBlock(List<OcrLine> lines, OcrBox box) {
+
+    public OcrBlock {
+        lines = List.copyOf(lines);
+    }
+}
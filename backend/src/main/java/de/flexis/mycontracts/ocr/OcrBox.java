@@ -0,0 +1,12 @@
+package de.flexis.mycontracts.ocr;
+
+/**
+ * Axis-aligned bounding box. Units are whatever the source format uses
+ * (pixels for Tesseract, page-relative 0..1 for Textract and docTR).
+ */
+public record OcrBox(double left, double top, double width, double height) {
+
+    public static OcrBox ofCorners(double x0, double y0, double x1, double y1) {
+        return new OcrBox(Math.min(x0, x1), Math.min(y0, y1), Math.abs(x1 - x0), Math.abs(y1 - y0));
+    }
+}
@@ -0,0 +1,14 @@
+package de.flexis.mycontracts.ocr;
+
+import java.util.List;
+
+/**
+ * Canonical OCR result: pages, blocks, lines, words. Built by {@link OcrDocumentBuilder};
+ * consumers that only need text should use {@link OcrTextExtractor} instead of holding the tree.
+ */
+public record OcrDocument(OcrFormat format, List<OcrPage> pages) {
+
+    public OcrDocument {
+        pages = List.copyOf(pages);
+    }
+}
@@ -0,0 +1,50 @@
+package de.flexis.mycontracts.ocr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Collects parser events into a full {@link OcrDocument} tree. */
+public class OcrDocumentBuilder implements OcrHandler {
+
+    private final List<OcrPage> pages = new ArrayList<>();
+    private List<OcrBlock> blocks;
+    private List<OcrLine> lines;
+    private OcrBox blockBox;
+    private int pageNumber;
+    private Double pageWidth;
+    private Double pageHeight;
+
+    @Override
+    public void startPage(int number, Double width, Double height) {
+        pageNumber = number;
+        pageWidth = width;
+        pageHeight = height;
+        blocks = new ArrayList<>();
+        lines = null;
+    }
+
+    @Override
+    public void startBlock(OcrBox box) {
+        blockBox = box;
+        lines = new ArrayList<>();
+    }
+
+    @Override
+    public void line(OcrLine line) {
+        lines.add(line);
+    }
+
+    @Override
+    public void endBlock() {
+        blocks.add(new OcrBlock(lines, blockBox));
+    }
+
+    @Override
+    public void endPage() {
+        pages.add(new OcrPage(pageNumber, pageWidth, pageHeight, blocks));
+    }
+
+    public OcrDocument build(OcrFormat format) {
+        return new OcrDocument(format, pages);
+    }
+}
@@ -0,0 +1,14 @@
+package de.flexis.mycontracts.ocr;
+
+/** Source JSON layouts understood by {@link OcrJsonParser}. */
+public enum OcrFormat {
+    /** {@code {"pages":[{"blocks":[{"lines":[{"words":[...]}]}]}]}} (docTR and similar exports) */
+    HIERARCHICAL,
+    /** AWS Textract: {@code {"Blocks":[{"BlockType":"PAGE|LINE|WORD", ...}]}} */
+    TEXTRACT,
+    /** Tesseract {@code image_to_data} rows: {@code [{"level":5,"page_num":1,...,"text":"..."}]} */
+    TESSERACT,
+    /** Just the recognized text: {@code {"text":"..."}} */
+    PLAIN_TEXT,
+    UNKNOWN
+}
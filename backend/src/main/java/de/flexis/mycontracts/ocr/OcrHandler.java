@@ -0,0 +1,19 @@
+package de.flexis.mycontracts.ocr;
+
+/**
+ * Receives the document from {@link OcrJsonParser} as it is read. Lines are the unit of delivery,
+ * so memory use is bounded by the longest line, not the document.
+ * Calls are always nested page, block, line; every start is matched by an end.
+ */
+public interface OcrHandler {
+
+    default void startPage(int number, Double width, Double height) {}
+
+    default void startBlock(OcrBox box) {}
+
+    void line(OcrLine line);
+
+    default void endBlock() {}
+
+    default void endPage() {}
+}
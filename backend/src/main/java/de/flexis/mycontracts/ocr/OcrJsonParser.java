@@ -0,0 +1,456 @@
+package de.flexis.mycontracts.ocr;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streaming parser for OCR JSON in the layouts listed in {@link OcrFormat}. The layout is detected
+ * from the top-level structure; the document is then pushed to an {@link OcrHandler} line by line,
+ * so multi-MB inputs are parsed without building a tree.
+ * <p>
+ * Confidences are normalized to 0..1. Page metadata that appears after a page's content in the
+ * JSON is not seen by {@link OcrHandler#startPage}, since the page has already been started.
+ */
+public class OcrJsonParser {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final Set<String> TEXT_FIELDS = Set.of("text", "extractedText", "fullText", "content");
+
+    public OcrFormat parse(InputStream in, OcrHandler handler) throws IOException {
+        try (JsonParser p = JSON.createParser(in)) {
+            JsonToken first = p.nextToken();
+            if (first == JsonToken.START_ARRAY) {
+                new TesseractRows(handler).parse(p);
+                return OcrFormat.TESSERACT;
+            }
+            if (first != JsonToken.START_OBJECT) return OcrFormat.UNKNOWN;
+
+            String plainText = null;
+            OcrFormat format = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken value = p.nextToken();
+                if (format == null && "pages".equals(field) && value == JsonToken.START_ARRAY) {
+                    parsePages(p, handler);
+                    format = OcrFormat.HIERARCHICAL;
+                } else if (format == null && "Blocks".equals(field) && value == JsonToken.START_ARRAY) {
+                    parseTextract(p, handler);
+                    format = OcrFormat.TEXTRACT;
+                } else if (plainText == null && TEXT_FIELDS.contains(field) && value == JsonToken.VALUE_STRING) {
+                    plainText = p.getText();
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (format != null) return format;
+            if (plainText != null) {
+                emitText(handler, 1, plainText);
+                return OcrFormat.PLAIN_TEXT;
+            }
+            return OcrFormat.UNKNOWN;
+        }
+    }
+
+    // --- hierarchical: pages -> blocks -> lines -> words ---
+
+    private void parsePages(JsonParser p, OcrHandler handler) throws IOException {
+        int index = 0;
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            index++;
+            parsePage(p, handler, index);
+        }
+    }
+
+    private void parsePage(JsonParser p, OcrHandler handler, int index) throws IOException {
+        int number = index;
+        Double width = null, height = null;
+        boolean started = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "page_number", "pageNumber", "number", "page" -> {
+                    if (value.isNumeric()) number = p.getIntValue();
+                }
+                case "page_idx" -> {
+                    if (value.isNumeric()) number = p.getIntValue() + 1;
+                }
+                case "width" -> width = number(p, value);
+                case "height" -> height = number(p, value);
+                case "dimensions" -> {
+                    // docTR: [height, width]
+                    List<Double> dims = numbers(p, value);
+                    if (dims.size() == 2) {
+                        height = dims.get(0);
+                        width = dims.get(1);
+                    }
+                }
+                case "blocks", "lines", "text" -> {
+                    if (!started) {
+                        handler.startPage(number, width, height);
+                        started = true;
+                    }
+                    if ("blocks".equals(field) && value == JsonToken.START_ARRAY) {
+                        while (p.nextToken() == JsonToken.START_OBJECT) parseBlock(p, handler);
+                    } else if ("lines".equals(field) && value == JsonToken.START_ARRAY) {
+                        handler.startBlock(null);
+                        while (p.nextToken() == JsonToken.START_OBJECT) parseLine(p, handler);
+                        handler.endBlock();
+                    } else if (value == JsonToken.VALUE_STRING) {
+                        emitLines(handler, p.getText());
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        if (!started) handler.startPage(number, width, height);
+        handler.endPage();
+    }
+
+    private void parseBlock(JsonParser p, OcrHandler handler) throws IOException {
+        OcrBox box = null;
+        boolean started = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken value = p.nextToken();
+            if (isBoxField(field)) {
+                box = box(p, value);
+            } else if ("lines".equals(field) && value == JsonToken.START_ARRAY) {
+                if (!started) {
+                    handler.startBlock(box);
+                    started = true;
+                }
+                while (p.nextToken() == JsonToken.START_OBJECT) parseLine(p, handler);
+            } else if ("text".equals(field) && value == JsonToken.VALUE_STRING) {
+                if (!started) {
+                    handler.startBlock(box);
+                    started = true;
+                }
+                emitLines(handler, p.getText());
+            } else {
+                p.skipChildren();
+            }
+        }
+        if (!started) handler.startBlock(box);
+        handler.endBlock();
+    }
+
+    private void parseLine(JsonParser p, OcrHandler handler) throws IOException {
+        OcrBox box = null;
+        Double confidence = null;
+        String text = null;
+        List<OcrWord> words = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken value = p.nextToken();
+            if (isBoxField(field)) {
+                box = box(p, value);
+            } else if (isConfidenceField(field)) {
+                confidence = confidence(p, value);
+            } else if (("text".equals(field) || "value".equals(field)) && value == JsonToken.VALUE_STRING) {
+                text = p.getText();
+            } else if ("words".equals(field) && value == JsonToken.START_ARRAY) {
+                words = new ArrayList<>();
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    OcrWord word = parseWord(p);
+                    if (word != null) words.add(word);
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        if (words == null) words = splitWords(text, confidence);
+        handler.line(new OcrLine(words, box, confidence));
+    }
+
+    private OcrWord parseWord(JsonParser p) throws IOException {
+        OcrBox box = null;
+        Double confidence = null;
+        String text = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken value = p.nextToken();
+            if (isBoxField(field)) {
+                box = box(p, value);
+            } else if (isConfidenceField(field)) {
+                confidence = confidence(p, value);
+            } else if (("text".equals(field) || "value".equals(field)) && value == JsonToken.VALUE_STRING) {
+                text = p.getText();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return text == null || text.isBlank() ? null : new OcrWord(text.strip(), box, confidence);
+    }
+
+    // --- Textract: flat Blocks array, text taken from LINE blocks ---
+
+    private void parseTextract(JsonParser p, OcrHandler handler) throws IOException {
+        int currentPage = 0;
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            String type = null, text = null;
+            Double confidence = null;
+            OcrBox box = null;
+            Integer page = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken value = p.nextToken();
+                switch (field) {
+                    case "BlockType" -> type = p.getValueAsString();
+                    case "Text" -> text = p.getValueAsString();
+                    case "Confidence" -> confidence = confidence(p, value);
+                    case "Page" -> page = value.isNumeric() ? p.getIntValue() : null;
+                    case "Geometry" -> box = textractBox(p, value);
+                    default -> p.skipChildren();
+                }
+            }
+            if ("PAGE".equals(type)) {
+                if (currentPage > 0) endTextractPage(handler);
+                currentPage = page != null ? page : currentPage + 1;
+                handler.startPage(currentPage, null, null);
+                handler.startBlock(null);
+            } else if ("LINE".equals(type)) {
+                if (currentPage == 0 || (page != null && page != currentPage)) {
+                    if (currentPage > 0) endTextractPage(handler);
+                    currentPage = page != null ? page : 1;
+                    handler.startPage(currentPage, null, null);
+                    handler.startBlock(null);
+                }
+                handler.line(new OcrLine(splitWords(text, confidence), box, confidence));
+            }
+        }
+        if (currentPage > 0) endTextractPage(handler);
+    }
+
+    private static void endTextractPage(OcrHandler handler) {
+        handler.endBlock();
+        handler.endPage();
+    }
+
+    private OcrBox textractBox(JsonParser p, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        OcrBox box = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken inner = p.nextToken();
+            if ("BoundingBox".equals(field)) box = box(p, inner);
+            else p.skipChildren();
+        }
+        return box;
+    }
+
+    // --- Tesseract image_to_data rows: level 1 page, 2 block, 4 line, 5 word ---
+
+    private final class TesseractRows {
+        private final OcrHandler handler;
+        private int page = -1, block = -1;
+        private String lineKey;
+        private OcrBox lineBox;
+        private final List<OcrWord> words = new ArrayList<>();
+
+        TesseractRows(OcrHandler handler) {
+            this.handler = handler;
+        }
+
+        void parse(JsonParser p) throws IOException {
+            while (p.nextToken() == JsonToken.START_OBJECT) {
+                int level = 0, pageNum = 1, blockNum = 0, parNum = 0, lineNum = 0;
+                double left = 0, top = 0, width = 0, height = 0;
+                Double conf = null;
+                String text = null;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.getCurrentName();
+                    JsonToken value = p.nextToken();
+                    switch (field) {
+                        case "level" -> level = p.getValueAsInt();
+                        case "page_num" -> pageNum = p.getValueAsInt(1);
+                        case "block_num" -> blockNum = p.getValueAsInt();
+                        case "par_num" -> parNum = p.getValueAsInt();
+                        case "line_num" -> lineNum = p.getValueAsInt();
+                        case "left" -> left = p.getValueAsDouble();
+                        case "top" -> top = p.getValueAsDouble();
+                        case "width" -> width = p.getValueAsDouble();
+                        case "height" -> height = p.getValueAsDouble();
+                        case "conf" -> conf = confidence(p, value);
+                        case "text" -> text = p.getValueAsString();
+                        default -> p.skipChildren();
+                    }
+                }
+                OcrBox box = new OcrBox(left, top, width, height);
+                switch (level) {
+                    case 1 -> startPage(pageNum, width, height);
+                    case 2 -> startBlock(pageNum, blockNum, box);
+                    case 4 -> startLine(pageNum, blockNum, parNum + ":" + lineNum, box);
+                    case 5 -> {
+                        if (page != pageNum || block != blockNum) startBlock(pageNum, blockNum, null);
+                        String key = parNum + ":" + lineNum;
+                        if (!key.equals(lineKey)) startLine(pageNum, blockNum, key, null);
+                        if (text != null && !text.isBlank()) words.add(new OcrWord(text.strip(), box, conf));
+                    }
+                    default -> { }
+                }
+            }
+            if (page >= 0) {
+                flushLine();
+                if (block >= 0) handler.endBlock();
+                handler.endPage();
+            }
+        }
+
+        private void startPage(int pageNum, double width, double height) {
+            if (page >= 0) {
+                flushLine();
+                if (block >= 0) handler.endBlock();
+                handler.endPage();
+            }
+            page = pageNum;
+            block = -1;
+            handler.startPage(pageNum, width > 0 ? width : null, height > 0 ? height : null);
+        }
+
+        private void startBlock(int pageNum, int blockNum, OcrBox box) {
+            if (page != pageNum) startPage(pageNum, 0, 0);
+            flushLine();
+            if (block >= 0) handler.endBlock();
+            block = blockNum;
+            handler.startBlock(box);
+        }
+
+        private void startLine(int pageNum, int blockNum, String key, OcrBox box) {
+            if (page != pageNum || block != blockNum) startBlock(pageNum, blockNum, null);
+            flushLine();
+            lineKey = key;
+            lineBox = box;
+        }
+
+        private void flushLine() {
+            if (lineKey != null && !words.isEmpty()) {
+                handler.line(new OcrLine(words, lineBox, null));
+            }
+            words.clear();
+            lineKey = null;
+            lineBox = null;
+        }
+    }
+
+    // --- helpers ---
+
+    private static void emitText(OcrHandler handler, int pageNumber, String text) {
+        handler.startPage(pageNumber, null, null);
+        handler.startBlock(null);
+        emitLines(handler, text);
+        handler.endBlock();
+        handler.endPage();
+    }
+
+    private static void emitLines(OcrHandler handler, String text) {
+        for (String line : text.split("\\R")) {
+            List<OcrWord> words = splitWords(line, null);
+            if (!words.isEmpty()) handler.line(new OcrLine(words, null, null));
+        }
+    }
+
+    private static List<OcrWord> splitWords(String text, Double confidence) {
+        List<OcrWord> words = new ArrayList<>();
+        if (text == null) return words;
+        for (String token : text.strip().split("\\s+")) {
+            if (!token.isEmpty()) words.add(new OcrWord(token, null, confidence));
+        }
+        return words;
+    }
+
+    private static boolean isBoxField(String field) {
+        return switch (field) {
+            case "bbox", "box", "geometry", "boundingBox", "BoundingBox" -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isConfidenceField(String field) {
+        return "confidence".equals(field) || "conf".equals(field) || "Confidence".equals(field);
+    }
+
+    /** Confidence scaled to 0..1; percent values are divided by 100, negatives (Tesseract "none") dropped. */
+    private static Double confidence(JsonParser p, JsonToken value) throws IOException {
+        Double c = number(p, value);
+        if (c == null || c < 0) return null;
+        return c > 1 ? c / 100 : c;
+    }
+
+    private static Double number(JsonParser p, JsonToken value) throws IOException {
+        if (value.isNumeric()) return p.getDoubleValue();
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Double.parseDouble(p.getText().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        p.skipChildren();
+        return null;
+    }
+
+    private static List<Double> numbers(JsonParser p, JsonToken value) throws IOException {
+        List<Double> out = new ArrayList<>();
+        if (value != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return out;
+        }
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (t.isNumeric()) out.add(p.getDoubleValue());
+            else if (t == JsonToken.START_ARRAY) out.addAll(numbers(p, t));
+            else p.skipChildren();
+        }
+        return out;
+    }
+
+    /**
+     * Accepts {@code [x0,y0,x1,y1]}, {@code [[x0,y0],[x1,y1]]} (docTR), polygons (their bounding box)
+     * and objects with left/top/width/height in either case.
+     */
+    private static OcrBox box(JsonParser p, JsonToken value) throws IOException {
+        if (value == JsonToken.START_ARRAY) {
+            List<Double> n = numbers(p, value);
+            if (n.size() < 4 || n.size() % 2 != 0) return null;
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < n.size(); i += 2) {
+                minX = Math.min(minX, n.get(i));
+                maxX = Math.max(maxX, n.get(i));
+                minY = Math.min(minY, n.get(i + 1));
+                maxY = Math.max(maxY, n.get(i + 1));
+            }
+            return OcrBox.ofCorners(minX, minY, maxX, maxY);
+        }
+        if (value != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        Double left = null, top = null, width = null, height = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken inner = p.nextToken();
+            switch (field) {
+                case "left", "Left", "x" -> left = number(p, inner);
+                case "top", "Top", "y" -> top = number(p, inner);
+                case "width", "Width", "w" -> width = number(p, inner);
+                case "height", "Height", "h" -> height = number(p, inner);
+                default -> p.skipChildren();
+            }
+        }
+        if (left == null || top == null || width == null || height == null) return null;
+        return new OcrBox(left, top, width, height);
+    }
+}
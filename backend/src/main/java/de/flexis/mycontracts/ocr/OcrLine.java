@@ -0,0 +1,15 @@
+package de.flexis.mycontracts.ocr;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public record OcrLine(List<OcrWord> words, OcrBox box, Double confidence) {
+
+    public OcrLine {
+        words = List.copyOf(words);
+    }
+
+    public String text() {
+        return words.stream().map(OcrWord::text).collect(Collectors.joining(" "));
+    }
+}
@@ -0,0 +1,11 @@
+package de.flexis.mycontracts.ocr;
+
+import java.util.List;
+
+/** A page; {@code number} is 1-based, width and height are null when the source does not say. */
+public record OcrPage(int number, Double width, Double height, List<OcrBlock> blocks) {
+
+    public OcrPage {
+        blocks = List.copyOf(blocks);
+    }
+}
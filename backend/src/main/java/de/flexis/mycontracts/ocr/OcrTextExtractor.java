@@ -0,0 +1,77 @@
+package de.flexis.mycontracts.ocr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes plain text while the document is parsed and counts pages, words and confidence.
+ * Lines end with {@code \n}, blocks are separated by a blank line and pages by a form feed.
+ */
+public class OcrTextExtractor implements OcrHandler {
+
+    private final Appendable out;
+    private int pages;
+    private long words;
+    private double confidenceSum;
+    private long confidenceCount;
+    private boolean blockHasLines;
+    private boolean pageHasBlocks;
+
+    public OcrTextExtractor(Appendable out) {
+        this.out = out;
+    }
+
+    @Override
+    public void startPage(int number, Double width, Double height) {
+        if (pages++ > 0) write("\f");
+        pageHasBlocks = false;
+    }
+
+    @Override
+    public void startBlock(OcrBox box) {
+        if (pageHasBlocks) write("\n");
+        blockHasLines = false;
+    }
+
+    @Override
+    public void line(OcrLine line) {
+        if (line.words().isEmpty()) return;
+        write(line.text());
+        write("\n");
+        blockHasLines = true;
+        for (OcrWord word : line.words()) {
+            words++;
+            Double c = word.confidence() != null ? word.confidence() : line.confidence();
+            if (c != null) {
+                confidenceSum += c;
+                confidenceCount++;
+            }
+        }
+    }
+
+    @Override
+    public void endBlock() {
+        if (blockHasLines) pageHasBlocks = true;
+    }
+
+    public int getPageCount() {
+        return pages;
+    }
+
+    public long getWordCount() {
+        return words;
+    }
+
+    /** Mean word confidence (0..1), or null if the source had no confidences. */
+    public Double getMeanConfidence() {
+        return confidenceCount == 0 ? null : confidenceSum / confidenceCount;
+    }
+
+    private void write(String s) {
+        try {
+            out.append(s);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package de.flexis.mycontracts.ocr;
+
+/** One recognized word. {@code box} and {@code confidence} (0..1) are null when the source has none. */
+public record OcrWord(String text, OcrBox box, Double confidence) {}
@@ -2,11 +2,26 @@ package de.flexis.mycontracts.repository;
 
 import de.flexis.mycontracts.model.ExtractedField;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ExtractedFieldRepository extends JpaRepository<ExtractedField, Long> {
     List<ExtractedField> findByContractId(Long contractId);
+
+    // flag bound as a parameter: the SQLite dialect renders boolean literals as 1/0
+    @Modifying
+    @Transactional
+    @Query("update ExtractedField f set f.stale = :stale where f.contract.id in :contractIds and f.stale <> :stale")
+    int updateStaleByContractIds(@Param("contractIds") Collection<Long> contractIds, @Param("stale") boolean stale);
+
+    default int markStaleByContractIds(Collection<Long> contractIds) {
+        return updateStaleByContractIds(contractIds, true);
+    }
 }
@@ -0,0 +1,9 @@
+package de.flexis.mycontracts.repository;
+
+import de.flexis.mycontracts.model.MaintenanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MaintenanceCheckpointRepository extends JpaRepository<MaintenanceCheckpoint, String> {
+}
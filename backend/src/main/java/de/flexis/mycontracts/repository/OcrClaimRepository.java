@@ -0,0 +1,33 @@
+package de.flexis.mycontracts.repository;
+
+import de.flexis.mycontracts.model.OcrClaim;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface OcrClaimRepository extends JpaRepository<OcrClaim, String> {
+
+    /** Takes over a claim that expired or that this owner already holds. Returns 1 on success. */
+    @Modifying
+    @Transactional
+    @Query("update OcrClaim c set c.owner = :owner, c.claimedAt = :now, c.leasedUntil = :until " +
+            "where c.path = :path and (c.leasedUntil < :now or c.owner = :owner)")
+    int takeOver(@Param("path") String path, @Param("owner") String owner,
+                 @Param("now") Instant now, @Param("until") Instant until);
+
+    @Modifying
+    @Transactional
+    @Query("delete from OcrClaim c where c.path = :path and c.owner = :owner")
+    int release(@Param("path") String path, @Param("owner") String owner);
+
+    @Modifying
+    @Transactional
+    @Query("delete from OcrClaim c where c.leasedUntil < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -1,16 +1,121 @@
 package de.flexis.mycontracts.repository;
 
 import de.flexis.mycontracts.model.OcrFile;
+import de.flexis.mycontracts.model.StoredFile;
 import de.flexis.mycontracts.model.enums.OcrStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OcrFileRepository extends JpaRepository<OcrFile, Long> {
     List<OcrFile> findByStatus(OcrStatus status);
     java.util.Optional<OcrFile> findByPath(String path);
+    boolean existsByPath(String path);
     java.util.Optional<OcrFile> findByMatchedFileId(Long matchedFileId);
     java.util.List<OcrFile> findByMatchedFileIdIn(java.util.List<Long> matchedFileIds);
+
+    @Query("select o.id as id, o.path as path, o.checksum as checksum, o.sourceSize as sourceSize, " +
+            "o.sourceModifiedAt as sourceModifiedAt, o.fastDigest as fastDigest from OcrFile o")
+    List<Fingerprint> findFingerprints();
+
+    @Modifying
+    @Transactional
+    @Query("update OcrFile o set o.sourceSize = :size, o.sourceModifiedAt = :modifiedAt, o.fastDigest = :digest " +
+            "where o.id = :id")
+    int updateFingerprint(@Param("id") Long id, @Param("size") long size,
+                          @Param("modifiedAt") Instant modifiedAt, @Param("digest") String digest);
+
+    // retry bookkeeping works on projections / bulk updates so full rows are never loaded
+
+    @Query("select o.id as id, o.path as path, o.retryCount as retryCount, " +
+            "o.sourceModifiedAt as sourceModifiedAt from OcrFile o " +
+            "where o.status = :status and (o.nextAttemptAt is null or o.nextAttemptAt <= :now) " +
+            "order by o.nextAttemptAt")
+    List<DueRetry> findDue(@Param("status") OcrStatus status, @Param("now") Instant now, Pageable page);
+
+    long countByStatus(OcrStatus status);
+
+    @Query("select min(o.nextAttemptAt) from OcrFile o where o.status = :status")
+    Instant findEarliestNextAttempt(@Param("status") OcrStatus status);
+
+    @Modifying
+    @Transactional
+    @Query("update OcrFile o set o.matchedFile = :file, o.status = :newStatus, o.processedAt = :now, " +
+            "o.lastAttempt = :now, o.retryCount = o.retryCount + 1, o.nextAttemptAt = null " +
+            "where o.id = :id and o.status = :expected")
+    int markMatched(@Param("id") Long id, @Param("file") StoredFile file, @Param("now") Instant now,
+                    @Param("expected") OcrStatus expected, @Param("newStatus") OcrStatus newStatus);
+
+    @Modifying
+    @Transactional
+    @Query("update OcrFile o set o.lastAttempt = :now, o.retryCount = o.retryCount + 1, o.nextAttemptAt = :next " +
+            "where o.id = :id and o.status = :expected")
+    int scheduleRetry(@Param("id") Long id, @Param("now") Instant now, @Param("next") Instant next,
+                      @Param("expected") OcrStatus expected);
+
+    @Modifying
+    @Transactional
+    @Query("update OcrFile o set o.status = :newStatus, o.processedAt = :now, o.lastAttempt = :now, " +
+            "o.retryCount = o.retryCount + 1, o.nextAttemptAt = null where o.id = :id and o.status = :expected")
+    int markFailed(@Param("id") Long id, @Param("now") Instant now,
+                   @Param("expected") OcrStatus expected, @Param("newStatus") OcrStatus newStatus);
+
+    @Query(value = "select o.id as id, o.path as path, o.checksum as checksum, o.status as status, " +
+            "f.id as matchedFileId, o.createdAt as createdAt, o.processedAt as processedAt, " +
+            "o.retryCount as retryCount, o.nextAttemptAt as nextAttemptAt " +
+            "from OcrFile o left join o.matchedFile f",
+            countQuery = "select count(o) from OcrFile o")
+    Page<OcrFileSummary> findSummaries(Pageable pageable);
+
+    @Query(value = "select o.id as id, o.path as path, o.checksum as checksum, o.status as status, " +
+            "f.id as matchedFileId, o.createdAt as createdAt, o.processedAt as processedAt, " +
+            "o.retryCount as retryCount, o.nextAttemptAt as nextAttemptAt " +
+            "from OcrFile o left join o.matchedFile f where o.status = :status",
+            countQuery = "select count(o) from OcrFile o where o.status = :status")
+    Page<OcrFileSummary> findSummariesByStatus(@Param("status") OcrStatus status, Pageable pageable);
+
+    // payload store keys still in use, for the orphan sweep in StorageReconciliation
+    @Query("select o.payloadRef from OcrFile o where o.payloadRef in :keys")
+    List<String> findReferencedPayloadRefs(@Param("keys") Collection<String> keys);
+
+    @Query("select o.textRef from OcrFile o where o.textRef in :keys")
+    List<String> findReferencedTextRefs(@Param("keys") Collection<String> keys);
+
+    interface OcrFileSummary {
+        Long getId();
+        String getPath();
+        String getChecksum();
+        OcrStatus getStatus();
+        Long getMatchedFileId();
+        Instant getCreatedAt();
+        Instant getProcessedAt();
+        int getRetryCount();
+        Instant getNextAttemptAt();
+    }
+
+    interface Fingerprint {
+        Long getId();
+        String getPath();
+        String getChecksum();
+        Long getSourceSize();
+        Instant getSourceModifiedAt();
+        String getFastDigest();
+    }
+
+    interface DueRetry {
+        Long getId();
+        String getPath();
+        int getRetryCount();
+        Instant getSourceModifiedAt();
+    }
 }
@@ -0,0 +1,37 @@
+package de.flexis.mycontracts.repository;
+
+import de.flexis.mycontracts.model.StoredBlob;
+import de.flexis.mycontracts.model.enums.StorageCodec;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+
+    /** Adds a reference to an existing blob. Returns 0 if there is no such blob. */
+    @Modifying
+    @Transactional
+    @Query("update StoredBlob b set b.refCount = b.refCount + 1 where b.sha256 = :sha")
+    int incrementRef(@Param("sha") String sha256);
+
+    @Modifying
+    @Transactional
+    @Query("update StoredBlob b set b.refCount = b.refCount - 1 where b.sha256 = :sha and b.refCount > 0")
+    int decrementRef(@Param("sha") String sha256);
+
+    /** Removes the row once nothing references it. Returns 1 if it was removed. */
+    @Modifying
+    @Transactional
+    @Query("delete from StoredBlob b where b.sha256 = :sha and b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("sha") String sha256);
+
+    /** Records a new body for a blob whose file had gone missing. */
+    @Modifying
+    @Transactional
+    @Query("update StoredBlob b set b.codec = :codec, b.storedSize = :storedSize where b.sha256 = :sha")
+    int updateEncoding(@Param("sha") String sha256, @Param("codec") StorageCodec codec, @Param("storedSize") long storedSize);
+}
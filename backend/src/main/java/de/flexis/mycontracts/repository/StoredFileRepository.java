@@ -1,8 +1,17 @@
 package de.flexis.mycontracts.repository;
 
 import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.StorageCodec;
+import de.flexis.mycontracts.model.enums.StorageIntegrity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -10,4 +19,102 @@ public interface StoredFileRepository extends JpaRepository<StoredFile, Long> {
     StoredFile findByFilename(String filename);
     List<StoredFile> findByDueDateNotNullOrderByDueDateAsc();
     List<StoredFile> findByContractId(Long contractId);
+
+    @Query("select f.id as id, f.basename as basename from StoredFile f where f.basename is not null")
+    List<BasenameEntry> findBasenameEntries();
+
+    @Query("select min(f.id) from StoredFile f where f.basename = :basename")
+    Long findFirstIdByBasename(@Param("basename") String basename);
+
+    // rows created before the basename column existed
+    List<StoredFile> findTop500ByBasenameIsNull();
+
+    boolean existsByPath(String path);
+
+    // keyset page for storage maintenance; no entity loading
+    @Query("select f.id as id, f.path as path, f.blobKey as blobKey, f.checksum as checksum, " +
+            "f.codec as codec, f.verifiedAt as verifiedAt " +
+            "from StoredFile f where f.id > :after order by f.id")
+    List<StorageEntry> findStorageEntriesAfter(@Param("after") long after, Pageable pageable);
+
+    // keyset page of referenced blobs in key order, for the disk/table reconciliation
+    @Query("select f.blobKey as blobKey, min(f.path) as path from StoredFile f " +
+            "where f.blobKey > :after group by f.blobKey order by f.blobKey")
+    List<BlobRefEntry> findBlobRefsAfter(@Param("after") String after, Pageable pageable);
+
+    @Query("select distinct f.blobKey from StoredFile f where f.blobKey in :blobKeys")
+    List<String> findReferencedBlobKeys(@Param("blobKeys") Collection<String> blobKeys);
+
+    // rows stored under their own name before blobs existed, in path order for a merge-join with the directory
+    @Query("select f.id as id, f.path as path from StoredFile f where f.blobKey is null " +
+            "and (f.path > :afterPath or (f.path = :afterPath and f.id > :afterId)) order by f.path, f.id")
+    List<LegacyEntry> findLegacyEntriesAfter(@Param("afterPath") String afterPath, @Param("afterId") long afterId,
+                                             Pageable pageable);
+
+    /** Points every row sharing a blob at its (moved) body. */
+    @Modifying
+    @Transactional
+    @Query("update StoredFile f set f.path = :path where f.blobKey = :blobKey")
+    int updatePathByBlobKey(@Param("blobKey") String blobKey, @Param("path") String path);
+
+    /** Moves a pre-blob row into the blob store, unless its path changed meanwhile. Returns 1 on success. */
+    @Modifying
+    @Transactional
+    @Query("update StoredFile f set f.path = :path, f.blobKey = :blobKey, f.checksum = :blobKey, f.size = :size, " +
+            "f.codec = :codec, f.storedSize = :storedSize " +
+            "where f.id = :id and f.path = :oldPath and f.blobKey is null")
+    int assignBlob(@Param("id") Long id, @Param("oldPath") String oldPath, @Param("path") String path,
+                   @Param("blobKey") String blobKey, @Param("size") long size,
+                   @Param("codec") StorageCodec codec, @Param("storedSize") long storedSize);
+
+    /** Records an integrity check for every row sharing a blob. */
+    @Modifying
+    @Transactional
+    @Query("update StoredFile f set f.integrity = :integrity, f.verifiedAt = :at where f.blobKey = :blobKey")
+    int markIntegrityByBlobKey(@Param("blobKey") String blobKey, @Param("integrity") StorageIntegrity integrity,
+                               @Param("at") Instant at);
+
+    /** Records an integrity check for a pre-blob row. */
+    @Modifying
+    @Transactional
+    @Query("update StoredFile f set f.integrity = :integrity, f.verifiedAt = :at where f.id = :id")
+    int markIntegrity(@Param("id") Long id, @Param("integrity") StorageIntegrity integrity, @Param("at") Instant at);
+
+    List<StoredFile> findByIntegrityInOrderById(Collection<StorageIntegrity> integrity);
+
+    long countByIntegrityIn(Collection<StorageIntegrity> integrity);
+
+    /** Oldest row per checksum, for duplicate detection on upload. */
+    @Query("select f.checksum as checksum, min(f.id) as id from StoredFile f " +
+            "where f.checksum in :checksums group by f.checksum")
+    List<ChecksumEntry> findFirstIdsByChecksumIn(@Param("checksums") Collection<String> checksums);
+
+    interface StorageEntry {
+        Long getId();
+        String getPath();
+        String getBlobKey();
+        String getChecksum();
+        StorageCodec getCodec();
+        Instant getVerifiedAt();
+    }
+
+    interface BlobRefEntry {
+        String getBlobKey();
+        String getPath();
+    }
+
+    interface LegacyEntry {
+        Long getId();
+        String getPath();
+    }
+
+    interface BasenameEntry {
+        Long getId();
+        String getBasename();
+    }
+
+    interface ChecksumEntry {
+        String getChecksum();
+        Long getId();
+    }
 }
@@ -0,0 +1,24 @@
+package de.flexis.mycontracts.repository;
+
+import de.flexis.mycontracts.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    /** Records an appended chunk, if nobody else appended from the same offset first. Returns 1 on success. */
+    @Modifying
+    @Transactional
+    @Query("update UploadSession u set u.received = :to, u.updatedAt = :now where u.id = :id and u.received = :from")
+    int advance(@Param("id") String id, @Param("from") long from, @Param("to") long to, @Param("now") Instant now);
+
+    List<UploadSession> findByUpdatedAtBefore(Instant cutoff);
+}
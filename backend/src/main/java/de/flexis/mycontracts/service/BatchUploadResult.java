@@ -0,0 +1,19 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.BatchUploadOutcome;
+
+/**
+ * Outcome for one part of a batch upload, in the order the parts were sent.
+ *
+ * @param file        the new row; null if skipped or rejected
+ * @param duplicateOf oldest file with the same content, already stored or earlier in the batch
+ * @param error       reason for {@link BatchUploadOutcome#REJECTED}
+ */
+public record BatchUploadResult(
+        String filename,
+        BatchUploadOutcome outcome,
+        StoredFile file,
+        Long duplicateOf,
+        String error
+) {}
@@ -0,0 +1,211 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.BatchUploadOutcome;
+import de.flexis.mycontracts.repository.StoredFileRepository;
+import de.flexis.mycontracts.repository.StoredFileRepository.ChecksumEntry;
+import de.flexis.mycontracts.util.HashingIO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores many uploaded parts in one go: parts are copied and hashed in parallel on
+ * {@code upload.batch-threads} workers, checked for content that is already stored, moved into the
+ * {@link BlobStore} (compressed like single uploads) and then saved with a single {@code saveAll}, instead of one transaction per file.
+ */
+@Service
+public class BatchUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchUploadService.class);
+    // keeps the IN list of the duplicate lookup well below SQLite's parameter limit
+    private static final int LOOKUP_CHUNK = 500;
+
+    private final FileStorageService fileStorageService;
+    private final StoredFileRepository storedFileRepository;
+    private final BlobStore blobStore;
+    private final ThreadPoolExecutor workers;
+
+    private record Hashed(Path tmp, String sha256, long size) {}
+
+    public BatchUploadService(FileStorageService fileStorageService,
+                              StoredFileRepository storedFileRepository,
+                              BlobStore blobStore,
+                              @Value("${upload.batch-threads:4}") int threads) {
+        this.fileStorageService = fileStorageService;
+        this.storedFileRepository = storedFileRepository;
+        this.blobStore = blobStore;
+        int n = Math.max(1, threads);
+        AtomicInteger threadNo = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(n, n, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "batch-upload-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Stores all parts and reports one result per part, in order. Invalid parts are rejected
+     * individually; only a failure to save the rows fails the whole batch.
+     *
+     * @param skipDuplicates do not create rows for content that is already stored (or earlier in the batch)
+     */
+    public List<BatchUploadResult> storeAll(List<MultipartFile> parts, boolean skipDuplicates) throws IOException {
+        int count = parts.size();
+        String[] names = new String[count];
+        String[] errors = new String[count];
+        List<Future<Hashed>> pending = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            MultipartFile part = parts.get(i);
+            names[i] = part.getOriginalFilename();
+            try {
+                String name = FileStorageService.sanitizeFilename(part.getOriginalFilename());
+                if (part.getSize() <= 0) throw new IllegalArgumentException("File is empty");
+                if (part.getSize() > FileStorageService.MAX_SIZE_BYTES) throw new IllegalArgumentException("File too large");
+                names[i] = name;
+                pending.add(workers.submit(() -> copyAndHash(part)));
+            } catch (IllegalArgumentException e) {
+                errors[i] = e.getMessage();
+                pending.add(null);
+            }
+        }
+
+        Hashed[] hashed = new Hashed[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                if (pending.get(i) == null) continue;
+                try {
+                    hashed[i] = pending.get(i).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    errors[i] = cause instanceof IllegalArgumentException ? cause.getMessage() : "Upload failed";
+                    if (!(cause instanceof IllegalArgumentException)) log.warn("Cannot store batch part {}", names[i], cause);
+                }
+            }
+            return persist(parts, names, hashed, errors, skipDuplicates);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.stream().filter(f -> f != null).forEach(f -> f.cancel(true));
+            throw new IOException("Batch upload interrupted", e);
+        } finally {
+            // temp files of parts that were skipped, rejected or not stored because of an error
+            for (Hashed h : hashed) {
+                if (h != null) Files.deleteIfExists(h.tmp());
+            }
+        }
+    }
+
+    private Hashed copyAndHash(MultipartFile part) throws IOException {
+        Path tmp = blobStore.newTempPath();
+        try (InputStream in = part.getInputStream()) {
+            HashingIO.HashedCopy copy = HashingIO.copyAndHash(in, tmp, FileStorageService.MAX_SIZE_BYTES);
+            if (copy.size() == 0) {
+                Files.deleteIfExists(tmp);
+                throw new IllegalArgumentException("File is empty");
+            }
+            return new Hashed(tmp, copy.sha256(), copy.size());
+        }
+    }
+
+    private List<BatchUploadResult> persist(List<MultipartFile> parts, String[] names, Hashed[] hashed,
+                                            String[] errors, boolean skipDuplicates) throws IOException {
+        int count = parts.size();
+        Map<String, Long> existing = existingIds(hashed);
+        // first part in this batch per checksum
+        Map<String, Integer> firstInBatch = new HashMap<>();
+        StoredFile[] rows = new StoredFile[count];
+        Path[] blobs = new Path[count];
+        List<StoredFile> toSave = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            Hashed h = hashed[i];
+            if (h == null) continue;
+            boolean duplicate = existing.containsKey(h.sha256()) || firstInBatch.containsKey(h.sha256());
+            if (duplicate && skipDuplicates) continue;
+            BlobStore.Stored stored;
+            try {
+                stored = fileStorageService.putBlob(h.tmp(), h.sha256(), h.size(), parts.get(i).getContentType());
+                blobs[i] = stored.path();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Cannot store batch part {}", names[i], e);
+                errors[i] = "Upload failed";
+                continue;
+            }
+            firstInBatch.putIfAbsent(h.sha256(), i);
+            StoredFile sf = new StoredFile(names[i], blobs[i].toString());
+            sf.setBlobKey(h.sha256());
+            sf.setMime(parts.get(i).getContentType());
+            sf.setSize(h.size());
+            sf.setChecksum(h.sha256());
+            sf.setCodec(stored.codec());
+            sf.setStoredSize(stored.storedSize());
+            rows[i] = sf;
+            toSave.add(sf);
+        }
+
+        try {
+            // saveAll keeps the instances it was given, so rows[] now carries the ids
+            fileStorageService.registerAll(toSave);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < count; i++) {
+                if (blobs[i] != null) blobStore.release(hashed[i].sha256(), blobs[i]);
+            }
+            throw e;
+        }
+
+        List<BatchUploadResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Hashed h = hashed[i];
+            if (h == null || (rows[i] == null && errors[i] != null)) {
+                results.add(new BatchUploadResult(names[i], BatchUploadOutcome.REJECTED, null, null, errors[i]));
+                continue;
+            }
+            Long duplicateOf = existing.get(h.sha256());
+            Integer first = firstInBatch.get(h.sha256());
+            if (duplicateOf == null && first != null && first != i) duplicateOf = rows[first].getId();
+            BatchUploadOutcome outcome = rows[i] == null ? BatchUploadOutcome.SKIPPED
+                    : duplicateOf != null ? BatchUploadOutcome.DUPLICATE : BatchUploadOutcome.STORED;
+            results.add(new BatchUploadResult(names[i], outcome, rows[i], duplicateOf, null));
+        }
+        return results;
+    }
+
+    private Map<String, Long> existingIds(Hashed[] hashed) {
+        List<String> checksums = new ArrayList<>();
+        for (Hashed h : hashed) {
+            if (h != null) checksums.add(h.sha256());
+        }
+        Map<String, Long> ids = new HashMap<>();
+        for (int from = 0; from < checksums.size(); from += LOOKUP_CHUNK) {
+            List<String> chunk = checksums.subList(from, Math.min(checksums.size(), from + LOOKUP_CHUNK));
+            for (ChecksumEntry e : storedFileRepository.findFirstIdsByChecksumIn(chunk)) {
+                ids.put(e.getChecksum(), e.getId());
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,293 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredBlob;
+import de.flexis.mycontracts.model.enums.StorageCodec;
+import de.flexis.mycontracts.repository.StoredBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Content-addressed storage for uploaded documents under {@code FILE_STORAGE_PATH}.
+ * <p>
+ * Bodies live at {@code blobs/ab/cd/<sha256>} and are shared by every {@code StoredFile} with the
+ * same content; a {@link StoredBlob} row counts the references. The number of prefix directories
+ * and their name length are configurable ({@code storage.shard-depth}, {@code storage.shard-width});
+ * {@link StorageLayoutMigration} moves existing files after a change. Writers first fill a temp file in
+ * {@code .tmp} (same volume, so moving it into the tree is an atomic rename) and then hand it to
+ * {@link #store}. A duplicate upload only bumps the count and drops the temp file. A body may be
+ * stored compressed ({@link StorageCompression}); the key is still the SHA-256 of the original bytes.
+ */
+@Service
+public class BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobStore.class);
+    static final String BLOB_DIR = "blobs";
+    static final String TMP_DIR = ".tmp";
+
+    private final Path root;
+    private final Path tmpDir;
+    private final int shardDepth;
+    private final int shardWidth;
+    private final StoredBlobRepository blobRepository;
+    // serializes store/release per key, so a blob is never deleted while it gains a reference
+    private final ReentrantLock[] locks = new ReentrantLock[64];
+
+    public BlobStore(@Value("${FILE_STORAGE_PATH:${user.dir}/data/files}") String storagePath,
+                     @Value("${storage.shard-depth:2}") int shardDepth,
+                     @Value("${storage.shard-width:2}") int shardWidth,
+                     StoredBlobRepository blobRepository) throws IOException {
+        if (shardDepth < 0 || shardWidth < 1 || shardDepth * shardWidth > 8) {
+            throw new IllegalArgumentException("storage.shard-depth * storage.shard-width must be between 0 and 8");
+        }
+        this.shardDepth = shardDepth;
+        this.shardWidth = shardWidth;
+        Path storage = Path.of(storagePath).toAbsolutePath().normalize();
+        this.root = Files.createDirectories(storage.resolve(BLOB_DIR));
+        this.tmpDir = Files.createDirectories(storage.resolve(TMP_DIR));
+        this.blobRepository = blobRepository;
+        for (int i = 0; i < locks.length; i++) locks[i] = new ReentrantLock();
+        removeStaleTempFiles();
+    }
+
+    /** Unused temp path on the storage volume; fill it, then pass it to {@link #store} or delete it. */
+    public Path newTempPath() {
+        return tmpDir.resolve("upload-" + UUID.randomUUID() + ".part");
+    }
+
+    public Path pathFor(String sha256) {
+        if (sha256 == null || sha256.length() < shardDepth * shardWidth + 1 || !sha256.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+            throw new IllegalArgumentException("Invalid blob key");
+        }
+        Path dir = root;
+        for (int i = 0; i < shardDepth; i++) {
+            dir = dir.resolve(sha256.substring(i * shardWidth, (i + 1) * shardWidth));
+        }
+        return dir.resolve(sha256);
+    }
+
+    /** Short description of the directory layout, e.g. {@code 2x2}; recorded by the layout migration. */
+    public String layout() {
+        return shardDepth + "x" + shardWidth;
+    }
+
+    /** Where a blob ended up and how its body is encoded; an existing blob keeps its encoding. */
+    public record Stored(Path path, StorageCodec codec, long storedSize) {}
+
+    /** {@link #store(Path, String, long, StorageCodec, long)} for an unencoded body. */
+    public Stored store(Path tmp, String sha256, long size) throws IOException {
+        return store(tmp, sha256, size, StorageCodec.NONE, size);
+    }
+
+    /**
+     * Adds a reference to the blob {@code sha256} (checksum of the decoded content), moving
+     * {@code tmp} into place if the content is new. {@code tmp} is consumed on success; on failure
+     * it is left to the caller. If the blob exists, the result describes the existing body, which
+     * may be encoded differently than {@code tmp}.
+     */
+    public Stored store(Path tmp, String sha256, long size, StorageCodec codec, long storedSize) throws IOException {
+        Path target = pathFor(sha256);
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            if (blobRepository.incrementRef(sha256) > 0) {
+                // known content: nothing to write, unless the body went missing
+                if (Files.exists(target)) {
+                    Files.deleteIfExists(tmp);
+                    return existing(sha256, target);
+                }
+                try {
+                    moveIntoPlace(tmp, target);
+                    blobRepository.updateEncoding(sha256, codec, storedSize);
+                } catch (IOException | RuntimeException e) {
+                    blobRepository.decrementRef(sha256);
+                    throw e;
+                }
+                log.warn("Restored missing body of blob {}", sha256);
+                return new Stored(target, codec, storedSize);
+            }
+            moveIntoPlace(tmp, target);
+            try {
+                blobRepository.saveAndFlush(new StoredBlob(sha256, size, codec, storedSize));
+            } catch (DataIntegrityViolationException e) {
+                // another instance inserted the same blob first
+                blobRepository.incrementRef(sha256);
+                return existing(sha256, target);
+            }
+            return new Stored(target, codec, storedSize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** True if a blob with this checksum is registered (its body may still be missing). */
+    public boolean contains(String sha256) {
+        return blobRepository.existsById(sha256);
+    }
+
+    /**
+     * Drops one reference; the body is deleted with the last one. {@code storedPath} is where the
+     * referencing row found it, which differs from {@link #pathFor} until the layout migration ran.
+     */
+    public void release(String sha256, Path storedPath) {
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            blobRepository.decrementRef(sha256);
+            if (blobRepository.deleteIfUnreferenced(sha256) > 0) {
+                Files.deleteIfExists(pathFor(sha256));
+                if (storedPath != null && isBlobPath(storedPath)) Files.deleteIfExists(storedPath);
+            }
+        } catch (IOException e) {
+            log.warn("Cannot delete unreferenced blob {}: {}", sha256, e.toString());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves a blob stored under an older layout to {@link #pathFor}. Returns the new path; if the
+     * body is already there (re-uploaded since), the old copy is just removed.
+     */
+    public Path relocate(String sha256, Path current) throws IOException {
+        Path target = pathFor(sha256);
+        if (current.equals(target)) return target;
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            if (Files.exists(target)) {
+                Files.deleteIfExists(current);
+            } else if (Files.exists(current)) {
+                moveIntoPlace(current, target);
+            } else {
+                throw new NoSuchFileException(current.toString());
+            }
+            return target;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes a body found on disk that no {@code files} row references. Does nothing if the blob
+     * gained a reference meanwhile (or its count says it still has one). Returns true if deleted.
+     */
+    public boolean deleteOrphan(String sha256) throws IOException {
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            StoredBlob blob = blobRepository.findById(sha256).orElse(null);
+            if (blob != null && blob.getRefCount() > 0) return false;
+            if (blob != null) blobRepository.deleteIfUnreferenced(sha256);
+            return Files.deleteIfExists(pathFor(sha256));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Receives the bodies of {@link #walk} in ascending key order. */
+    public interface BlobVisitor {
+        /** Return false to stop the walk. */
+        boolean visitBlob(String sha256, Path path) throws IOException;
+
+        /** Anything that does not belong in the current layout: other layouts, foreign files. */
+        void visitStray(Path path) throws IOException;
+    }
+
+    /**
+     * Walks the bodies of the current layout sorted by key. The shard directories are key prefixes,
+     * so listing each directory sorted yields all keys in order while only the listings along the
+     * current path are held in memory.
+     */
+    public void walk(BlobVisitor visitor) throws IOException {
+        walk(root, 0, "", visitor);
+    }
+
+    private boolean walk(Path dir, int level, String prefix, BlobVisitor visitor) throws IOException {
+        List<Path> entries;
+        try (var listing = Files.list(dir)) {
+            entries = listing.sorted(Comparator.comparing(p -> p.getFileName().toString())).toList();
+        }
+        for (Path entry : entries) {
+            String name = entry.getFileName().toString();
+            if (level < shardDepth) {
+                if (name.length() == shardWidth && isLowerHex(name) && Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    if (!walk(entry, level + 1, prefix + name, visitor)) return false;
+                } else {
+                    visitor.visitStray(entry);
+                }
+            } else if (name.length() == 64 && name.startsWith(prefix) && isLowerHex(name)
+                    && Files.isRegularFile(entry, LinkOption.NOFOLLOW_LINKS)) {
+                if (!visitor.visitBlob(name, entry)) return false;
+            } else {
+                visitor.visitStray(entry);
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLowerHex(String s) {
+        return s.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'));
+    }
+
+    /** Directory holding files stored under their own name before blobs existed. */
+    Path storageRoot() {
+        return root.getParent();
+    }
+
+    boolean isBlobPath(Path path) {
+        return path.toAbsolutePath().normalize().startsWith(root);
+    }
+
+    private Stored existing(String sha256, Path target) throws IOException {
+        StoredBlob blob = blobRepository.findById(sha256).orElse(null);
+        if (blob == null || blob.getStoredSize() == null) return new Stored(target, StorageCodec.NONE, Files.size(target));
+        return new Stored(target, blob.getCodec(), blob.getStoredSize());
+    }
+
+    private ReentrantLock lockFor(String sha256) {
+        return locks[Math.floorMod(sha256.hashCode(), locks.length)];
+    }
+
+    private static void moveIntoPlace(Path tmp, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // same content is already there
+            Files.deleteIfExists(tmp);
+        } catch (AtomicMoveNotSupportedException e) {
+            if (Files.exists(target)) Files.deleteIfExists(tmp);
+            else Files.move(tmp, target);
+        }
+    }
+
+    // parts left behind by a crash; an hour is far longer than any 10 MB upload takes
+    void removeStaleTempFiles() {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(1));
+        try (var parts = Files.list(tmpDir)) {
+            for (Path part : parts.toList()) {
+                if (Files.getLastModifiedTime(part).toInstant().isBefore(cutoff)) Files.deleteIfExists(part);
+            }
+        } catch (IOException e) {
+            log.warn("Cannot clean up stale uploads in {}", tmpDir, e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.ExtractedField;
+import de.flexis.mycontracts.model.OcrFile;
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.FieldSource;
+import de.flexis.mycontracts.model.enums.OcrStatus;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/** {@code manifest.json} of a contract export: the contract, its extracted fields and one entry per file. */
+public record ContractExportManifest(
+        Long contractId,
+        String title,
+        Instant contractCreatedAt,
+        Instant exportedAt,
+        List<Field> fields,
+        List<File> files
+) {
+    public record Field(String name, String value, Double confidence, FieldSource source, boolean stale) {
+        static Field from(ExtractedField f) {
+            return new Field(f.getFieldName(), f.getFieldValue(), f.getConfidence(), f.getSource(), f.isStale());
+        }
+    }
+
+    /**
+     * @param entry   path inside the archive, null if the file could not be read
+     * @param missing true if the body was gone at export time and the archive has no entry for it
+     */
+    public record File(
+            Long id,
+            String filename,
+            String entry,
+            boolean missing,
+            String mime,
+            Long size,
+            String sha256,
+            Instant createdAt,
+            Instant dueDate,
+            String note,
+            List<String> markers,
+            Ocr ocr
+    ) {
+        static File from(StoredFile f, String entry, OcrFile ocr) {
+            List<String> markers = f.getMarkersJson() != null && !f.getMarkersJson().isBlank()
+                    ? Arrays.asList(f.getMarkersJson().split(","))
+                    : List.of();
+            return new File(f.getId(), f.getFilename(), entry, entry == null, f.getMime(), f.getSize(),
+                    f.getChecksum(), f.getCreatedAt(), f.getDueDate(), f.getNote(), markers,
+                    ocr == null ? null : Ocr.from(ocr));
+        }
+    }
+
+    public record Ocr(OcrStatus status, Instant processedAt, Integer pageCount, Long wordCount, Double meanConfidence) {
+        static Ocr from(OcrFile o) {
+            return new Ocr(o.getStatus(), o.getProcessedAt(), o.getPageCount(), o.getWordCount(), o.getMeanConfidence());
+        }
+    }
+}
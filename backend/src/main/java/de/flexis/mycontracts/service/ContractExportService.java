@@ -0,0 +1,152 @@
+package de.flexis.mycontracts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.flexis.mycontracts.model.Contract;
+import de.flexis.mycontracts.model.OcrFile;
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.repository.ExtractedFieldRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a contract dossier as a ZIP: {@code manifest.json} ({@link ContractExportManifest}) followed by
+ * the linked files under {@code files/}.
+ * <p>
+ * The archive is streamed: each body is read through {@link FileStorageService#openContent} and
+ * deflated straight into the given stream, so neither memory nor disk holds more than a buffer of it.
+ * Content that is compressed already (JPEG, PNG, office files, ...; see {@link StorageCompression}) is
+ * written at level 0, deflating it again would only cost CPU.
+ */
+@Service
+public class ContractExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContractExportService.class);
+    private static final String MANIFEST = "manifest.json";
+    private static final String FILES_DIR = "files/";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // path separators and control characters, replaced in archive and entry names
+    private static final Pattern UNSAFE_CHARS = Pattern.compile("[\\\\/:\\p{Cntrl}]");
+
+    private final ContractService contractService;
+    private final FileStorageService fileStorageService;
+    private final ExtractedFieldRepository extractedFieldRepository;
+    private final ObjectMapper objectMapper;
+
+    public ContractExportService(ContractService contractService,
+                                 FileStorageService fileStorageService,
+                                 ExtractedFieldRepository extractedFieldRepository,
+                                 ObjectMapper objectMapper) {
+        this.contractService = contractService;
+        this.fileStorageService = fileStorageService;
+        this.extractedFieldRepository = extractedFieldRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes the archive of {@code contract} to {@code out} and finishes it; {@code out} stays open.
+     * Files whose body is gone are listed in the manifest as {@code missing} and left out.
+     */
+    public void write(Contract contract, OutputStream out) throws IOException {
+        List<StoredFile> files = contractService.getFilesForContract(contract.getId());
+        Map<Long, OcrFile> ocrByFile = fileStorageService.findOcrForFileIds(files.stream().map(StoredFile::getId).toList());
+
+        // names are fixed before the first byte so the manifest can lead the archive
+        Map<StoredFile, String> entries = new LinkedHashMap<>();
+        List<ContractExportManifest.File> manifestFiles = new ArrayList<>(files.size());
+        Set<String> used = new HashSet<>();
+        for (StoredFile file : files) {
+            String entry = file.getPath() != null && Files.isReadable(Path.of(file.getPath()))
+                    ? uniqueEntryName(file, used)
+                    : null;
+            if (entry != null) entries.put(file, entry);
+            manifestFiles.add(ContractExportManifest.File.from(file, entry, ocrByFile.get(file.getId())));
+        }
+        ContractExportManifest manifest = new ContractExportManifest(contract.getId(), contract.getTitle(),
+                contract.getCreatedAt(), Instant.now(),
+                extractedFieldRepository.findByContractId(contract.getId()).stream()
+                        .map(ContractExportManifest.Field::from).toList(),
+                manifestFiles);
+
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(new ZipEntry(MANIFEST));
+        zip.write(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest));
+        zip.closeEntry();
+
+        for (Map.Entry<StoredFile, String> e : entries.entrySet()) {
+            writeEntry(zip, e.getKey(), e.getValue());
+        }
+        zip.finish();
+        zip.flush();
+        log.info("Exported contract {}: {} files, {} missing", contract.getId(), entries.size(),
+                files.size() - entries.size());
+    }
+
+    private void writeEntry(ZipOutputStream zip, StoredFile file, String name) throws IOException {
+        try (InputStream in = new BufferedInputStream(fileStorageService.openContent(file), BUFFER_SIZE)) {
+            in.mark(StorageCompression.HEAD_SIZE);
+            byte[] head = in.readNBytes(StorageCompression.HEAD_SIZE);
+            in.reset();
+            zip.setLevel(StorageCompression.isCompressedFormat(file.getMime(), head, head.length)
+                    ? Deflater.NO_COMPRESSION
+                    : Deflater.DEFAULT_COMPRESSION);
+            ZipEntry entry = new ZipEntry(name);
+            if (file.getCreatedAt() != null) entry.setLastModifiedTime(FileTime.from(file.getCreatedAt()));
+            zip.putNextEntry(entry);
+            in.transferTo(zip);
+            zip.closeEntry();
+        }
+    }
+
+    /**
+     * Download name of the archive: the title made safe by {@link FileStorageService#sanitizeFilename},
+     * or {@code contract-<id>.zip} if the contract has no usable title.
+     */
+    public static String archiveFilename(Contract contract) {
+        String title = contract.getTitle() == null ? "" : UNSAFE_CHARS.matcher(contract.getTitle().strip()).replaceAll("_");
+        if (!title.isEmpty() && !title.chars().allMatch(c -> c == '.')) {
+            try {
+                return FileStorageService.sanitizeFilename(title) + ".zip";
+            } catch (IllegalArgumentException e) {
+                // ".." in the title
+            }
+        }
+        return "contract-" + contract.getId() + ".zip";
+    }
+
+    /** {@code files/<name>}, made safe as a path and unique within the archive (case-insensitively). */
+    static String uniqueEntryName(StoredFile file, Set<String> used) {
+        String name = file.getFilename() == null ? "" : UNSAFE_CHARS.matcher(file.getFilename()).replaceAll("_").strip();
+        if (name.isEmpty() || name.chars().allMatch(c -> c == '.')) name = "file-" + file.getId();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String ext = dot > 0 ? name.substring(dot) : "";
+        String candidate = name;
+        for (int n = 2; !used.add(candidate.toLowerCase(Locale.ROOT)); n++) {
+            candidate = base + " (" + n + ")" + ext;
+        }
+        return FILES_DIR + candidate;
+    }
+}
@@ -4,12 +4,15 @@ import de.flexis.mycontracts.model.StoredFile;
 import de.flexis.mycontracts.repository.StoredFileRepository;
 import de.flexis.mycontracts.repository.OcrFileRepository;
 import de.flexis.mycontracts.model.OcrFile;
+import de.flexis.mycontracts.model.enums.StorageCodec;
+import de.flexis.mycontracts.ocr.OcrJsonParser;
+import de.flexis.mycontracts.ocr.OcrTextExtractor;
+import de.flexis.mycontracts.util.HashingIO;
 import java.util.Optional;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.time.Instant;
 import java.util.List;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -17,32 +20,37 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.HexFormat;
 
 @Service
 public class FileStorageService {
 
-    private static final long MAX_SIZE_BYTES = 10 * 1024 * 1024; // 10MB hard limit
+    static final long MAX_SIZE_BYTES = 10 * 1024 * 1024; // 10MB hard limit
 
-    private final Path storagePath;
     private final StoredFileRepository storedFileRepository;
     private final OcrFileRepository ocrFileRepository;
+    private final StoredFileIndex storedFileIndex;
+    private final OcrPayloadStore ocrPayloadStore;
+    private final BlobStore blobStore;
+    private final StorageCompression compression;
+    private final PreviewService previewService;
 
-    public FileStorageService(@Value("${FILE_STORAGE_PATH:${user.dir}/data/files}") String storagePath,
-                              StoredFileRepository storedFileRepository,
-                              OcrFileRepository ocrFileRepository) throws IOException {
-        this.storagePath = Path.of(storagePath);
+    public FileStorageService(StoredFileRepository storedFileRepository,
+                              OcrFileRepository ocrFileRepository,
+                              StoredFileIndex storedFileIndex,
+                              OcrPayloadStore ocrPayloadStore,
+                              BlobStore blobStore,
+                              StorageCompression compression,
+                              PreviewService previewService) {
         this.storedFileRepository = storedFileRepository;
         this.ocrFileRepository = ocrFileRepository;
-        Files.createDirectories(this.storagePath);
+        this.storedFileIndex = storedFileIndex;
+        this.ocrPayloadStore = ocrPayloadStore;
+        this.blobStore = blobStore;
+        this.compression = compression;
+        this.previewService = previewService;
     }
 
     public StoredFile store(MultipartFile file) throws IOException {
-        String filename = sanitizeFilename(file.getOriginalFilename());
-
         long size = file.getSize();
         if (size <= 0) {
             throw new IllegalArgumentException("File is empty");
@@ -50,22 +58,93 @@ public class FileStorageService {
         if (size > MAX_SIZE_BYTES) {
             throw new IllegalArgumentException("File too large");
         }
+        try (InputStream in = file.getInputStream()) {
+            return store(in, file.getOriginalFilename(), file.getContentType());
+        }
+    }
+
+    /**
+     * Stores an upload in a single pass: the stream is written to a temp file in the storage volume
+     * while SHA-256 and size are computed, then handed to {@link BlobStore}. The size cap is enforced
+     * while reading, so an oversized body is rejected after {@link #MAX_SIZE_BYTES} bytes. Content that
+     * is already stored is not written again, and equal file names never overwrite each other.
+     *
+     * @throws IllegalArgumentException if the stream is empty, too large or the name is invalid
+     */
+    public StoredFile store(InputStream in, String originalFilename, String contentType) throws IOException {
+        String filename = sanitizeFilename(originalFilename);
 
-        Path dest = storagePath.resolve(filename).normalize();
-        if (!dest.startsWith(storagePath)) {
-            throw new IllegalArgumentException("Invalid file path");
+        Path tmp = blobStore.newTempPath();
+        try {
+            HashingIO.HashedCopy copy = HashingIO.copyAndHash(in, tmp, MAX_SIZE_BYTES);
+            if (copy.size() == 0) {
+                throw new IllegalArgumentException("File is empty");
+            }
+            return storeStaged(tmp, copy, filename, contentType);
+        } finally {
+            Files.deleteIfExists(tmp);
         }
+    }
 
-        // copy stream to destination atomically
-        try (InputStream in = file.getInputStream()) {
-            Files.copy(in, dest, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Stores a fully written file on the storage volume whose hash is already known (resumable
+     * uploads). {@code staged} is consumed on success.
+     */
+    StoredFile storeStaged(Path staged, HashingIO.HashedCopy content, String originalFilename, String contentType) throws IOException {
+        String filename = sanitizeFilename(originalFilename);
+        BlobStore.Stored blob = putBlob(staged, content.sha256(), content.size(), contentType);
+
+        StoredFile sf = new StoredFile(filename, blob.path().toString());
+        sf.setBlobKey(content.sha256());
+        sf.setMime(contentType);
+        sf.setSize(content.size());
+        sf.setChecksum(content.sha256());
+        sf.setCodec(blob.codec());
+        sf.setStoredSize(blob.storedSize());
+        StoredFile saved;
+        try {
+            saved = storedFileRepository.save(sf);
+        } catch (RuntimeException e) {
+            blobStore.release(content.sha256(), blob.path());
+            throw e;
         }
+        storedFileIndex.register(saved);
+        previewService.generateAsync(saved);
+        return saved;
+    }
+
+    /**
+     * Hands a staged upload to the {@link BlobStore}, deflated first if compression is enabled and
+     * pays off. Known content is not compressed again. {@code staged} is consumed on success.
+     */
+    BlobStore.Stored putBlob(Path staged, String sha256, long size, String contentType) throws IOException {
+        if (!blobStore.contains(sha256) && compression.shouldTry(staged, size, contentType)) {
+            Path packed = blobStore.newTempPath();
+            try {
+                long packedSize = compression.deflate(staged, size, packed);
+                if (packedSize >= 0) {
+                    BlobStore.Stored stored = blobStore.store(packed, sha256, size, StorageCodec.DEFLATE, packedSize);
+                    Files.deleteIfExists(staged);
+                    return stored;
+                }
+            } finally {
+                Files.deleteIfExists(packed);
+            }
+        }
+        return blobStore.store(staged, sha256, size);
+    }
 
-        StoredFile sf = new StoredFile(filename, dest.toAbsolutePath().toString());
-        sf.setMime(file.getContentType());
-        sf.setSize(file.getSize());
-        sf.setChecksum(checksum(dest));
-        return storedFileRepository.save(sf);
+    /** Opens the original content of a stored file, decompressing it if needed. The caller closes the stream. */
+    public InputStream openContent(StoredFile file) throws IOException {
+        return StorageCompression.open(Path.of(file.getPath()), file.getCodec());
+    }
+
+    /** Saves metadata for files already placed in storage, in one batch, indexes them for OCR matching and queues their previews. */
+    public List<StoredFile> registerAll(List<StoredFile> files) {
+        List<StoredFile> saved = storedFileRepository.saveAll(files);
+        saved.forEach(storedFileIndex::register);
+        saved.forEach(previewService::generateAsync);
+        return saved;
     }
 
     public Path load(Long id) {
@@ -83,6 +162,39 @@ public class FileStorageService {
         return ocrFileRepository.findByMatchedFileId(fileId);
     }
 
+    /** Loads the raw OCR JSON from the payload store; only call this when the content is needed. */
+    public Optional<String> loadOcrJson(OcrFile ocrFile) {
+        if (ocrFile == null || ocrFile.getPayloadRef() == null) return Optional.empty();
+        try {
+            return ocrPayloadStore.loadString(ocrFile.getPayloadRef());
+        } catch (IOException e) {
+            org.slf4j.LoggerFactory.getLogger(FileStorageService.class)
+                    .warn("Cannot read OCR payload {} for {}", ocrFile.getPayloadRef(), ocrFile.getPath(), e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Loads the plain text of an OCR file. Rows ingested before text extraction existed are parsed
+     * from the stored payload on the fly.
+     */
+    public Optional<String> loadOcrText(OcrFile ocrFile) {
+        if (ocrFile == null) return Optional.empty();
+        try {
+            if (ocrFile.getTextRef() != null) return ocrPayloadStore.loadString(ocrFile.getTextRef());
+            if (ocrFile.getPayloadRef() == null || !ocrPayloadStore.exists(ocrFile.getPayloadRef())) return Optional.empty();
+            StringBuilder text = new StringBuilder();
+            try (InputStream in = ocrPayloadStore.open(ocrFile.getPayloadRef())) {
+                new OcrJsonParser().parse(in, new OcrTextExtractor(text));
+            }
+            return text.isEmpty() ? Optional.empty() : Optional.of(text.toString());
+        } catch (IOException e) {
+            org.slf4j.LoggerFactory.getLogger(FileStorageService.class)
+                    .warn("Cannot read OCR text for {}", ocrFile.getPath(), e);
+            return Optional.empty();
+        }
+    }
+
     public Map<Long, OcrFile> findOcrForFileIds(java.util.List<Long> ids) {
         if (ids.isEmpty()) return java.util.Collections.emptyMap();
         return ocrFileRepository.findByMatchedFileIdIn(ids).stream()
@@ -140,17 +252,24 @@ public class FileStorageService {
         StoredFile file = storedFileRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("File not found"));
         
-        // Delete file from filesystem
+        // Delete from database (cascade will handle related OCR files)
+        storedFileRepository.delete(file);
+        storedFileIndex.unregister(file);
+
+        if (file.getBlobKey() != null) {
+            // shared content: the body goes away with its last reference
+            blobStore.release(file.getBlobKey(), Path.of(file.getPath()));
+            return;
+        }
+        // Legacy file stored under its own name
         Path filePath = Path.of(file.getPath());
         try {
             Files.deleteIfExists(filePath);
         } catch (IOException e) {
-            // Continue with DB deletion even if file deletion fails
-            // This handles cases where the file was already deleted externally
+            // the row is gone already; the file is left for StorageReconciliation to report
+            org.slf4j.LoggerFactory.getLogger(FileStorageService.class)
+                    .warn("Cannot delete file {} of deleted row {}: {}", filePath, id, e.toString());
         }
-        
-        // Delete from database (cascade will handle related OCR files)
-        storedFileRepository.delete(file);
     }
 
     public List<StoredFile> bulkUpdateMarkers(List<Long> fileIds, List<String> markers) {
@@ -175,19 +294,7 @@ public class FileStorageService {
         return storedFileRepository.saveAll(files);
     }
 
-    private String checksum(Path file) throws IOException {
-        try (InputStream in = Files.newInputStream(file)) {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] buf = new byte[8192];
-            int r;
-            while ((r = in.read(buf)) > 0) md.update(buf, 0, r);
-            return HexFormat.of().formatHex(md.digest());
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    private String sanitizeFilename(String original) {
+    static String sanitizeFilename(String original) {
         String filename = original != null ? original.trim() : "file";
         if (filename.isEmpty()) filename = "file";
 
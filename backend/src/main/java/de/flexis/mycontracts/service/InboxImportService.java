@@ -0,0 +1,301 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.util.HashingIO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of original documents (PDFs, images) from a hot folder into file storage.
+ * <p>
+ * Files enter {@link BlobStore} without copying when possible: a hard link, and only across
+ * filesystems a streaming copy that hashes on the way. Metadata is saved through
+ * {@link FileStorageService} in batches, and an original is deleted from the inbox only after its
+ * batch is committed, so a crash in between leaves it there to be imported again. Files that cannot
+ * be imported are moved to {@code <inbox>/rejected}.
+ */
+@Service
+public class InboxImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(InboxImportService.class);
+    private static final String REJECTED_DIR = "rejected";
+    private static final Map<String, String> MIME_BY_EXTENSION = Map.of(
+            "pdf", "application/pdf",
+            "png", "image/png",
+            "jpg", "image/jpeg",
+            "jpeg", "image/jpeg",
+            "tif", "image/tiff",
+            "tiff", "image/tiff");
+
+    public enum Transfer { LINKED, COPIED }
+
+    /** Counts from one {@link #importOnce()} run. */
+    public record ImportReport(int imported, int linked, int copied, int rejected, long bytes) {
+        static ImportReport empty() {
+            return new ImportReport(0, 0, 0, 0, 0);
+        }
+    }
+
+    private final Path inboxDir;
+    private final Set<String> extensions;
+    private final int batchSize;
+    private final long minAgeMs;
+    private final FileStorageService fileStorageService;
+    private final BlobStore blobStore;
+    private final OcrRetryScheduler retryScheduler;
+    private final MeterRegistry registry;
+
+    public InboxImportService(@Value("${INBOX_DIR:}") String inboxDir,
+                              @Value("${inbox.extensions:pdf,png,jpg,jpeg,tif,tiff}") String extensions,
+                              @Value("${inbox.batch-size:200}") int batchSize,
+                              @Value("${inbox.min-age-ms:2000}") long minAgeMs,
+                              FileStorageService fileStorageService,
+                              BlobStore blobStore,
+                              OcrRetryScheduler retryScheduler,
+                              ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.inboxDir = inboxDir.isBlank() ? null : Path.of(inboxDir).toAbsolutePath().normalize();
+        this.extensions = Arrays.stream(extensions.split(","))
+                .map(e -> e.trim().toLowerCase(Locale.ROOT))
+                .filter(e -> !e.isEmpty())
+                .collect(Collectors.toSet());
+        this.batchSize = Math.max(1, batchSize);
+        this.minAgeMs = minAgeMs;
+        this.fileStorageService = fileStorageService;
+        this.blobStore = blobStore;
+        this.retryScheduler = retryScheduler;
+        this.registry = meterRegistryProvider.getIfAvailable(SimpleMeterRegistry::new);
+        if (this.inboxDir != null) {
+            try {
+                Files.createDirectories(this.inboxDir.resolve(REJECTED_DIR));
+            } catch (IOException e) {
+                log.warn("Cannot create inbox {}: {}", this.inboxDir, e.toString());
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return inboxDir != null && Files.isDirectory(inboxDir);
+    }
+
+    @Scheduled(fixedDelayString = "${inbox.scan-interval-ms:10000}")
+    public void scheduledImport() {
+        if (!isEnabled()) return;
+        try {
+            ImportReport report = importOnce();
+            if (report.imported() > 0 || report.rejected() > 0) {
+                log.info("Inbox import: {} imported ({} linked, {} copied), {} rejected",
+                        report.imported(), report.linked(), report.copied(), report.rejected());
+            }
+        } catch (Exception e) {
+            log.error("Inbox import failed", e);
+        }
+    }
+
+    /** Imports every settled document currently in the inbox. */
+    public synchronized ImportReport importOnce() throws IOException {
+        if (!isEnabled()) return ImportReport.empty();
+        long settledBefore = System.currentTimeMillis() - minAgeMs;
+        List<Imported> batch = new ArrayList<>(batchSize);
+        List<Imported> registered = new ArrayList<>();
+        int imported = 0, linked = 0, copied = 0, rejected = 0;
+        long bytes = 0;
+        try (DirectoryStream<Path> listing = Files.newDirectoryStream(inboxDir, this::isCandidate)) {
+            for (Path source : listing) {
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(source, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    continue; // removed while listing
+                }
+                // still being written by the scanner / copy job
+                if (attrs.lastModifiedTime().toMillis() > settledBefore) continue;
+
+                Imported file = importFile(source, attrs.size());
+                if (file == null) {
+                    rejected++;
+                    continue;
+                }
+                batch.add(file);
+                if (batch.size() >= batchSize) {
+                    rejected += flush(batch, registered);
+                }
+            }
+        }
+        rejected += flush(batch, registered);
+        for (Imported file : registered) {
+            imported++;
+            bytes += file.storedFile().getSize();
+            switch (file.transfer()) {
+                case LINKED -> linked++;
+                case COPIED -> copied++;
+            }
+        }
+        // sidecar OCR files for these documents may be waiting; let the retry worker look now
+        if (imported > 0) retryScheduler.schedule(Instant.now());
+        return new ImportReport(imported, linked, copied, rejected, bytes);
+    }
+
+    private boolean isCandidate(Path p) {
+        if (!Files.isRegularFile(p)) return false;
+        String ext = extensionOf(p.getFileName().toString());
+        return ext != null && extensions.contains(ext);
+    }
+
+    private Imported importFile(Path source, long size) {
+        String name = source.getFileName().toString();
+        try {
+            if (size <= 0) throw new IllegalArgumentException("File is empty");
+            if (size > FileStorageService.MAX_SIZE_BYTES) throw new IllegalArgumentException("File too large");
+        } catch (IllegalArgumentException e) {
+            return rejected(source, name, e);
+        }
+
+        // into the blob store's temp area first: same volume as the blob tree, so placing it is a rename.
+        // The original stays in the inbox until its row is committed (see flush)
+        Path tmp = blobStore.newTempPath();
+        try {
+            Transfer transfer;
+            String checksum;
+            long storedSize;
+            if (tryLink(source, tmp)) {
+                transfer = Transfer.LINKED;
+                checksum = HashingIO.sha256(tmp);
+                storedSize = Files.size(tmp);
+            } else {
+                // different filesystem: one streaming pass copies and hashes
+                transfer = Transfer.COPIED;
+                HashingIO.HashedCopy copy;
+                try (InputStream in = Files.newInputStream(source)) {
+                    copy = HashingIO.copyAndHash(in, tmp, FileStorageService.MAX_SIZE_BYTES);
+                }
+                checksum = copy.sha256();
+                storedSize = copy.size();
+            }
+            String mime = MIME_BY_EXTENSION.getOrDefault(extensionOf(name), Files.probeContentType(Path.of(name)));
+            BlobStore.Stored blob = fileStorageService.putBlob(tmp, checksum, storedSize, mime);
+
+            StoredFile sf = new StoredFile(name, blob.path().toString());
+            sf.setBlobKey(checksum);
+            sf.setMime(mime);
+            sf.setSize(storedSize);
+            sf.setChecksum(checksum);
+            sf.setCodec(blob.codec());
+            sf.setStoredSize(blob.storedSize());
+            return new Imported(source, sf, transfer);
+        } catch (IOException | IllegalArgumentException e) {
+            // drop a half-done link or copy, the original is still in the inbox
+            deleteQuietly(tmp);
+            return rejected(source, name, e);
+        }
+    }
+
+    private Imported rejected(Path source, String name, Exception e) {
+        log.warn("Rejected inbox file {}: {}", name, e.getMessage());
+        if (source != null) reject(source, name);
+        registry.counter("inbox.rejected").increment();
+        return null;
+    }
+
+    /**
+     * Saves one batch of metadata, then removes the originals from the inbox. On failure the blob
+     * references are dropped and the originals go to the rejected folder. Returns the rejected count.
+     */
+    private int flush(List<Imported> batch, List<Imported> registered) {
+        if (batch.isEmpty()) return 0;
+        try {
+            fileStorageService.registerAll(batch.stream().map(Imported::storedFile).toList());
+        } catch (RuntimeException e) {
+            log.error("Failed to register {} imported files, moving them to {}", batch.size(), REJECTED_DIR, e);
+            for (Imported file : batch) {
+                blobStore.release(file.storedFile().getBlobKey(), Path.of(file.storedFile().getPath()));
+                reject(file.source(), file.storedFile().getFilename());
+            }
+            registry.counter("inbox.rejected").increment(batch.size());
+            int rejected = batch.size();
+            batch.clear();
+            return rejected;
+        }
+        for (Imported file : batch) {
+            try {
+                Files.delete(file.source());
+            } catch (IOException e) {
+                // stored and registered; left in the inbox it would be imported a second time
+                log.error("Imported {} but cannot remove it from the inbox: {}", file.source(), e.toString());
+            }
+            registry.counter("inbox.imported", "transfer", file.transfer().name().toLowerCase(Locale.ROOT)).increment();
+        }
+        registered.addAll(batch);
+        batch.clear();
+        return 0;
+    }
+
+    private static boolean tryLink(Path source, Path dest) throws IOException {
+        try {
+            Files.createLink(dest, source);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            return false;
+        }
+    }
+
+    /** Moves a file to the rejected folder, next to (never over) earlier rejects of the same name. */
+    private void reject(Path file, String name) {
+        Path dir = inboxDir.resolve(REJECTED_DIR);
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String ext = dot > 0 ? name.substring(dot) : "";
+        try {
+            Path target = dir.resolve(name);
+            for (int n = 2; ; n++) {
+                try {
+                    Files.move(file, target);
+                    return;
+                } catch (FileAlreadyExistsException e) {
+                    target = dir.resolve(base + " (" + n + ")" + ext);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot move {} to {}: {}", file, REJECTED_DIR, e.toString());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Cannot remove partial import {}: {}", file, e.toString());
+        }
+    }
+
+    private static String extensionOf(String filename) {
+        int idx = filename.lastIndexOf('.');
+        return idx > 0 ? filename.substring(idx + 1).toLowerCase(Locale.ROOT) : null;
+    }
+
+    private record Imported(Path source, StoredFile storedFile, Transfer transfer) {}
+}
@@ -0,0 +1,21 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.StorageIntegrity;
+
+import java.time.Instant;
+
+/** A stored file whose body was missing or did not match its checksum at the last scrub. */
+public record IntegrityIssue(
+        Long fileId,
+        String filename,
+        String path,
+        String checksum,
+        StorageIntegrity integrity,
+        Instant verifiedAt
+) {
+    static IntegrityIssue from(StoredFile f) {
+        return new IntegrityIssue(f.getId(), f.getFilename(), f.getPath(), f.getChecksum(), f.getIntegrity(),
+                f.getVerifiedAt());
+    }
+}
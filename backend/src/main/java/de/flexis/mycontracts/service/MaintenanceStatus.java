@@ -0,0 +1,32 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.MaintenanceCheckpoint;
+import de.flexis.mycontracts.model.enums.MaintenanceState;
+
+import java.time.Instant;
+
+/**
+ * Progress of a background maintenance task, as stored in its {@link MaintenanceCheckpoint}.
+ *
+ * @param detail    parameters of the current run (e.g. the target storage layout)
+ * @param cursor    last position that was fully processed
+ * @param processed items looked at in this run
+ * @param changed   items the task had to fix, move or rewrite
+ * @param failed    items that could not be handled; see the log
+ */
+public record MaintenanceStatus(
+        String task,
+        MaintenanceState state,
+        String detail,
+        String cursor,
+        long processed,
+        long changed,
+        long failed,
+        Instant startedAt,
+        Instant updatedAt
+) {
+    public static MaintenanceStatus from(MaintenanceCheckpoint c) {
+        return new MaintenanceStatus(c.getName(), c.getState(), c.getDetail(), c.getCursor(),
+                c.getProcessed(), c.getChanged(), c.getFailed(), c.getStartedAt(), c.getUpdatedAt());
+    }
+}
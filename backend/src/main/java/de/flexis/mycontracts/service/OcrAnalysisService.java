@@ -74,9 +74,12 @@ public class OcrAnalysisService {
             }
 
             OcrFile ocrFile = ocrFileOpt.get();
-            String ocrJson = ocrFile.getRawJson();
+            // plain text is far smaller than the raw JSON; fall back to the JSON if no text was extracted
+            String ocrContent = fileStorageService.loadOcrText(ocrFile)
+                    .or(() -> fileStorageService.loadOcrJson(ocrFile))
+                    .orElse(null);
 
-            if (ocrJson == null || ocrJson.isBlank()) {
+            if (ocrContent == null || ocrContent.isBlank()) {
                 return Map.of(
                     "success", false,
                     "error", "OCR data is empty for file ID: " + fileId
@@ -84,7 +87,7 @@ public class OcrAnalysisService {
             }
 
             // Extract fields using AI
-            Map<String, String> extractedData = extractFieldsWithAI(file.getFilename(), ocrJson);
+            Map<String, String> extractedData = extractFieldsWithAI(file.getFilename(), ocrContent);
 
             // Create or get contract
             Contract contract = getOrCreateContract(file);
@@ -0,0 +1,96 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.OcrClaim;
+import de.flexis.mycontracts.repository.OcrClaimRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Instant;
+
+/**
+ * Database leases that keep several backend instances watching the same directory from
+ * ingesting the same OCR file. A claim is a row in {@code ocr_claims} keyed by path:
+ * the first instance to insert it wins, and a lease that expired (crashed instance) can be
+ * taken over by anyone.
+ */
+@Service
+public class OcrClaimService {
+
+    private static final Logger log = LoggerFactory.getLogger(OcrClaimService.class);
+
+    private final OcrClaimRepository claimRepository;
+    private final String instanceId;
+    private final long leaseMs;
+    private final boolean enabled;
+    private final Counter contendedCounter;
+
+    public OcrClaimService(OcrClaimRepository claimRepository,
+                           @Value("${watcher.instance-id:}") String instanceId,
+                           @Value("${watcher.claim-lease-ms:300000}") long leaseMs,
+                           @Value("${watcher.claims-enabled:true}") boolean enabled,
+                           ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.claimRepository = claimRepository;
+        this.instanceId = instanceId.isBlank() ? defaultInstanceId() : instanceId;
+        this.leaseMs = leaseMs;
+        this.enabled = enabled;
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable(SimpleMeterRegistry::new);
+        this.contendedCounter = registry.counter("watcher.claims.contended");
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /** Claims {@code path} for this instance. Returns false if another instance holds a live lease. */
+    public boolean tryClaim(String path) {
+        if (!enabled) return true;
+        Instant now = Instant.now();
+        Instant until = now.plusMillis(leaseMs);
+        try {
+            claimRepository.saveAndFlush(new OcrClaim(path, instanceId, now, until));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // row exists: ours from before a restart, or stale from a crashed instance
+            if (claimRepository.takeOver(path, instanceId, now, until) > 0) return true;
+            contendedCounter.increment();
+            return false;
+        }
+    }
+
+    public void release(String path) {
+        if (!enabled) return;
+        try {
+            claimRepository.release(path, instanceId);
+        } catch (RuntimeException e) {
+            // the lease simply expires
+            log.warn("Failed to release OCR claim {}", path, e);
+        }
+    }
+
+    // claims of files that vanished while an instance was down are never taken over; drop them
+    @Scheduled(fixedDelayString = "${watcher.claim-lease-ms:300000}")
+    public void purgeExpired() {
+        if (!enabled) return;
+        int purged = claimRepository.deleteExpired(Instant.now());
+        if (purged > 0) log.info("Removed {} expired OCR claims", purged);
+    }
+
+    private static String defaultInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + ":" + ProcessHandle.current().pid();
+    }
+}
@@ -0,0 +1,439 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.OcrFile;
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.OcrStatus;
+import de.flexis.mycontracts.ocr.OcrFormat;
+import de.flexis.mycontracts.ocr.OcrJsonParser;
+import de.flexis.mycontracts.ocr.OcrTextExtractor;
+import de.flexis.mycontracts.repository.ExtractedFieldRepository;
+import de.flexis.mycontracts.repository.OcrFileRepository;
+import de.flexis.mycontracts.util.HashingIO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Staged OCR ingestion: read+hash (+ compress into {@link OcrPayloadStore}) -> parse (plain text
+ * via {@link OcrJsonParser}) -> match run on a bounded worker pool, persisting is done by a single writer thread in batches.
+ * <p>
+ * At most {@code watcher.pipeline.queue-capacity} files are in flight; {@link #submit(Path)}
+ * blocks the discovering thread once that limit is reached. Each file is claimed through
+ * {@link OcrClaimService} first, so instances sharing a watch directory do not duplicate work.
+ */
+@Service
+public class OcrIngestionPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(OcrIngestionPipeline.class);
+    static final String OCR_SUFFIX = "_ocr.json";
+
+    private final OcrFileRepository ocrFileRepository;
+    private final ExtractedFieldRepository extractedFieldRepository;
+    private final StoredFileIndex storedFileIndex;
+    private final OcrRetryScheduler retryScheduler;
+    private final OcrPayloadStore payloadStore;
+    private final OcrClaimService claimService;
+    private final OcrJsonParser parser = new OcrJsonParser();
+    private final int batchSize;
+    private final long flushIntervalMs;
+
+    private final ThreadPoolExecutor workers;
+    private final Semaphore capacity;
+    private final int queueCapacity;
+    private final BlockingQueue<Staged> persistQueue = new LinkedBlockingQueue<>();
+    private final Thread persister;
+    private volatile boolean running = true;
+
+    private final Counter matchedCounter;
+    private final Counter pendingCounter;
+    private final Counter updatedCounter;
+    private final Timer ingestTimer;
+    private final Timer lagTimer;
+
+    public OcrIngestionPipeline(OcrFileRepository ocrFileRepository,
+                                ExtractedFieldRepository extractedFieldRepository,
+                                StoredFileIndex storedFileIndex,
+                                OcrRetryScheduler retryScheduler,
+                                OcrPayloadStore payloadStore,
+                                OcrClaimService claimService,
+                                ObjectProvider<MeterRegistry> meterRegistryProvider,
+                                @Value("${watcher.pipeline.workers:4}") int workerCount,
+                                @Value("${watcher.pipeline.queue-capacity:256}") int queueCapacity,
+                                @Value("${watcher.pipeline.batch-size:100}") int batchSize,
+                                @Value("${watcher.pipeline.flush-interval-ms:50}") long flushIntervalMs) {
+        this.ocrFileRepository = ocrFileRepository;
+        this.extractedFieldRepository = extractedFieldRepository;
+        this.storedFileIndex = storedFileIndex;
+        this.retryScheduler = retryScheduler;
+        this.payloadStore = payloadStore;
+        this.claimService = claimService;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.capacity = new Semaphore(this.queueCapacity);
+
+        int threads = Math.max(1, workerCount);
+        AtomicInteger threadNo = new AtomicInteger();
+        // the semaphore bounds submissions, so the work queue never holds more than queueCapacity tasks
+        this.workers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(this.queueCapacity), r -> {
+                    Thread t = new Thread(r, "ocr-ingest-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.workers.allowCoreThreadTimeOut(true);
+
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable(SimpleMeterRegistry::new);
+        this.matchedCounter = registry.counter("watcher.ocr.matched");
+        this.pendingCounter = registry.counter("watcher.ocr.pending");
+        this.updatedCounter = registry.counter("watcher.ocr.updated");
+        this.ingestTimer = Timer.builder("watcher.ingest.duration")
+                .description("Time from submit until the OCR row is persisted")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.lagTimer = lagTimer(registry);
+        Gauge.builder("watcher.pipeline.queue.depth", workers, w -> w.getQueue().size())
+                .tag("stage", "read")
+                .register(registry);
+        Gauge.builder("watcher.pipeline.queue.depth", persistQueue, BlockingQueue::size)
+                .tag("stage", "persist")
+                .register(registry);
+        Gauge.builder("watcher.pipeline.inflight", this, OcrIngestionPipeline::inFlight)
+                .register(registry);
+
+        this.persister = new Thread(this::persistLoop, "ocr-ingest-persist");
+        this.persister.setDaemon(true);
+        this.persister.start();
+    }
+
+    /**
+     * Queues an OCR file for ingestion. Blocks while the pipeline is full.
+     * The returned future completes with the persisted row, with null if the file is already
+     * ingested or claimed by another instance, or exceptionally if it could not be read or saved.
+     */
+    public CompletableFuture<OcrFile> submit(Path file) throws InterruptedException {
+        return submit(file, null, null);
+    }
+
+    /**
+     * Re-ingests a file whose row {@code existingId} is out of date. If its SHA-256 still equals
+     * {@code previousChecksum} only the fingerprint columns are updated and the future completes
+     * with null; otherwise the existing row is updated and extracted fields of the affected
+     * contracts are marked stale.
+     */
+    public CompletableFuture<OcrFile> submit(Path file, Long existingId, String previousChecksum) throws InterruptedException {
+        capacity.acquire();
+        CompletableFuture<OcrFile> result = new CompletableFuture<>();
+        long submittedAt = System.nanoTime();
+        result.whenComplete((of, ex) -> {
+            capacity.release();
+            if (of != null) ingestTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+        });
+        try {
+            workers.execute(() -> process(file, existingId, previousChecksum, result));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /** Shared with {@link OcrRetryScheduler}, which records lag for files matched on retry. */
+    static Timer lagTimer(MeterRegistry registry) {
+        return Timer.builder("watcher.ingest.lag")
+                .description("Time from the OCR file's last modification until it is MATCHED")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    static void recordLag(Timer lagTimer, Instant sourceModifiedAt, Instant matchedAt) {
+        if (sourceModifiedAt == null) return;
+        Duration lag = Duration.between(sourceModifiedAt, matchedAt);
+        if (!lag.isNegative()) lagTimer.record(lag);
+    }
+
+    public int inFlight() {
+        return queueCapacity - capacity.availablePermits();
+    }
+
+    public int readQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    public int persistQueueDepth() {
+        return persistQueue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        workers.shutdownNow();
+        persister.interrupt();
+    }
+
+    // read+hash, parse and match stages; runs on a worker thread
+    private void process(Path file, Long existingId, String previousChecksum, CompletableFuture<OcrFile> result) {
+        try {
+            String pathStr = file.toAbsolutePath().toString();
+            // another instance may watch the same directory; only the lease holder ingests
+            if (!claimService.tryClaim(pathStr)) {
+                result.complete(null);
+                return;
+            }
+            result.whenComplete((of, ex) -> claimService.release(pathStr));
+            if (existingId == null && ocrFileRepository.existsByPath(pathStr)) {
+                // finished by another instance between our listing and the claim
+                result.complete(null);
+                return;
+            }
+            Instant modifiedAt = Files.getLastModifiedTime(file).toInstant();
+            // single pass: content and SHA-256 come from the same read
+            HashingIO.HashedBytes content = HashingIO.readAndHash(file);
+            String checksum = content.sha256();
+            String fastDigest = HashingIO.fastDigest(content.data());
+            if (existingId != null && checksum.equals(previousChecksum)) {
+                // touched or rewritten with identical content: refresh the fingerprint only
+                ocrFileRepository.updateFingerprint(existingId, content.size(), modifiedAt, fastDigest);
+                result.complete(null);
+                return;
+            }
+            // compress into the payload store here so it runs in parallel, not on the writer thread
+            String payloadRef = payloadStore.put(checksum, content.data());
+            ParsedText text = parseText(file, content.data());
+
+            // determine basename (strip suffix _ocr.json)
+            String filename = file.getFileName().toString();
+            String base = filename.endsWith(OCR_SUFFIX)
+                    ? filename.substring(0, filename.length() - OCR_SUFFIX.length())
+                    : filename;
+
+            // try to find matching stored file (by filename base without extension)
+            StoredFile matched = storedFileIndex.findByBasename(base).orElse(null);
+            persistQueue.put(new Staged(pathStr, existingId,
+                    payloadRef, content.size(), checksum, modifiedAt, fastDigest, text, matched, result));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Extracts the plain text and stores it next to the payload. A document the parser cannot read
+     * is still ingested; it just has no text and format UNKNOWN.
+     */
+    private ParsedText parseText(Path file, byte[] data) throws IOException {
+        StringBuilder text = new StringBuilder();
+        OcrTextExtractor extractor = new OcrTextExtractor(text);
+        OcrFormat format;
+        try {
+            format = parser.parse(new ByteArrayInputStream(data), extractor);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot parse OCR file {}: {}", file, e.getMessage());
+            return new ParsedText(null, OcrFormat.UNKNOWN, 0, 0, null);
+        }
+        String textRef = null;
+        if (!text.isEmpty()) {
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            var md = HashingIO.newSha256();
+            md.update(bytes);
+            textRef = payloadStore.put(HashingIO.hex(md), bytes);
+        }
+        return new ParsedText(textRef, format, extractor.getPageCount(), extractor.getWordCount(),
+                extractor.getMeanConfidence());
+    }
+
+    // batched persist stage; single writer thread
+    private void persistLoop() {
+        List<Staged> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Staged first = persistQueue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                persistQueue.drainTo(batch, batchSize - 1);
+                persist(batch);
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                log.error("OCR persist stage failed", e);
+                batch.forEach(s -> s.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+        List<Staged> remaining = new ArrayList<>();
+        persistQueue.drainTo(remaining);
+        remaining.forEach(s -> s.result().cancel(false));
+    }
+
+    private void persist(List<Staged> batch) {
+        Instant firstAttempt = retryScheduler.firstAttemptAt(Instant.now());
+        Map<Long, OcrFile> existing = loadExisting(batch);
+        Set<Long> staleContracts = new HashSet<>();
+        List<OcrFile> rows = new ArrayList<>(batch.size());
+        for (Staged s : batch) {
+            rows.add(s.toEntity(firstAttempt, s.existingIn(existing), staleContracts));
+        }
+        try {
+            ocrFileRepository.saveAll(rows);
+        } catch (DataIntegrityViolationException e) {
+            // one duplicate path rolls back the whole batch; retry row by row with fresh entities
+            existing = loadExisting(batch);
+            staleContracts.clear();
+            rows = new ArrayList<>(batch.size());
+            for (Staged s : batch) {
+                rows.add(saveSingle(s, firstAttempt, existing, staleContracts));
+            }
+        }
+        if (!staleContracts.isEmpty()) {
+            try {
+                extractedFieldRepository.markStaleByContractIds(staleContracts);
+            } catch (RuntimeException e) {
+                // the OCR rows are saved already; don't fail their futures over the flag
+                log.warn("Failed to mark extracted fields stale for contracts {}", staleContracts, e);
+            }
+        }
+        boolean anyPending = false;
+        for (int i = 0; i < batch.size(); i++) {
+            OcrFile of = rows.get(i);
+            Staged s = batch.get(i);
+            if (of == null) {
+                s.result().complete(null);
+                continue;
+            }
+            if (s.existingId() != null) updatedCounter.increment();
+            if (of.getStatus() == OcrStatus.MATCHED) {
+                matchedCounter.increment();
+                recordLag(lagTimer, of.getSourceModifiedAt(), of.getProcessedAt());
+            } else {
+                pendingCounter.increment();
+                anyPending = true;
+            }
+            s.result().complete(of);
+        }
+        if (anyPending) retryScheduler.schedule(firstAttempt);
+    }
+
+    /**
+     * Row-by-row fallback after a failed batch. A violation is only a duplicate if another writer stored
+     * the path meanwhile; otherwise it is the one-OCR-per-file constraint on the matched file (two roots
+     * with the same sidecar name), and the row is kept unmatched so it is not lost and re-read on every scan.
+     */
+    private OcrFile saveSingle(Staged s, Instant firstAttempt, Map<Long, OcrFile> existing, Set<Long> staleContracts) {
+        try {
+            return ocrFileRepository.save(s.toEntity(firstAttempt, s.existingIn(existing), staleContracts));
+        } catch (DataIntegrityViolationException e) {
+            if (s.existingId() == null && ocrFileRepository.existsByPath(s.path())) {
+                log.debug("OCR {} already ingested", s.path());
+                return null;
+            }
+            if (s.matched() == null) {
+                log.warn("Cannot save OCR {}, will retry on the next scan: {}", s.path(),
+                        e.getMostSpecificCause().getMessage());
+                return null;
+            }
+            log.warn("Cannot match OCR {} to file {}, keeping it pending: {}", s.path(), s.matched().getId(),
+                    e.getMostSpecificCause().getMessage());
+        }
+        // entities touched by the failed save are detached; start from a fresh copy of the row
+        OcrFile current = s.existingId() == null ? null : ocrFileRepository.findById(s.existingId()).orElse(null);
+        return ocrFileRepository.save(s.withoutMatch().toEntity(firstAttempt, current, staleContracts));
+    }
+
+    private Map<Long, OcrFile> loadExisting(List<Staged> batch) {
+        List<Long> ids = batch.stream().map(Staged::existingId).filter(Objects::nonNull).toList();
+        if (ids.isEmpty()) return Map.of();
+        Map<Long, OcrFile> byId = new HashMap<>();
+        ocrFileRepository.findAllById(ids).forEach(of -> byId.put(of.getId(), of));
+        return byId;
+    }
+
+    private record Staged(String path, Long existingId, String payloadRef, long payloadSize, String checksum,
+                          Instant sourceModifiedAt, String fastDigest, ParsedText text, StoredFile matched,
+                          CompletableFuture<OcrFile> result) {
+        /**
+         * Fills {@code existing} (re-ingest) or a new row. Contracts whose extractions came from the
+         * old content are added to {@code staleContracts}.
+         */
+        OcrFile toEntity(Instant firstAttempt, OcrFile existing, Set<Long> staleContracts) {
+            OcrFile of = existing != null ? existing : new OcrFile(path);
+            if (existing != null) {
+                addContract(staleContracts, existing.getMatchedFile());
+                addContract(staleContracts, matched);
+                of.setRetryCount(0);
+                of.setLastAttempt(null);
+            }
+            of.setChecksum(checksum);
+            of.setPayloadRef(payloadRef);
+            of.setPayloadSize(payloadSize);
+            of.setSourceModifiedAt(sourceModifiedAt);
+            of.setSourceSize(payloadSize);
+            of.setFastDigest(fastDigest);
+            of.setTextRef(text.ref());
+            of.setOcrFormat(text.format());
+            of.setPageCount(text.pages());
+            of.setWordCount(text.words());
+            of.setMeanConfidence(text.meanConfidence());
+            if (matched != null) {
+                of.setMatchedFile(matched);
+                of.setStatus(OcrStatus.MATCHED);
+                of.setProcessedAt(Instant.now());
+                of.setNextAttemptAt(null);
+            } else {
+                of.setMatchedFile(null);
+                of.setStatus(OcrStatus.PENDING);
+                of.setProcessedAt(null);
+                of.setNextAttemptAt(firstAttempt);
+            }
+            return of;
+        }
+
+        Staged withoutMatch() {
+            return new Staged(path, existingId, payloadRef, payloadSize, checksum, sourceModifiedAt, fastDigest, text,
+                    null, result);
+        }
+
+        OcrFile existingIn(Map<Long, OcrFile> rows) {
+            return existingId == null ? null : rows.get(existingId);
+        }
+
+        private static void addContract(Set<Long> contracts, StoredFile file) {
+            if (file != null && file.getContract() != null) contracts.add(file.getContract().getId());
+        }
+    }
+
+    private record ParsedText(String ref, OcrFormat format, int pages, long words, Double meanConfidence) {}
+}
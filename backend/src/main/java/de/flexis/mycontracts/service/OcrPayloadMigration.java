@@ -0,0 +1,86 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.util.HashingIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One-off move of legacy {@code ocr_files.raw_json} values into {@link OcrPayloadStore}.
+ * Hibernate's schema update leaves the old column in place; rows are migrated in small batches
+ * and the column is nulled afterwards, so rerunning after a crash simply continues.
+ */
+@Component
+public class OcrPayloadMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(OcrPayloadMigration.class);
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OcrPayloadStore payloadStore;
+
+    public OcrPayloadMigration(JdbcTemplate jdbcTemplate, OcrPayloadStore payloadStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.payloadStore = payloadStore;
+    }
+
+    // runs before the watcher and retry worker start on the same event
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (!hasLegacyColumn()) return;
+        int migrated = 0;
+        try {
+            while (true) {
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                        "select id, raw_json from ocr_files where raw_json is not null limit " + BATCH_SIZE);
+                if (rows.isEmpty()) break;
+                for (Map<String, Object> row : rows) {
+                    migrateRow(((Number) row.get("id")).longValue(), String.valueOf(row.get("raw_json")));
+                }
+                migrated += rows.size();
+            }
+        } catch (Exception e) {
+            log.error("OCR payload migration stopped after {} rows", migrated, e);
+            return;
+        }
+        if (migrated > 0) log.info("Moved {} legacy OCR payloads to the payload store", migrated);
+    }
+
+    private void migrateRow(long id, String rawJson) throws Exception {
+        byte[] data = rawJson.getBytes(StandardCharsets.UTF_8);
+        MessageDigest md = HashingIO.newSha256();
+        md.update(data);
+        String ref = payloadStore.put(HashingIO.hex(md), data);
+        jdbcTemplate.update("update ocr_files set payload_ref = ?, payload_size = ?, raw_json = null where id = ?",
+                ref, (long) data.length, id);
+    }
+
+    private boolean hasLegacyColumn() {
+        Boolean present = jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+            DatabaseMetaData meta = con.getMetaData();
+            try (ResultSet rs = meta.getColumns(null, null, null, null)) {
+                while (rs.next()) {
+                    if ("ocr_files".equalsIgnoreCase(rs.getString("TABLE_NAME"))
+                            && "raw_json".equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        });
+        return Boolean.TRUE.equals(present);
+    }
+}
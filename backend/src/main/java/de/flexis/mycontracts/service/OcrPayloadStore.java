@@ -0,0 +1,173 @@
+package de.flexis.mycontracts.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Content-addressed, deflate-compressed side store for raw OCR payloads.
+ * Payloads are keyed by the SHA-256 of their uncompressed bytes and laid out as
+ * {@code <root>/ab/cd/<sha256>.json.deflate}, so identical OCR output is stored once.
+ * <p>
+ * Entries are shared by every OCR row with the same content and not reference counted; ones no
+ * row points to any more are removed by {@link StorageReconciliation} via {@link #walk} and
+ * {@link #deleteOrphan}. Storing a key again refreshes its modification time, so a sweep never
+ * deletes an entry that is just being reused.
+ */
+@Service
+public class OcrPayloadStore {
+
+    private static final String SUFFIX = ".json.deflate";
+
+    private final Path root;
+    private final int compressionLevel;
+    // serializes put/deleteOrphan per key, so an entry is never deleted while it is being reused
+    private final ReentrantLock[] locks = new ReentrantLock[64];
+
+    public OcrPayloadStore(@Value("${OCR_PAYLOAD_PATH:${user.dir}/data/ocr-payloads}") String root,
+                           @Value("${ocr.payload.compression-level:6}") int compressionLevel) throws IOException {
+        this.root = Path.of(root);
+        this.compressionLevel = compressionLevel;
+        Files.createDirectories(this.root);
+        for (int i = 0; i < locks.length; i++) locks[i] = new ReentrantLock();
+    }
+
+    /** Stores the payload unless a blob with the same key already exists. Returns the key. */
+    public String put(String sha256, byte[] data) throws IOException {
+        Path target = pathFor(sha256);
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            if (Files.exists(target)) {
+                // mark as in use for the orphan sweep
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                return sha256;
+            }
+            write(target, sha256, data);
+        } finally {
+            lock.unlock();
+        }
+        return sha256;
+    }
+
+    private void write(Path target, String sha256, byte[] data) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), sha256, ".tmp");
+        try {
+            Deflater deflater = new Deflater(compressionLevel);
+            try (OutputStream out = new DeflaterOutputStream(Files.newOutputStream(tmp), deflater, 64 * 1024)) {
+                out.write(data);
+            } finally {
+                deflater.end();
+            }
+            moveIntoPlace(tmp, target);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public boolean exists(String key) {
+        return key != null && Files.exists(pathFor(key));
+    }
+
+    /** Opens the decompressed payload. The caller closes the stream. */
+    public InputStream open(String key) throws IOException {
+        InputStream in = Files.newInputStream(pathFor(key));
+        Inflater inflater = new Inflater();
+        return new InflaterInputStream(in, inflater, 64 * 1024) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // a caller-supplied Inflater is not ended by close(); release its native memory now
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    public Optional<String> loadString(String key) throws IOException {
+        if (!exists(key)) return Optional.empty();
+        try (InputStream in = open(key)) {
+            return Optional.of(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /** Receives every entry of {@link #walk}: its key and file. */
+    public interface PayloadVisitor {
+        void visit(String key, Path path) throws IOException;
+    }
+
+    /** Visits all stored entries, one shard directory at a time. */
+    public void walk(PayloadVisitor visitor) throws IOException {
+        try (var first = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path dir1 : first) {
+                try (var second = Files.newDirectoryStream(dir1, Files::isDirectory)) {
+                    for (Path dir2 : second) {
+                        try (var entries = Files.newDirectoryStream(dir2, "*" + SUFFIX)) {
+                            for (Path entry : entries) {
+                                String name = entry.getFileName().toString();
+                                visitor.visit(name.substring(0, name.length() - SUFFIX.length()), entry);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes an entry the caller found unreferenced, unless it was written or reused since
+     * {@code notAfter}. Returns true if deleted.
+     */
+    public boolean deleteOrphan(String key, Instant notAfter) throws IOException {
+        Path path = pathFor(key);
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            if (!Files.exists(path) || Files.getLastModifiedTime(path).toInstant().isAfter(notAfter)) return false;
+            return Files.deleteIfExists(path);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(String key) {
+        return locks[Math.floorMod(key.hashCode(), locks.length)];
+    }
+
+    Path pathFor(String key) {
+        if (key == null || key.length() < 4 || !key.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+            throw new IllegalArgumentException("Invalid payload key");
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key + SUFFIX);
+    }
+
+    private static void moveIntoPlace(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // another writer stored the same content first
+        } catch (AtomicMoveNotSupportedException e) {
+            if (!Files.exists(target)) Files.move(tmp, target);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.OcrStatus;
+import de.flexis.mycontracts.repository.OcrFileRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries matching of PENDING OCR files with exponential backoff.
+ * <p>
+ * Each row carries its {@code nextAttemptAt}; only rows that are due are fetched.
+ * A {@link DelayQueue} holds the next wake-up so the worker sleeps until the earliest
+ * retry is due instead of polling on a fixed interval.
+ */
+@Service
+public class OcrRetryScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(OcrRetryScheduler.class);
+
+    private final OcrFileRepository ocrFileRepository;
+    private final StoredFileIndex storedFileIndex;
+    private final Counter matchedCounter;
+    private final Counter failedCounter;
+    private final Counter retryCounter;
+    private final Timer lagTimer;
+
+    @Value("${watcher.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${watcher.retry-backoff-ms:5000}")
+    private long retryBackoffMs;
+
+    @Value("${watcher.retry-max-backoff-ms:600000}")
+    private long retryMaxBackoffMs;
+
+    // floor between worker runs so a zero backoff cannot turn into a busy loop
+    @Value("${watcher.retry-min-interval-ms:1000}")
+    private long minIntervalMs;
+
+    @Value("${watcher.retry-batch-size:500}")
+    private int batchSize;
+
+    private final DelayQueue<Wakeup> wakeups = new DelayQueue<>();
+    private Instant scheduledWake;
+    private volatile long lastRunMillis;
+    private Thread worker;
+
+    public OcrRetryScheduler(OcrFileRepository ocrFileRepository,
+                             StoredFileIndex storedFileIndex,
+                             ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.ocrFileRepository = ocrFileRepository;
+        this.storedFileIndex = storedFileIndex;
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable(SimpleMeterRegistry::new);
+        this.matchedCounter = registry.counter("watcher.ocr.matched");
+        this.failedCounter = registry.counter("watcher.ocr.failed");
+        this.retryCounter = registry.counter("watcher.ocr.retry");
+        this.lagTimer = OcrIngestionPipeline.lagTimer(registry);
+    }
+
+    /** Time of the first retry for a row that was just ingested as PENDING. */
+    public Instant firstAttemptAt(Instant now) {
+        return now.plusMillis(backoffMillis(0));
+    }
+
+    /** Exponential backoff: base * 2^retryCount, capped at watcher.retry-max-backoff-ms. */
+    long backoffMillis(int retryCount) {
+        if (retryBackoffMs <= 0) return 0;
+        int shift = Math.min(retryCount, 30);
+        return Math.min(retryBackoffMs << shift, Math.max(retryBackoffMs, retryMaxBackoffMs));
+    }
+
+    /** Makes sure the worker wakes up no later than {@code at}. */
+    public synchronized void schedule(Instant at) {
+        if (at == null) return;
+        if (scheduledWake != null && !at.isBefore(scheduledWake)) return;
+        scheduledWake = at;
+        wakeups.add(new Wakeup(Math.max(at.toEpochMilli(), lastRunMillis + minIntervalMs)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (worker != null) return;
+        worker = new Thread(this::workerLoop, "ocr-retry");
+        worker.setDaemon(true);
+        worker.start();
+        scheduleEarliestPending();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker != null) worker.interrupt();
+    }
+
+    /** Counts from one {@link #processDue()} run. */
+    public record RetryBatch(int attempted, int matched, int failed) {}
+
+    /** Retries one batch of due PENDING rows. */
+    public synchronized RetryBatch processDue() {
+        Instant now = Instant.now();
+        lastRunMillis = now.toEpochMilli();
+        scheduledWake = null;
+        List<OcrFileRepository.DueRetry> due = ocrFileRepository.findDue(OcrStatus.PENDING, now, PageRequest.of(0, batchSize));
+        int matched = 0, failed = 0;
+        for (OcrFileRepository.DueRetry row : due) {
+            try {
+                OcrStatus outcome = retry(row, now);
+                if (outcome == OcrStatus.MATCHED) matched++;
+                else if (outcome == OcrStatus.FAILED) failed++;
+            } catch (Exception e) {
+                // e.g. the file got another OCR meanwhile (one per file); back off like a miss so the
+                // row does not stay due and pin the front of the queue
+                log.warn("Failed to process pending OCR {}", row.getPath(), e);
+                try {
+                    if (backOff(row, now) == OcrStatus.FAILED) failed++;
+                } catch (Exception ex) {
+                    log.warn("Cannot reschedule pending OCR {}: {}", row.getPath(), ex.toString());
+                }
+            }
+        }
+        scheduleEarliestPending();
+        return new RetryBatch(due.size(), matched, failed);
+    }
+
+    private OcrStatus retry(OcrFileRepository.DueRetry row, Instant now) {
+        // extract filename from path
+        String filename = Path.of(row.getPath()).getFileName().toString();
+        String base = filename;
+        if (base.endsWith(OcrIngestionPipeline.OCR_SUFFIX)) {
+            base = base.substring(0, base.length() - OcrIngestionPipeline.OCR_SUFFIX.length());
+        }
+
+        StoredFile matched = storedFileIndex.findByBasename(base).orElse(null);
+        retryCounter.increment();
+        if (matched == null) return backOff(row, now);
+        if (ocrFileRepository.markMatched(row.getId(), matched, now, OcrStatus.PENDING, OcrStatus.MATCHED) > 0) {
+            matchedCounter.increment();
+            OcrIngestionPipeline.recordLag(lagTimer, row.getSourceModifiedAt(), now);
+            return OcrStatus.MATCHED;
+        }
+        return OcrStatus.PENDING;
+    }
+
+    /** Counts a failed attempt: schedules the next one, or marks the row FAILED once retries run out. */
+    private OcrStatus backOff(OcrFileRepository.DueRetry row, Instant now) {
+        int attempts = row.getRetryCount() + 1;
+        if (attempts >= maxRetries) {
+            if (ocrFileRepository.markFailed(row.getId(), now, OcrStatus.PENDING, OcrStatus.FAILED) > 0) {
+                failedCounter.increment();
+                return OcrStatus.FAILED;
+            }
+        } else {
+            ocrFileRepository.scheduleRetry(row.getId(), now, now.plusMillis(backoffMillis(attempts)), OcrStatus.PENDING);
+        }
+        return OcrStatus.PENDING;
+    }
+
+    private void scheduleEarliestPending() {
+        Instant next = ocrFileRepository.findEarliestNextAttempt(OcrStatus.PENDING);
+        schedule(next);
+    }
+
+    private void workerLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                wakeups.take();
+                wakeups.clear(); // anything else queued is due now or later and covered by this run
+                processDue();
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                log.error("OCR retry worker failed", e);
+            }
+        }
+    }
+
+    private record Wakeup(long atMillis) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(atMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.PreviewSize;
+import de.flexis.mycontracts.model.enums.StorageCodec;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders the first page of stored documents (PDF via PDFBox, images via ImageIO) as a JPEG thumbnail
+ * and a low-resolution page, so list and detail views do not need to download the document.
+ * <p>
+ * Previews are rendered in the background when a file is stored, on {@code preview.threads} low
+ * priority workers, and cached in {@code PREVIEW_CACHE_PATH} under the content's SHA-256: identical
+ * uploads share them and they never go stale. Files stored before previews existed are rendered on
+ * first request. Content without a preview (other formats, broken or encrypted PDFs) gets a marker
+ * so it is not tried again; other failures, such as a full disk, are only logged and retried on the
+ * next request.
+ */
+@Service
+public class PreviewService {
+
+    private static final Logger log = LoggerFactory.getLogger(PreviewService.class);
+    private static final String NO_PREVIEW = ".none";
+    private static final String TMP_DIR = ".tmp";
+    // upper bound for tiny PDF pages (labels, receipts), so they do not render huge bitmaps
+    private static final float MAX_DPI = 150;
+
+    private final Path cacheDir;
+    private final Path tmpDir;
+    private final boolean enabled;
+    private final int thumbnailWidth;
+    private final int pageWidth;
+    private final long waitMs;
+    private final ThreadPoolExecutor workers;
+    // one render per content at a time, shared by the upload hook and waiting requests
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    // what a worker needs of a StoredFile, read before the entity leaves the request
+    private record Source(String sha256, Path path, StorageCodec codec) {}
+
+    // PDFBox or ImageIO could not decode the content; retrying would fail the same way
+    private static final class UnreadableContentException extends Exception {
+        UnreadableContentException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    public PreviewService(@Value("${PREVIEW_CACHE_PATH:${user.dir}/data/previews}") String cachePath,
+                          @Value("${preview.enabled:true}") boolean enabled,
+                          @Value("${preview.threads:1}") int threads,
+                          @Value("${preview.thumbnail-width:240}") int thumbnailWidth,
+                          @Value("${preview.page-width:1000}") int pageWidth,
+                          @Value("${preview.wait-ms:5000}") long waitMs) throws IOException {
+        this.cacheDir = Files.createDirectories(Path.of(cachePath).toAbsolutePath().normalize());
+        this.tmpDir = Files.createDirectories(cacheDir.resolve(TMP_DIR));
+        this.enabled = enabled;
+        this.thumbnailWidth = Math.max(16, thumbnailWidth);
+        this.pageWidth = Math.max(this.thumbnailWidth, pageWidth);
+        this.waitMs = Math.max(0, waitMs);
+        int n = Math.max(1, threads);
+        AtomicInteger threadNo = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(n, n, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "preview-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /** Queues rendering for a newly stored file, unless its content has previews (or none) already. */
+    public void generateAsync(StoredFile file) {
+        if (!enabled || file.getChecksum() == null || isKnown(file.getChecksum())) return;
+        submit(file);
+    }
+
+    /**
+     * The cached preview, rendered now if missing (waiting at most {@code preview.wait-ms}). Empty if
+     * the file has no preview.
+     *
+     * @throws IllegalStateException if rendering takes longer than the wait
+     */
+    public Optional<Path> find(StoredFile file, PreviewSize size) {
+        String sha256 = file.getChecksum();
+        if (sha256 == null) return Optional.empty();
+        Path preview = pathFor(sha256, size);
+        if (Files.exists(preview)) return Optional.of(preview);
+        if (!enabled || Files.exists(markerFor(sha256))) return Optional.empty();
+        try {
+            submit(file).get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Preview not ready");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Preview not ready");
+        } catch (ExecutionException e) {
+            return Optional.empty();
+        }
+        return Files.exists(preview) ? Optional.of(preview) : Optional.empty();
+    }
+
+    Path pathFor(String sha256, PreviewSize size) {
+        return cacheDir.resolve(sha256.substring(0, 2)).resolve(sha256 + "." + size.name().toLowerCase(Locale.ROOT) + ".jpg");
+    }
+
+    private Path markerFor(String sha256) {
+        return cacheDir.resolve(sha256.substring(0, 2)).resolve(sha256 + NO_PREVIEW);
+    }
+
+    private boolean isKnown(String sha256) {
+        return Files.exists(pathFor(sha256, PreviewSize.THUMBNAIL)) || Files.exists(markerFor(sha256));
+    }
+
+    private CompletableFuture<Void> submit(StoredFile file) {
+        Source source = new Source(file.getChecksum(), Path.of(file.getPath()), file.getCodec());
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> running = inFlight.putIfAbsent(source.sha256(), created);
+        if (running != null) return running;
+        workers.execute(() -> {
+            try {
+                generate(source);
+            } finally {
+                inFlight.remove(source.sha256(), created);
+                created.complete(null);
+            }
+        });
+        return created;
+    }
+
+    private void generate(Source source) {
+        if (isKnown(source.sha256())) return;
+        try {
+            BufferedImage page = renderFirstPage(source);
+            if (page == null) {
+                writeMarker(source.sha256());
+                return;
+            }
+            page = toRgb(scaleToWidth(page, pageWidth));
+            // thumbnail last: its presence means both are there
+            write(page, pathFor(source.sha256(), PreviewSize.PAGE));
+            write(toRgb(scaleToWidth(page, thumbnailWidth)), pathFor(source.sha256(), PreviewSize.THUMBNAIL));
+        } catch (UnreadableContentException e) {
+            log.warn("No preview for {}: {}", source.path(), e.getCause().toString());
+            try {
+                writeMarker(source.sha256());
+            } catch (IOException ex) {
+                log.warn("Cannot write preview marker for {}: {}", source.sha256(), ex.toString());
+            }
+        } catch (NoSuchFileException e) {
+            log.warn("Cannot render preview, {} is missing", source.path());
+        } catch (IOException | RuntimeException e) {
+            // not the content's fault (storage, cache disk, ...): no marker, the next request tries again
+            log.warn("Cannot render preview of {}: {}", source.path(), e.toString());
+        }
+    }
+
+    /** First page at about {@code pageWidth} pixels wide, or null for unsupported content. */
+    private BufferedImage renderFirstPage(Source source) throws IOException, UnreadableContentException {
+        byte[] head;
+        try (InputStream in = StorageCompression.open(source.path(), source.codec())) {
+            head = in.readNBytes(8);
+        }
+        if (isPdf(head)) return renderPdf(source);
+        try (InputStream in = StorageCompression.open(source.path(), source.codec());
+             ImageInputStream images = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(images);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(images, true, true);
+                // subsample large scans while decoding instead of holding the full bitmap
+                int step = Math.max(1, reader.getWidth(0) / pageWidth);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } catch (IOException | RuntimeException e) {
+                throw new UnreadableContentException(e);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage renderPdf(Source source) throws IOException, UnreadableContentException {
+        Path file = source.path();
+        Path inflated = null;
+        try {
+            if (source.codec() != StorageCodec.NONE) {
+                // PDFBox needs random access
+                inflated = tmpDir.resolve(UUID.randomUUID() + ".pdf");
+                try (InputStream in = StorageCompression.open(source.path(), source.codec())) {
+                    Files.copy(in, inflated);
+                }
+                file = inflated;
+            }
+            try (PDDocument document = Loader.loadPDF(file.toFile(), IOUtils.createTempFileOnlyStreamCache())) {
+                if (document.getNumberOfPages() == 0) return null;
+                PDPage page = document.getPage(0);
+                PDRectangle box = page.getCropBox();
+                float widthPt = page.getRotation() % 180 == 0 ? box.getWidth() : box.getHeight();
+                float dpi = Math.min(MAX_DPI, pageWidth * 72f / Math.max(1f, widthPt));
+                return new PDFRenderer(document).renderImageWithDPI(0, dpi, ImageType.RGB);
+            } catch (FileNotFoundException e) {
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                // broken, encrypted (InvalidPasswordException) or unsupported PDF
+                throw new UnreadableContentException(e);
+            }
+        } finally {
+            if (inflated != null) Files.deleteIfExists(inflated);
+        }
+    }
+
+    private static boolean isPdf(byte[] head) {
+        return head.length >= 4 && head[0] == '%' && head[1] == 'P' && head[2] == 'D' && head[3] == 'F';
+    }
+
+    private static BufferedImage scaleToWidth(BufferedImage image, int width) {
+        if (image.getWidth() <= width) return image;
+        int height = Math.max(1, (int) Math.round((double) image.getHeight() * width / image.getWidth()));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    // JPEG has no alpha channel; transparent areas become white
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) return image;
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, Color.WHITE, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    private void write(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path tmp = tmpDir.resolve(UUID.randomUUID() + ".jpg");
+        try {
+            if (!ImageIO.write(image, "jpg", tmp.toFile())) throw new IOException("No JPEG writer");
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void writeMarker(String sha256) throws IOException {
+        Path marker = markerFor(sha256);
+        Files.createDirectories(marker.getParent());
+        Files.writeString(marker, "");
+    }
+}
@@ -0,0 +1,54 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.enums.MaintenanceState;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Result (or progress) of a {@link StorageReconciliation} run.
+ *
+ * @param blobsOnDisk     bodies found in the blob directory
+ * @param blobsReferenced distinct blob keys referenced by {@code files} rows
+ * @param orphanBlobs     bodies no row references
+ * @param orphanBytes     disk space taken by them
+ * @param deletedBlobs    orphans removed in this run (only with {@code deleteOrphans})
+ * @param missingBlobs    referenced blobs without a body
+ * @param notMigrated     referenced blobs whose body is still under an older layout
+ * @param strayFiles      entries in the blob directory that are not blobs of the current layout
+ * @param legacyOrphans   files in the storage root that no row points to (never deleted)
+ * @param legacyMissing   rows stored under their own name whose file is gone
+ * @param payloadsOnDisk  entries in the OCR payload store
+ * @param orphanPayloads  payload store entries no OCR row references
+ * @param orphanPayloadBytes disk space taken by them
+ * @param deletedPayloads orphan payload entries removed in this run (only with {@code deleteOrphans})
+ * @param orphanSamples   paths of the first orphans found
+ * @param missingSamples  paths of the first missing files
+ */
+public record ReconciliationReport(
+        MaintenanceState state,
+        boolean deleteOrphans,
+        Instant startedAt,
+        Instant finishedAt,
+        long blobsOnDisk,
+        long blobsReferenced,
+        long orphanBlobs,
+        long orphanBytes,
+        long deletedBlobs,
+        long missingBlobs,
+        long notMigrated,
+        long strayFiles,
+        long legacyOrphans,
+        long legacyMissing,
+        long payloadsOnDisk,
+        long orphanPayloads,
+        long orphanPayloadBytes,
+        long deletedPayloads,
+        List<String> orphanSamples,
+        List<String> missingSamples
+) {
+    static ReconciliationReport none() {
+        return new ReconciliationReport(MaintenanceState.NEW, false, null, null, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                0, 0, 0, 0, List.of(), List.of());
+    }
+}
@@ -0,0 +1,75 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.util.TokenBucket;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Multi-lane queue that hands out items round-robin across lanes, one per lane per turn,
+ * skipping lanes that are empty or whose {@link TokenBucket} is exhausted.
+ * A busy lane therefore cannot starve the others.
+ */
+final class RoundRobinQueue<T> {
+
+    private final List<ArrayDeque<T>> lanes = new ArrayList<>();
+    private final List<TokenBucket> limits;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private int cursor;
+
+    RoundRobinQueue(List<TokenBucket> limits) {
+        this.limits = List.copyOf(limits);
+        for (int i = 0; i < limits.size(); i++) lanes.add(new ArrayDeque<>());
+    }
+
+    void offer(int lane, T item) {
+        lock.lock();
+        try {
+            lanes.get(lane).addLast(item);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int depth(int lane) {
+        lock.lock();
+        try {
+            return lanes.get(lane).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Waits up to {@code timeout} for the next item; returns null on timeout. */
+    T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                long wait = Long.MAX_VALUE;
+                for (int i = 0; i < lanes.size(); i++) {
+                    int lane = (cursor + i) % lanes.size();
+                    ArrayDeque<T> queue = lanes.get(lane);
+                    if (queue.isEmpty()) continue;
+                    TokenBucket limit = limits.get(lane);
+                    if (limit.tryAcquire(1)) {
+                        cursor = (lane + 1) % lanes.size();
+                        return queue.pollFirst();
+                    }
+                    wait = Math.min(wait, Math.max(1, limit.nanosUntilAvailable(1)));
+                }
+                if (remaining <= 0) return null;
+                long slept = Math.min(wait, remaining);
+                remaining -= slept - changed.awaitNanos(slept);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package de.flexis.mycontracts.service;
+
+import java.time.Instant;
+
+/**
+ * Outcome of one watcher scan.
+ *
+ * @param discovered OCR files found in the watch directory
+ * @param skipped    files that were already ingested or in flight
+ * @param matched    files matched to a stored file, on first sight or on retry
+ * @param pending    new files still waiting for their stored file
+ * @param failed     files that could not be ingested, or whose retries ran out
+ * @param retried    pending rows that got a retry attempt during this scan
+ * @param updated    already ingested files whose content changed and were re-ingested
+ * @param queued     files still in the pipeline when the scan stopped waiting ({@code watcher.scan-wait-ms});
+ *                   they are counted by the scan that sees them next
+ */
+public record ScanReport(
+        Instant startedAt,
+        long durationMs,
+        int discovered,
+        int skipped,
+        int matched,
+        int pending,
+        int failed,
+        int retried,
+        int updated,
+        int queued
+) {
+    public static ScanReport empty(Instant startedAt) {
+        return new ScanReport(startedAt, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+}
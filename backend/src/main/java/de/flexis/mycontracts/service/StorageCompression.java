@@ -0,0 +1,142 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.enums.StorageCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Optional at-rest compression of stored documents ({@code storage.compression.enabled}).
+ * <p>
+ * Content that is compressed already (JPEG, PNG, ZIP-based office files, ...) is recognized by its MIME
+ * type or leading bytes and stored as is; everything else (uncompressed TIFF scans, text-heavy PDFs) is
+ * deflated and kept only if that saves at least {@code storage.compression.min-savings-percent}.
+ */
+@Service
+public class StorageCompression {
+
+    // below this the zlib header and a file system block eat any gain
+    static final long MIN_SIZE = 4 * 1024;
+    // enough for the longest magic number below
+    static final int HEAD_SIZE = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final List<String> COMPRESSED_MIME_PREFIXES = List.of(
+            "image/jpeg", "image/png", "image/gif", "image/webp", "image/heic", "image/avif", "video/", "audio/",
+            "application/zip", "application/gzip", "application/x-gzip", "application/x-7z", "application/x-rar",
+            "application/x-bzip", "application/x-xz", "application/zstd",
+            "application/vnd.openxmlformats-officedocument", "application/vnd.oasis.opendocument");
+
+    // leading bytes of compressed formats, for uploads with a missing or generic MIME type
+    private static final byte[][] COMPRESSED_MAGIC = {
+            {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},               // JPEG
+            {(byte) 0x89, 'P', 'N', 'G'},                          // PNG
+            {'G', 'I', 'F', '8'},                                  // GIF
+            {'P', 'K', 3, 4},                                      // ZIP, docx, xlsx, odt
+            {(byte) 0x1F, (byte) 0x8B},                            // gzip
+            {'7', 'z', (byte) 0xBC, (byte) 0xAF},                  // 7z
+            {'R', 'a', 'r', '!'},                                  // RAR
+            {'B', 'Z', 'h'},                                       // bzip2
+            {(byte) 0xFD, '7', 'z', 'X', 'Z', 0},                  // xz
+            {(byte) 0x28, (byte) 0xB5, (byte) 0x2F, (byte) 0xFD},  // zstd
+    };
+
+    private final boolean enabled;
+    private final int level;
+    private final int minSavingsPercent;
+
+    public StorageCompression(@Value("${storage.compression.enabled:false}") boolean enabled,
+                              @Value("${storage.compression.level:6}") int level,
+                              @Value("${storage.compression.min-savings-percent:10}") int minSavingsPercent) {
+        this.enabled = enabled;
+        this.level = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, level));
+        this.minSavingsPercent = Math.max(0, Math.min(99, minSavingsPercent));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Whether deflating {@code file} is worth a try; false if disabled, too small or compressed already. */
+    public boolean shouldTry(Path file, long size, String mime) throws IOException {
+        if (!enabled || size < MIN_SIZE) return false;
+        byte[] head;
+        try (InputStream in = Files.newInputStream(file)) {
+            head = in.readNBytes(HEAD_SIZE);
+        }
+        return !isCompressedFormat(mime, head, head.length);
+    }
+
+    /** Whether content with this MIME type or these leading bytes is compressed already. */
+    static boolean isCompressedFormat(String mime, byte[] head, int length) {
+        if (mime != null) {
+            String m = mime.toLowerCase(Locale.ROOT);
+            for (String prefix : COMPRESSED_MIME_PREFIXES) {
+                if (m.startsWith(prefix)) return true;
+            }
+        }
+        for (byte[] magic : COMPRESSED_MAGIC) {
+            if (startsWith(head, length, magic)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Deflates {@code source} into {@code target}. Returns the compressed size, or -1 (and no
+     * {@code target}) if it did not save enough to be worth the decompression on every read.
+     */
+    public long deflate(Path source, long size, Path target) throws IOException {
+        Deflater deflater = new Deflater(level);
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new DeflaterOutputStream(Files.newOutputStream(target), deflater, BUFFER_SIZE)) {
+            in.transferTo(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        } finally {
+            deflater.end();
+        }
+        long packed = Files.size(target);
+        if (packed * 100 > size * (100 - minSavingsPercent)) {
+            Files.deleteIfExists(target);
+            return -1;
+        }
+        return packed;
+    }
+
+    /** Opens the original bytes of a body stored with {@code codec}. The caller closes the stream. */
+    public static InputStream open(Path path, StorageCodec codec) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        if (codec != StorageCodec.DEFLATE) return in;
+        Inflater inflater = new Inflater();
+        return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    private static boolean startsWith(byte[] head, int length, byte[] magic) {
+        if (length < magic.length) return false;
+        for (int i = 0; i < magic.length; i++) {
+            if (head[i] != magic[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,209 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.MaintenanceCheckpoint;
+import de.flexis.mycontracts.model.enums.MaintenanceState;
+import de.flexis.mycontracts.repository.MaintenanceCheckpointRepository;
+import de.flexis.mycontracts.repository.StoredFileRepository;
+import de.flexis.mycontracts.repository.StoredFileRepository.StorageEntry;
+import de.flexis.mycontracts.util.HashingIO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Online move of stored files into the current {@link BlobStore} layout: files saved under their own
+ * name before content addressing, and blobs saved under a different {@code storage.shard-*} setting.
+ * <p>
+ * Runs on a background thread in batches of {@code storage.migration.batch-size} rows, ordered by id.
+ * The last finished id is saved in a {@link MaintenanceCheckpoint} after each batch, so a stopped or
+ * crashed run continues from there; an interrupted run is resumed at startup. Rows are updated with
+ * targeted queries, so edits made by users in the meantime are not overwritten.
+ */
+@Service
+public class StorageLayoutMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageLayoutMigration.class);
+    static final String TASK = "storage-layout";
+
+    private final StoredFileRepository storedFileRepository;
+    private final MaintenanceCheckpointRepository checkpointRepository;
+    private final BlobStore blobStore;
+    private final int batchSize;
+    private final long pauseMs;
+
+    private volatile Thread worker;
+    private volatile boolean stopRequested;
+
+    public StorageLayoutMigration(StoredFileRepository storedFileRepository,
+                                  MaintenanceCheckpointRepository checkpointRepository,
+                                  BlobStore blobStore,
+                                  @Value("${storage.migration.batch-size:200}") int batchSize,
+                                  @Value("${storage.migration.pause-ms:0}") long pauseMs) {
+        this.storedFileRepository = storedFileRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.blobStore = blobStore;
+        this.batchSize = Math.max(1, batchSize);
+        this.pauseMs = Math.max(0, pauseMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        checkpointRepository.findById(TASK)
+                .filter(c -> c.getState() == MaintenanceState.RUNNING)
+                .ifPresent(c -> {
+                    log.info("Resuming storage layout migration after id {}", c.getCursor());
+                    start();
+                });
+    }
+
+    /**
+     * Starts the migration in the background, continuing a stopped or failed run for the same layout.
+     * A finished run, or one for another layout, starts over from the first row.
+     */
+    public synchronized MaintenanceStatus start() {
+        if (isRunning()) return status();
+        MaintenanceCheckpoint checkpoint = checkpointRepository.findById(TASK)
+                .orElseGet(() -> new MaintenanceCheckpoint(TASK, blobStore.layout()));
+        if (checkpoint.getState() == MaintenanceState.DONE || !blobStore.layout().equals(checkpoint.getDetail())) {
+            checkpoint.setDetail(blobStore.layout());
+            checkpoint.setCursor(null);
+            checkpoint.setProcessed(0);
+            checkpoint.setChanged(0);
+            checkpoint.setFailed(0);
+            checkpoint.setStartedAt(Instant.now());
+        }
+        if (checkpoint.getStartedAt() == null) checkpoint.setStartedAt(Instant.now());
+        checkpoint.setState(MaintenanceState.RUNNING);
+        checkpoint.setUpdatedAt(Instant.now());
+        MaintenanceCheckpoint saved = checkpointRepository.save(checkpoint);
+
+        stopRequested = false;
+        Thread t = new Thread(() -> run(saved), "storage-migration");
+        t.setDaemon(true);
+        worker = t;
+        t.start();
+        return MaintenanceStatus.from(saved);
+    }
+
+    /** Asks the migration to stop after the current batch. */
+    public MaintenanceStatus stop() {
+        stopRequested = true;
+        return status();
+    }
+
+    public MaintenanceStatus status() {
+        return checkpointRepository.findById(TASK)
+                .map(MaintenanceStatus::from)
+                .orElseGet(() -> MaintenanceStatus.from(new MaintenanceCheckpoint(TASK, blobStore.layout())));
+    }
+
+    public boolean isRunning() {
+        Thread t = worker;
+        return t != null && t.isAlive();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // leave the checkpoint RUNNING, so the next start resumes
+        Thread t = worker;
+        if (t != null) t.interrupt();
+    }
+
+    private void run(MaintenanceCheckpoint checkpoint) {
+        long after = checkpoint.getCursor() == null ? 0 : Long.parseLong(checkpoint.getCursor());
+        try {
+            while (!stopRequested && !Thread.currentThread().isInterrupted()) {
+                List<StorageEntry> batch = storedFileRepository.findStorageEntriesAfter(after, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    checkpoint.setState(MaintenanceState.DONE);
+                    break;
+                }
+                for (StorageEntry entry : batch) {
+                    try {
+                        if (migrate(entry)) checkpoint.setChanged(checkpoint.getChanged() + 1);
+                    } catch (IOException | RuntimeException e) {
+                        checkpoint.setFailed(checkpoint.getFailed() + 1);
+                        log.warn("Cannot migrate stored file {} ({}): {}", entry.getId(), entry.getPath(), e.toString());
+                    }
+                    after = entry.getId();
+                }
+                checkpoint.setProcessed(checkpoint.getProcessed() + batch.size());
+                checkpoint.setCursor(Long.toString(after));
+                checkpoint.setUpdatedAt(Instant.now());
+                checkpointRepository.save(checkpoint);
+                if (pauseMs > 0) Thread.sleep(pauseMs);
+            }
+            if (checkpoint.getState() != MaintenanceState.DONE) {
+                if (!stopRequested) return; // shutting down: stay RUNNING and resume on next start
+                checkpoint.setState(MaintenanceState.STOPPED);
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (RuntimeException e) {
+            log.error("Storage layout migration failed after id {}", after, e);
+            checkpoint.setState(MaintenanceState.FAILED);
+        }
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint);
+        if (checkpoint.getState() == MaintenanceState.DONE) {
+            log.info("Storage layout migration to {} done: {} files, {} moved, {} failed", checkpoint.getDetail(),
+                    checkpoint.getProcessed(), checkpoint.getChanged(), checkpoint.getFailed());
+        }
+    }
+
+    /** Returns true if the row's file was moved. */
+    private boolean migrate(StorageEntry entry) throws IOException {
+        Path current = Path.of(entry.getPath());
+        if (entry.getBlobKey() == null) {
+            migrateLegacy(entry, current);
+            return true;
+        }
+        if (current.equals(blobStore.pathFor(entry.getBlobKey()))) return false;
+        Path target = blobStore.relocate(entry.getBlobKey(), current);
+        // rows sharing the blob still point at the old location
+        storedFileRepository.updatePathByBlobKey(entry.getBlobKey(), target.toString());
+        return true;
+    }
+
+    private void migrateLegacy(StorageEntry entry, Path current) throws IOException {
+        if (!Files.exists(current)) throw new NoSuchFileException(current.toString());
+        // link, not move: older rows for a re-uploaded name may still point at the same file
+        Path tmp = blobStore.newTempPath();
+        try {
+            try {
+                Files.createLink(tmp, current);
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                Files.copy(current, tmp);
+            }
+            String sha256 = HashingIO.sha256(tmp);
+            long size = Files.size(tmp);
+            BlobStore.Stored blob = blobStore.store(tmp, sha256, size);
+            if (storedFileRepository.assignBlob(entry.getId(), entry.getPath(), blob.path().toString(), sha256, size,
+                    blob.codec(), blob.storedSize()) == 0) {
+                // deleted or changed while we were at it
+                blobStore.release(sha256, blob.path());
+                return;
+            }
+            if (entry.getChecksum() != null && !entry.getChecksum().equals(sha256)) {
+                log.warn("Stored file {} did not match its recorded checksum; it now refers to the content found on disk",
+                        entry.getId());
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        if (!storedFileRepository.existsByPath(current.toString())) Files.deleteIfExists(current);
+    }
+}
@@ -0,0 +1,381 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.enums.MaintenanceState;
+import de.flexis.mycontracts.repository.OcrFileRepository;
+import de.flexis.mycontracts.repository.StoredFileRepository;
+import de.flexis.mycontracts.repository.StoredFileRepository.BlobRefEntry;
+import de.flexis.mycontracts.repository.StoredFileRepository.LegacyEntry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds drift between the storage directory and the {@code files} table: bodies nobody references
+ * (a failed save, a crash during delete) and rows whose body is gone.
+ * <p>
+ * The blob directory is walked in key order ({@link BlobStore#walk}) and merge-joined with the
+ * referenced blob keys, read from the table in keyset pages in the same order, so memory stays
+ * constant however many files there are. With {@code deleteOrphans}, orphan bodies older than
+ * {@code storage.reconcile.min-age-hours} (younger ones may belong to an upload that is just being
+ * saved) are deleted in batches of {@code storage.reconcile.batch-size}, re-checked against the table
+ * and, per blob, under the {@link BlobStore} lock. Files stored under their own name before blobs
+ * existed are only reported.
+ * <p>
+ * The {@link OcrPayloadStore} is swept the same way: its entries are checked in batches against the
+ * {@code payloadRef} and {@code textRef} columns, and unreferenced ones (left behind by re-ingested or
+ * deleted OCR files) are deleted under the same rules.
+ * <p>
+ * A report-only run is scheduled every {@code storage.reconcile.interval-ms}; deletion on that run is
+ * enabled with {@code storage.reconcile.delete-orphans}.
+ */
+@Service
+public class StorageReconciliation {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageReconciliation.class);
+    private static final int MAX_SAMPLES = 100;
+    private static final int PUBLISH_EVERY = 1000;
+
+    private final StoredFileRepository storedFileRepository;
+    private final BlobStore blobStore;
+    private final OcrFileRepository ocrFileRepository;
+    private final OcrPayloadStore payloadStore;
+    private final boolean enabled;
+    private final boolean deleteOnSchedule;
+    private final Duration minAge;
+    private final int batchSize;
+
+    private volatile ReconciliationReport report = ReconciliationReport.none();
+    private volatile Thread worker;
+    private volatile boolean stopRequested;
+
+    public StorageReconciliation(StoredFileRepository storedFileRepository,
+                                 BlobStore blobStore,
+                                 OcrFileRepository ocrFileRepository,
+                                 OcrPayloadStore payloadStore,
+                                 @Value("${storage.reconcile.enabled:true}") boolean enabled,
+                                 @Value("${storage.reconcile.delete-orphans:false}") boolean deleteOnSchedule,
+                                 @Value("${storage.reconcile.min-age-hours:24}") long minAgeHours,
+                                 @Value("${storage.reconcile.batch-size:500}") int batchSize) {
+        this.storedFileRepository = storedFileRepository;
+        this.blobStore = blobStore;
+        this.ocrFileRepository = ocrFileRepository;
+        this.payloadStore = payloadStore;
+        this.enabled = enabled;
+        this.deleteOnSchedule = deleteOnSchedule;
+        this.minAge = Duration.ofHours(Math.max(0, minAgeHours));
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${storage.reconcile.interval-ms:86400000}",
+            initialDelayString = "${storage.reconcile.interval-ms:86400000}")
+    public void scheduledRun() {
+        if (enabled) start(deleteOnSchedule);
+    }
+
+    /** Starts a run in the background unless one is running; returns the current report. */
+    public synchronized ReconciliationReport start(boolean deleteOrphans) {
+        if (isRunning()) return report;
+        stopRequested = false;
+        Run run = new Run(deleteOrphans);
+        report = run.snapshot(MaintenanceState.RUNNING);
+        Thread t = new Thread(run::execute, "storage-reconciliation");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        worker = t;
+        t.start();
+        return report;
+    }
+
+    /** Asks a running reconciliation to stop; the report then shows state {@code STOPPED}. */
+    public ReconciliationReport stop() {
+        stopRequested = true;
+        return report;
+    }
+
+    /** Progress of the current run, or the result of the last one. Not kept across restarts. */
+    public ReconciliationReport report() {
+        return report;
+    }
+
+    public boolean isRunning() {
+        Thread t = worker;
+        return t != null && t.isAlive();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread t = worker;
+        if (t != null) t.interrupt();
+    }
+
+    private final class Run {
+        final boolean deleteOrphans;
+        final Instant startedAt = Instant.now();
+        final Instant cutoff;
+        long blobsOnDisk, blobsReferenced, orphanBlobs, orphanBytes, deletedBlobs, missingBlobs, notMigrated,
+                strayFiles, legacyOrphans, legacyMissing, payloadsOnDisk, orphanPayloads, orphanPayloadBytes,
+                deletedPayloads;
+        final List<String> orphanSamples = new ArrayList<>();
+        final List<String> missingSamples = new ArrayList<>();
+        final List<String> pendingDeletes = new ArrayList<>();
+        final Map<String, Path> payloadBatch = new LinkedHashMap<>();
+
+        Run(boolean deleteOrphans) {
+            this.deleteOrphans = deleteOrphans;
+            this.cutoff = startedAt.minus(minAge);
+        }
+
+        void execute() {
+            MaintenanceState state = MaintenanceState.DONE;
+            try {
+                blobStore.removeStaleTempFiles();
+                if (reconcileBlobs()) reconcileLegacy();
+                if (!stopRequested) reconcilePayloads();
+                if (stopRequested || Thread.currentThread().isInterrupted()) state = MaintenanceState.STOPPED;
+            } catch (IOException | RuntimeException e) {
+                log.error("Storage reconciliation failed", e);
+                state = MaintenanceState.FAILED;
+            }
+            report = snapshot(state);
+            log.info("Storage reconciliation {}: {} blobs on disk, {} referenced, {} orphans ({} bytes, {} deleted), "
+                            + "{} missing, {} not migrated, {} stray; legacy: {} orphans, {} missing; "
+                            + "OCR payloads: {} on disk, {} orphans ({} bytes, {} deleted)",
+                    state, blobsOnDisk, blobsReferenced, orphanBlobs, orphanBytes, deletedBlobs, missingBlobs,
+                    notMigrated, strayFiles, legacyOrphans, legacyMissing, payloadsOnDisk, orphanPayloads,
+                    orphanPayloadBytes, deletedPayloads);
+        }
+
+        /** Merge-join of the blob directory and the referenced keys; false if stopped. */
+        boolean reconcileBlobs() throws IOException {
+            BlobRefs refs = new BlobRefs();
+            boolean completed = true;
+            try {
+                blobStore.walk(new BlobStore.BlobVisitor() {
+                    @Override
+                    public boolean visitBlob(String sha256, Path path) throws IOException {
+                        blobsOnDisk++;
+                        while (refs.hasNext() && refs.peek().getBlobKey().compareTo(sha256) < 0) {
+                            unmatched(refs.next());
+                        }
+                        if (refs.hasNext() && refs.peek().getBlobKey().equals(sha256)) {
+                            refs.next();
+                            blobsReferenced++;
+                        } else {
+                            orphan(sha256, path);
+                        }
+                        if (blobsOnDisk % PUBLISH_EVERY == 0) report = snapshot(MaintenanceState.RUNNING);
+                        return !stopRequested && !Thread.currentThread().isInterrupted();
+                    }
+
+                    @Override
+                    public void visitStray(Path path) {
+                        strayFiles++;
+                        log.debug("Not a blob of the current layout: {}", path);
+                    }
+                });
+                if (stopRequested || Thread.currentThread().isInterrupted()) {
+                    completed = false;
+                } else {
+                    while (refs.hasNext()) unmatched(refs.next());
+                }
+            } finally {
+                deletePending();
+            }
+            return completed;
+        }
+
+        void orphan(String sha256, Path path) throws IOException {
+            orphanBlobs++;
+            orphanBytes += Files.size(path);
+            sample(orphanSamples, path.toString());
+            if (deleteOrphans && Files.getLastModifiedTime(path).toInstant().isBefore(cutoff)) {
+                pendingDeletes.add(sha256);
+                if (pendingDeletes.size() >= batchSize) deletePending();
+            }
+        }
+
+        /** A referenced blob that is not where the current layout puts it. */
+        void unmatched(BlobRefEntry ref) {
+            blobsReferenced++;
+            Path path = Path.of(ref.getPath());
+            if (!path.equals(blobStore.pathFor(ref.getBlobKey())) && Files.exists(path)) {
+                notMigrated++;
+                return;
+            }
+            missingBlobs++;
+            sample(missingSamples, ref.getPath());
+            log.warn("Blob {} is referenced but missing ({})", ref.getBlobKey(), ref.getPath());
+        }
+
+        void deletePending() {
+            if (pendingDeletes.isEmpty()) return;
+            // referenced meanwhile (an upload of the same content, finished after the merge saw the key)
+            Set<String> referenced = new HashSet<>(storedFileRepository.findReferencedBlobKeys(pendingDeletes));
+            for (String sha256 : pendingDeletes) {
+                if (referenced.contains(sha256)) continue;
+                try {
+                    if (blobStore.deleteOrphan(sha256)) deletedBlobs++;
+                } catch (IOException e) {
+                    log.warn("Cannot delete orphan blob {}: {}", sha256, e.toString());
+                }
+            }
+            pendingDeletes.clear();
+        }
+
+        /** Merge-join of the files directly in the storage root and the legacy rows, both in path order. */
+        void reconcileLegacy() throws IOException {
+            List<String> files;
+            try (var listing = Files.list(blobStore.storageRoot())) {
+                files = listing.filter(f -> Files.isRegularFile(f, LinkOption.NOFOLLOW_LINKS))
+                        .map(Path::toString)
+                        // String order is code point order here (SQLite's BINARY collation) for all but surrogate pairs
+                        .sorted()
+                        .toList();
+            }
+            LegacyRefs refs = new LegacyRefs();
+            int i = 0;
+            while (!stopRequested && !Thread.currentThread().isInterrupted()) {
+                boolean moreFiles = i < files.size();
+                boolean moreRows = refs.hasNext();
+                if (!moreFiles && !moreRows) break;
+                int c = !moreRows ? -1 : !moreFiles ? 1 : files.get(i).compareTo(refs.peek().getPath());
+                if (c < 0) {
+                    legacyOrphans++;
+                    sample(orphanSamples, files.get(i++));
+                } else if (c > 0) {
+                    // not in the root; rows from older setups may point elsewhere
+                    LegacyEntry entry = refs.next();
+                    if (!Files.exists(Path.of(entry.getPath()))) {
+                        legacyMissing++;
+                        sample(missingSamples, entry.getPath());
+                    }
+                } else {
+                    String path = files.get(i++);
+                    while (refs.hasNext() && refs.peek().getPath().equals(path)) refs.next();
+                }
+            }
+        }
+
+        /** Payload store entries against the OCR rows, a batch of keys per query pair. */
+        void reconcilePayloads() throws IOException {
+            payloadStore.walk((key, path) -> {
+                if (stopRequested || Thread.currentThread().isInterrupted()) return;
+                payloadsOnDisk++;
+                payloadBatch.put(key, path);
+                if (payloadBatch.size() >= batchSize) checkPayloads();
+            });
+            checkPayloads();
+        }
+
+        void checkPayloads() throws IOException {
+            if (payloadBatch.isEmpty()) return;
+            Set<String> referenced = new HashSet<>(ocrFileRepository.findReferencedPayloadRefs(payloadBatch.keySet()));
+            referenced.addAll(ocrFileRepository.findReferencedTextRefs(payloadBatch.keySet()));
+            for (Map.Entry<String, Path> e : payloadBatch.entrySet()) {
+                if (referenced.contains(e.getKey())) continue;
+                Path path = e.getValue();
+                try {
+                    orphanPayloads++;
+                    orphanPayloadBytes += Files.size(path);
+                    sample(orphanSamples, path.toString());
+                    // the pipeline writes a payload before its row, and reuse refreshes the mtime
+                    if (deleteOrphans && payloadStore.deleteOrphan(e.getKey(), cutoff)) deletedPayloads++;
+                } catch (NoSuchFileException ex) {
+                    // removed meanwhile
+                }
+            }
+            payloadBatch.clear();
+        }
+
+        void sample(List<String> samples, String path) {
+            if (samples.size() < MAX_SAMPLES) samples.add(path);
+        }
+
+        ReconciliationReport snapshot(MaintenanceState state) {
+            return new ReconciliationReport(state, deleteOrphans, startedAt,
+                    state == MaintenanceState.RUNNING ? null : Instant.now(),
+                    blobsOnDisk, blobsReferenced, orphanBlobs, orphanBytes, deletedBlobs, missingBlobs, notMigrated,
+                    strayFiles, legacyOrphans, legacyMissing, payloadsOnDisk, orphanPayloads, orphanPayloadBytes,
+                    deletedPayloads, List.copyOf(orphanSamples), List.copyOf(missingSamples));
+        }
+    }
+
+    /** Referenced blob keys in ascending order, read page by page. */
+    /** Legacy rows in path order, fetched a keyset page at a time. */
+    private final class LegacyRefs {
+        private List<LegacyEntry> page = List.of();
+        private int index;
+        private String afterPath = "";
+        private long afterId;
+        private boolean exhausted;
+
+        boolean hasNext() {
+            if (index < page.size()) return true;
+            if (exhausted) return false;
+            page = storedFileRepository.findLegacyEntriesAfter(afterPath, afterId, PageRequest.of(0, batchSize));
+            index = 0;
+            if (page.isEmpty()) {
+                exhausted = true;
+                return false;
+            }
+            LegacyEntry last = page.get(page.size() - 1);
+            afterPath = last.getPath();
+            afterId = last.getId();
+            return true;
+        }
+
+        LegacyEntry peek() {
+            return page.get(index);
+        }
+
+        LegacyEntry next() {
+            return page.get(index++);
+        }
+    }
+
+    private final class BlobRefs {
+        private List<BlobRefEntry> page = List.of();
+        private int index;
+        private String after = "";
+        private boolean exhausted;
+
+        boolean hasNext() {
+            if (index < page.size()) return true;
+            if (exhausted) return false;
+            page = storedFileRepository.findBlobRefsAfter(after, PageRequest.of(0, batchSize));
+            index = 0;
+            if (page.isEmpty()) {
+                exhausted = true;
+                return false;
+            }
+            after = page.get(page.size() - 1).getBlobKey();
+            return true;
+        }
+
+        BlobRefEntry peek() {
+            return page.get(index);
+        }
+
+        BlobRefEntry next() {
+            return page.get(index++);
+        }
+    }
+}
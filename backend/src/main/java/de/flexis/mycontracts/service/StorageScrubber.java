@@ -0,0 +1,303 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.MaintenanceCheckpoint;
+import de.flexis.mycontracts.model.enums.MaintenanceState;
+import de.flexis.mycontracts.model.enums.StorageCodec;
+import de.flexis.mycontracts.model.enums.StorageIntegrity;
+import de.flexis.mycontracts.repository.MaintenanceCheckpointRepository;
+import de.flexis.mycontracts.repository.StoredFileRepository;
+import de.flexis.mycontracts.repository.StoredFileRepository.StorageEntry;
+import de.flexis.mycontracts.util.HashingIO;
+import de.flexis.mycontracts.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipException;
+
+/**
+ * Background check of stored content against {@code StoredFile.checksum}, to catch bit rot and files
+ * changed or removed outside the app.
+ * <p>
+ * Walks the rows in id order in batches of {@code storage.scrub.batch-size}, checkpointing like
+ * {@link StorageLayoutMigration}, and re-hashes the decoded content at no more than
+ * {@code storage.scrub.bytes-per-second}. While a download is being served the scrubber pauses, so it
+ * never competes with users for disk bandwidth. Results are written to every row sharing the body
+ * ({@code integrity}, {@code verifiedAt}); rows already checked in the current pass are skipped.
+ * A new pass starts {@code storage.scrub.interval-days} after the last one finished.
+ * <p>
+ * In the {@link MaintenanceStatus}, {@code changed} counts flagged files (missing or mismatching) and
+ * {@code failed} files that could not be read.
+ */
+@Service
+public class StorageScrubber {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageScrubber.class);
+    static final String TASK = "storage-scrub";
+    private static final List<StorageIntegrity> FLAGGED = List.of(StorageIntegrity.MISMATCH, StorageIntegrity.MISSING);
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final long YIELD_SLEEP_MS = 100;
+
+    private final StoredFileRepository storedFileRepository;
+    private final MaintenanceCheckpointRepository checkpointRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration interval;
+    private final TokenBucket rateLimit;
+    // downloads in progress; the scrubber waits while this is above zero
+    private final AtomicInteger foreground = new AtomicInteger();
+
+    private final Counter scrubbedBytes;
+    private final Map<StorageIntegrity, Counter> results = new EnumMap<>(StorageIntegrity.class);
+    private final Counter errors;
+    private final AtomicLong flagged = new AtomicLong();
+
+    private volatile Thread worker;
+    private volatile boolean stopRequested;
+
+    public StorageScrubber(StoredFileRepository storedFileRepository,
+                           MaintenanceCheckpointRepository checkpointRepository,
+                           @Value("${storage.scrub.enabled:true}") boolean enabled,
+                           @Value("${storage.scrub.bytes-per-second:8388608}") long bytesPerSecond,
+                           @Value("${storage.scrub.batch-size:100}") int batchSize,
+                           @Value("${storage.scrub.interval-days:7}") long intervalDays,
+                           ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.storedFileRepository = storedFileRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.interval = Duration.ofDays(Math.max(1, intervalDays));
+        // one second worth of reads as burst
+        this.rateLimit = new TokenBucket(bytesPerSecond, Math.max(CHUNK_SIZE, bytesPerSecond));
+
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable(SimpleMeterRegistry::new);
+        this.scrubbedBytes = Counter.builder("storage.scrub.bytes")
+                .description("Bytes of stored content re-hashed by the scrubber")
+                .baseUnit("bytes")
+                .register(registry);
+        for (StorageIntegrity integrity : StorageIntegrity.values()) {
+            results.put(integrity, Counter.builder("storage.scrub.files")
+                    .description("Stored files checked by the scrubber, by result")
+                    .tag("result", integrity.name().toLowerCase())
+                    .register(registry));
+        }
+        this.errors = Counter.builder("storage.scrub.files")
+                .description("Stored files checked by the scrubber, by result")
+                .tag("result", "error")
+                .register(registry);
+        Gauge.builder("storage.scrub.flagged", flagged, AtomicLong::get)
+                .description("Stored files currently flagged as missing or not matching their checksum")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        flagged.set(storedFileRepository.countByIntegrityIn(FLAGGED));
+        // turning the scrubber off and restarting stops a pass that is in the way
+        if (!enabled) return;
+        checkpointRepository.findById(TASK)
+                .filter(c -> c.getState() == MaintenanceState.RUNNING)
+                .ifPresent(c -> {
+                    log.info("Resuming storage scrub after id {}", c.getCursor());
+                    start();
+                });
+    }
+
+    /** Starts a pass when none ran yet or the last one finished {@code storage.scrub.interval-days} ago. */
+    @Scheduled(fixedDelayString = "${storage.scrub.check-interval-ms:3600000}",
+            initialDelayString = "${storage.scrub.check-interval-ms:3600000}")
+    public void startWhenDue() {
+        if (!enabled || isRunning()) return;
+        MaintenanceCheckpoint checkpoint = checkpointRepository.findById(TASK).orElse(null);
+        boolean due = checkpoint == null
+                || checkpoint.getState() == MaintenanceState.NEW
+                || checkpoint.getState() == MaintenanceState.DONE
+                && checkpoint.getUpdatedAt().isBefore(Instant.now().minus(interval));
+        if (due) start();
+    }
+
+    /** Starts a pass in the background, continuing a stopped or failed one. A finished pass starts over. */
+    public synchronized MaintenanceStatus start() {
+        if (isRunning()) return status();
+        MaintenanceCheckpoint checkpoint = checkpointRepository.findById(TASK)
+                .orElseGet(() -> new MaintenanceCheckpoint(TASK, null));
+        if (checkpoint.getState() == MaintenanceState.DONE || checkpoint.getStartedAt() == null) {
+            checkpoint.setCursor(null);
+            checkpoint.setProcessed(0);
+            checkpoint.setChanged(0);
+            checkpoint.setFailed(0);
+            checkpoint.setStartedAt(Instant.now());
+        }
+        checkpoint.setState(MaintenanceState.RUNNING);
+        checkpoint.setUpdatedAt(Instant.now());
+        MaintenanceCheckpoint saved = checkpointRepository.save(checkpoint);
+
+        stopRequested = false;
+        Thread t = new Thread(() -> run(saved), "storage-scrub");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        worker = t;
+        t.start();
+        return MaintenanceStatus.from(saved);
+    }
+
+    /** Asks the scrubber to stop after the current file. */
+    public MaintenanceStatus stop() {
+        stopRequested = true;
+        return status();
+    }
+
+    public MaintenanceStatus status() {
+        return checkpointRepository.findById(TASK)
+                .map(MaintenanceStatus::from)
+                .orElseGet(() -> MaintenanceStatus.from(new MaintenanceCheckpoint(TASK, null)));
+    }
+
+    public boolean isRunning() {
+        Thread t = worker;
+        return t != null && t.isAlive();
+    }
+
+    /** Files whose last check found the body missing or changed. */
+    public List<IntegrityIssue> issues() {
+        return storedFileRepository.findByIntegrityInOrderById(FLAGGED).stream()
+                .map(IntegrityIssue::from)
+                .toList();
+    }
+
+    /** Marks the start of a foreground read (a download); pair with {@link #foregroundFinished()}. */
+    public void foregroundStarted() {
+        foreground.incrementAndGet();
+    }
+
+    public void foregroundFinished() {
+        foreground.decrementAndGet();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // leave the checkpoint RUNNING, so the next start resumes
+        Thread t = worker;
+        if (t != null) t.interrupt();
+    }
+
+    private void run(MaintenanceCheckpoint checkpoint) {
+        long after = checkpoint.getCursor() == null ? 0 : Long.parseLong(checkpoint.getCursor());
+        Instant passStarted = checkpoint.getStartedAt();
+        try {
+            outer:
+            while (!Thread.currentThread().isInterrupted()) {
+                List<StorageEntry> batch = storedFileRepository.findStorageEntriesAfter(after, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    checkpoint.setState(MaintenanceState.DONE);
+                    break;
+                }
+                for (StorageEntry entry : batch) {
+                    if (stopRequested) break outer;
+                    // checked already in this pass, through another row sharing the blob
+                    if (entry.getVerifiedAt() == null || entry.getVerifiedAt().isBefore(passStarted)) {
+                        scrub(entry, checkpoint);
+                    }
+                    after = entry.getId();
+                    checkpoint.setProcessed(checkpoint.getProcessed() + 1);
+                }
+                saveProgress(checkpoint, after);
+            }
+            if (checkpoint.getState() != MaintenanceState.DONE) {
+                if (!stopRequested) return; // shutting down: stay RUNNING and resume on next start
+                checkpoint.setState(MaintenanceState.STOPPED);
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (RuntimeException e) {
+            log.error("Storage scrub failed after id {}", after, e);
+            checkpoint.setState(MaintenanceState.FAILED);
+        }
+        saveProgress(checkpoint, after);
+        if (checkpoint.getState() == MaintenanceState.DONE) {
+            log.info("Storage scrub done: {} files, {} flagged, {} unreadable", checkpoint.getProcessed(),
+                    checkpoint.getChanged(), checkpoint.getFailed());
+        }
+    }
+
+    private void saveProgress(MaintenanceCheckpoint checkpoint, long after) {
+        if (after > 0) checkpoint.setCursor(Long.toString(after));
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint);
+        flagged.set(storedFileRepository.countByIntegrityIn(FLAGGED));
+    }
+
+    private void scrub(StorageEntry entry, MaintenanceCheckpoint checkpoint) throws InterruptedException {
+        String expected = entry.getChecksum() != null ? entry.getChecksum() : entry.getBlobKey();
+        if (expected == null) return; // legacy row without checksum: nothing to compare against
+        StorageIntegrity integrity;
+        try {
+            integrity = verify(Path.of(entry.getPath()), entry.getCodec(), expected);
+        } catch (IOException e) {
+            errors.increment();
+            checkpoint.setFailed(checkpoint.getFailed() + 1);
+            log.warn("Cannot scrub stored file {} ({}): {}", entry.getId(), entry.getPath(), e.toString());
+            return;
+        }
+        // the file may have been deleted (and its blob with it) while we read
+        if (integrity == StorageIntegrity.MISSING && !storedFileRepository.existsById(entry.getId())) return;
+
+        Instant now = Instant.now();
+        if (entry.getBlobKey() != null) {
+            storedFileRepository.markIntegrityByBlobKey(entry.getBlobKey(), integrity, now);
+        } else {
+            storedFileRepository.markIntegrity(entry.getId(), integrity, now);
+        }
+        results.get(integrity).increment();
+        if (integrity != StorageIntegrity.OK) {
+            checkpoint.setChanged(checkpoint.getChanged() + 1);
+            log.warn("Stored file {} failed its integrity check: {} ({})", entry.getId(), integrity, entry.getPath());
+        }
+    }
+
+    private StorageIntegrity verify(Path path, StorageCodec codec, String expected) throws IOException, InterruptedException {
+        if (!Files.exists(path)) return StorageIntegrity.MISSING;
+        MessageDigest md = HashingIO.newSha256();
+        byte[] buf = new byte[CHUNK_SIZE];
+        try (InputStream in = StorageCompression.open(path, codec != null ? codec : StorageCodec.NONE)) {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                while (foreground.get() > 0) Thread.sleep(YIELD_SLEEP_MS);
+                rateLimit.acquire(n);
+                md.update(buf, 0, n);
+                scrubbedBytes.increment(n);
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+            }
+        } catch (NoSuchFileException e) {
+            return StorageIntegrity.MISSING;
+        } catch (ZipException e) {
+            // compressed body damaged beyond decoding
+            return StorageIntegrity.MISMATCH;
+        }
+        return HashingIO.hex(md).equalsIgnoreCase(expected) ? StorageIntegrity.OK : StorageIntegrity.MISMATCH;
+    }
+}
@@ -0,0 +1,87 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.repository.StoredFileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory basename -> file id index used to match OCR sidecars to stored files.
+ * Kept current by {@link FileStorageService} on store/delete; rows written by other paths
+ * are picked up through an indexed lookup on the basename column when the map misses.
+ */
+@Service
+public class StoredFileIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(StoredFileIndex.class);
+
+    private final StoredFileRepository storedFileRepository;
+    private final Map<String, Long> idsByBasename = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public StoredFileIndex(StoredFileRepository storedFileRepository) {
+        this.storedFileRepository = storedFileRepository;
+    }
+
+    public Optional<Long> findIdByBasename(String basename) {
+        if (basename == null) return Optional.empty();
+        ensureLoaded();
+        Long id = idsByBasename.get(basename);
+        if (id != null) return Optional.of(id);
+        id = storedFileRepository.findFirstIdByBasename(basename);
+        if (id != null) idsByBasename.merge(basename, id, Math::min);
+        return Optional.ofNullable(id);
+    }
+
+    /** Resolves the matching stored file; stale ids (row deleted elsewhere) are evicted. */
+    public Optional<StoredFile> findByBasename(String basename) {
+        Long id = findIdByBasename(basename).orElse(null);
+        if (id == null) return Optional.empty();
+        Optional<StoredFile> file = storedFileRepository.findById(id);
+        if (file.isEmpty()) evict(basename, id);
+        return file;
+    }
+
+    public void register(StoredFile file) {
+        if (file.getId() == null || file.getBasename() == null) return;
+        // first stored file wins, matching the previous findAll() iteration order
+        idsByBasename.merge(file.getBasename(), file.getId(), Math::min);
+    }
+
+    public void unregister(StoredFile file) {
+        if (file.getId() == null || file.getBasename() == null) return;
+        idsByBasename.remove(file.getBasename(), file.getId());
+    }
+
+    /** Drops a mapping whose row has disappeared without going through {@link #unregister}. */
+    public void evict(String basename, Long id) {
+        idsByBasename.remove(basename, id);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        synchronized (this) {
+            if (loaded) return;
+            backfillBasenames();
+            for (StoredFileRepository.BasenameEntry e : storedFileRepository.findBasenameEntries()) {
+                idsByBasename.merge(e.getBasename(), e.getId(), Math::min);
+            }
+            loaded = true;
+            log.info("Loaded basename index with {} entries", idsByBasename.size());
+        }
+    }
+
+    private void backfillBasenames() {
+        List<StoredFile> batch;
+        while (!(batch = storedFileRepository.findTop500ByBasenameIsNull()).isEmpty()) {
+            batch.forEach(StoredFile::updateBasename);
+            storedFileRepository.saveAll(batch);
+        }
+    }
+}
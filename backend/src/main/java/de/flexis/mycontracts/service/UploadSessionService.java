@@ -0,0 +1,245 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.UploadSession;
+import de.flexis.mycontracts.repository.UploadSessionRepository;
+import de.flexis.mycontracts.util.HashingIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable uploads for files above the single-request limit: the client announces the file, sends
+ * it in chunks at explicit offsets (re-sending a chunk after a dropped connection) and completes it.
+ * <p>
+ * Chunks are appended to a staging file in {@code FILE_STORAGE_PATH/.uploads} while the SHA-256 is
+ * updated, so completing does not read the file again; it is moved into {@link BlobStore} as is.
+ * The running digest is kept in memory only and rebuilt from the staging file once after a restart.
+ * Sessions without a chunk for {@code upload.session-ttl-hours} are removed.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSessionService.class);
+    static final String STAGING_DIR = ".uploads";
+
+    private final UploadSessionRepository sessionRepository;
+    private final FileStorageService fileStorageService;
+    private final Path stagingDir;
+    private final long maxSizeBytes;
+    private final Duration ttl;
+    // per session: lock and digest of the staging file up to `position`
+    private final ConcurrentHashMap<String, Staging> staging = new ConcurrentHashMap<>();
+
+    private static final class Staging {
+        MessageDigest digest;
+        long position = -1;
+    }
+
+    public UploadSessionService(UploadSessionRepository sessionRepository,
+                                FileStorageService fileStorageService,
+                                @Value("${FILE_STORAGE_PATH:${user.dir}/data/files}") String storagePath,
+                                @Value("${upload.max-size-bytes:1073741824}") long maxSizeBytes,
+                                @Value("${upload.session-ttl-hours:24}") long ttlHours) throws IOException {
+        this.sessionRepository = sessionRepository;
+        this.fileStorageService = fileStorageService;
+        this.stagingDir = Files.createDirectories(Path.of(storagePath).toAbsolutePath().normalize().resolve(STAGING_DIR));
+        this.maxSizeBytes = maxSizeBytes;
+        this.ttl = Duration.ofHours(Math.max(1, ttlHours));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the size is out of bounds or the name is invalid
+     */
+    public UploadStatus create(String filename, String mime, long size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        if (size > maxSizeBytes) {
+            throw new IllegalArgumentException("File too large");
+        }
+        String name = FileStorageService.sanitizeFilename(filename);
+        UploadSession session = sessionRepository.save(new UploadSession(UUID.randomUUID().toString(), name, mime, size));
+        return UploadStatus.from(session, ttl);
+    }
+
+    /** @throws NoSuchElementException if there is no such upload (finished, aborted or expired) */
+    public UploadStatus status(String id) {
+        return UploadStatus.from(find(id), ttl);
+    }
+
+    /**
+     * Appends a chunk at {@code offset}. A chunk that broke off is simply sent again from the
+     * offset in {@link #status}; whatever part of it arrived is overwritten.
+     *
+     * @throws IllegalStateException    if {@code offset} is not the number of bytes received so far
+     * @throws IllegalArgumentException if the chunk goes beyond the announced size
+     * @throws NoSuchElementException   if there is no such upload
+     */
+    public UploadStatus append(String id, long offset, InputStream in) throws IOException {
+        Staging st = staging.computeIfAbsent(id, k -> new Staging());
+        synchronized (st) {
+            UploadSession session = find(id);
+            if (offset != session.getReceived()) {
+                throw new IllegalStateException("Expected offset " + session.getReceived());
+            }
+            Path file = stagingFile(id);
+            MessageDigest md = copyOf(digestUpTo(st, id, offset));
+            long n;
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // drop the tail of an earlier chunk that was never confirmed
+                ch.truncate(offset);
+                ch.position(offset);
+                n = HashingIO.update(md, in, Channels.newOutputStream(ch), session.getSize() - offset);
+            }
+            Instant now = Instant.now();
+            if (sessionRepository.advance(id, offset, offset + n, now) == 0) {
+                // another instance appended from the same offset
+                st.position = -1;
+                throw new IllegalStateException("Upload changed concurrently");
+            }
+            st.digest = md;
+            st.position = offset + n;
+            // not status(id): the loaded entity does not see the bulk update
+            return new UploadStatus(id, session.getFilename(), session.getSize(), offset + n, now.plus(ttl));
+        }
+    }
+
+    /**
+     * Stores the received file. With {@code expectedSha256}, a mismatch discards the upload.
+     *
+     * @throws IllegalStateException    if not all bytes were received yet
+     * @throws IllegalArgumentException if the checksum does not match
+     * @throws NoSuchElementException   if there is no such upload
+     */
+    public StoredFile complete(String id, String expectedSha256) throws IOException {
+        Staging st = staging.computeIfAbsent(id, k -> new Staging());
+        synchronized (st) {
+            UploadSession session = find(id);
+            if (session.getReceived() != session.getSize()) {
+                throw new IllegalStateException("Upload incomplete");
+            }
+            Path file = stagingFile(id);
+            String sha256 = HashingIO.hex(copyOf(digestUpTo(st, id, session.getSize())));
+            if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+                discard(id);
+                throw new IllegalArgumentException("Checksum mismatch");
+            }
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.truncate(session.getSize());
+            }
+            StoredFile stored = fileStorageService.storeStaged(file, new HashingIO.HashedCopy(session.getSize(), sha256),
+                    session.getFilename(), session.getMime());
+            discard(id);
+            return stored;
+        }
+    }
+
+    /** @throws NoSuchElementException if there is no such upload */
+    public void abort(String id) throws IOException {
+        find(id);
+        discard(id);
+    }
+
+    @Scheduled(fixedDelayString = "${upload.gc-interval-ms:3600000}")
+    public void purgeAbandoned() {
+        Instant cutoff = Instant.now().minus(ttl);
+        int purged = 0;
+        for (UploadSession session : sessionRepository.findByUpdatedAtBefore(cutoff)) {
+            try {
+                discard(session.getId());
+                purged++;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Cannot remove abandoned upload {}: {}", session.getId(), e.toString());
+            }
+        }
+        // staging files whose session row is gone (crash between the two deletes)
+        try (var files = Files.list(stagingDir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".part")
+                        && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)
+                        && !sessionRepository.existsById(name.substring(0, name.length() - ".part".length()))) {
+                    Files.deleteIfExists(file);
+                    purged++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot clean up {}", stagingDir, e);
+        }
+        if (purged > 0) log.info("Removed {} abandoned uploads", purged);
+    }
+
+    private UploadSession find(String id) {
+        return sessionRepository.findById(id).orElseThrow(() -> new NoSuchElementException("Upload not found"));
+    }
+
+    private Path stagingFile(String id) {
+        return stagingDir.resolve(id + ".part");
+    }
+
+    private void discard(String id) throws IOException {
+        Staging st = staging.computeIfAbsent(id, k -> new Staging());
+        synchronized (st) {
+            sessionRepository.deleteById(id);
+            Files.deleteIfExists(stagingFile(id));
+            staging.remove(id);
+        }
+    }
+
+    /** Digest of the first {@code offset} bytes of the staging file; reads the file only if not cached. */
+    private MessageDigest digestUpTo(Staging st, String id, long offset) throws IOException {
+        Path file = stagingFile(id);
+        long onDisk = Files.exists(file) ? Files.size(file) : 0;
+        if (onDisk < offset) {
+            log.warn("Staging file of upload {} is shorter than recorded, discarding the upload", id);
+            discard(id);
+            throw new NoSuchElementException("Upload data lost");
+        }
+        if (st.digest != null && st.position == offset) return st.digest;
+
+        // first chunk, or first chunk after a restart
+        MessageDigest md = HashingIO.newSha256();
+        if (offset > 0) {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+                for (long pos = 0; pos < offset; ) {
+                    buf.clear().limit((int) Math.min(buf.capacity(), offset - pos));
+                    int r = ch.read(buf, pos);
+                    if (r < 0) throw new IOException("Staging file ended early");
+                    buf.flip();
+                    md.update(buf);
+                    pos += r;
+                }
+            }
+        }
+        st.digest = md;
+        st.position = offset;
+        return md;
+    }
+
+    private static MessageDigest copyOf(MessageDigest md) {
+        try {
+            return (MessageDigest) md.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
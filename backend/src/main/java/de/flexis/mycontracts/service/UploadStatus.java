@@ -0,0 +1,20 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.UploadSession;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/** State of a resumable upload as reported to the client; {@code received} is the next chunk's offset. */
+public record UploadStatus(
+        String id,
+        String filename,
+        long size,
+        long received,
+        Instant expiresAt
+) {
+    static UploadStatus from(UploadSession session, Duration ttl) {
+        return new UploadStatus(session.getId(), session.getFilename(), session.getSize(), session.getReceived(),
+                session.getUpdatedAt().plus(ttl));
+    }
+}
@@ -1,77 +1,157 @@
 package de.flexis.mycontracts.service;
 
 import de.flexis.mycontracts.model.OcrFile;
-import de.flexis.mycontracts.model.StoredFile;
 import de.flexis.mycontracts.model.enums.OcrStatus;
 import de.flexis.mycontracts.repository.OcrFileRepository;
-import de.flexis.mycontracts.repository.StoredFileRepository;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.stereotype.Service;
+import de.flexis.mycontracts.util.HashingIO;
+import de.flexis.mycontracts.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
-import java.util.HexFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class WatcherService {
 
-    private final Path watchDir;
-    private final StoredFileRepository storedFileRepository;
+    private static final String OCR_SUFFIX = OcrIngestionPipeline.OCR_SUFFIX;
+
+    private final List<WatchRoot> roots = new ArrayList<>();
     private final OcrFileRepository ocrFileRepository;
-    private final io.micrometer.core.instrument.Counter matchedCounter;
-    private final io.micrometer.core.instrument.Counter pendingCounter;
-    private final io.micrometer.core.instrument.Counter failedCounter;
-    private final io.micrometer.core.instrument.Counter retryCounter;
+    private final OcrIngestionPipeline pipeline;
+    private final OcrRetryScheduler retryScheduler;
 
-    // configuration
-    @org.springframework.beans.factory.annotation.Value("${watcher.max-retries:5}")
-    private int maxRetries;
+    // event-driven mode: react to WatchService events, fall back to a slow reconcile scan
+    @Value("${watcher.event-driven:true}")
+    private boolean eventDriven;
 
-    @org.springframework.beans.factory.annotation.Value("${watcher.retry-backoff-ms:5000}")
-    private long retryBackoffMs;
+    @Value("${watcher.stability-ms:1000}")
+    private long stabilityMs;
+
+    @Value("${watcher.reconcile-interval-ms:300000}")
+    private long reconcileIntervalMs;
+
+    // how long a scan waits for its files; runs on the shared scheduler, so it must not block until a big drop drains
+    @Value("${watcher.scan-wait-ms:30000}")
+    private long scanWaitMs;
 
     private boolean enabled = true;
 
-    public WatcherService(@Value("${WATCH_DIR:${user.dir}/data/incoming}") String watchDir,
-                         StoredFileRepository storedFileRepository,
+    // fingerprint cache of all ingested OCR files by path; reloaded with one query per full scan
+    private final Map<String, KnownFile> known = new ConcurrentHashMap<>();
+    // paths handed to the pipeline but not yet persisted
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile boolean knownLoaded;
+    // discovered files per root, handed to the shared pipeline round-robin so a busy root cannot starve the others
+    private final RoundRobinQueue<Discovered> dispatchQueue;
+    private final Thread dispatcher;
+    private volatile boolean dispatching = true;
+    private volatile boolean running;
+    private volatile boolean reconcileRequested = true;
+    private volatile long nextReconcileAt;
+    private volatile ScanReport lastScan;
+
+    private final Timer scanTimer;
+    // gauge value is refreshed by scans instead of querying on every scrape
+    private final AtomicLong pendingBacklog = new AtomicLong();
+
+    public WatcherService(@Value("${WATCH_DIRS:${WATCH_DIR:${user.dir}/data/incoming}}") String watchDirs,
+                         @Value("${watcher.root-rate-limit:0}") double rootRateLimit,
                          OcrFileRepository ocrFileRepository,
-                         ObjectProvider<MeterRegistry> meterRegistryProvider) throws IOException {
-        this.watchDir = Path.of(watchDir);
-        this.storedFileRepository = storedFileRepository;
+                         OcrIngestionPipeline pipeline,
+                         OcrRetryScheduler retryScheduler,
+                         ObjectProvider<MeterRegistry> meterRegistryProvider) {
         this.ocrFileRepository = ocrFileRepository;
+        this.pipeline = pipeline;
+        this.retryScheduler = retryScheduler;
         MeterRegistry registry = meterRegistryProvider.getIfAvailable(SimpleMeterRegistry::new);
-        this.matchedCounter = registry.counter("watcher.ocr.matched");
-        this.pendingCounter = registry.counter("watcher.ocr.pending");
-        this.failedCounter = registry.counter("watcher.ocr.failed");
-        this.retryCounter = registry.counter("watcher.ocr.retry");
-        try {
-            Files.createDirectories(this.watchDir);
-        } catch (IOException e) {
-            // If we cannot create/watch the directory (e.g., permission denied), disable the watcher
-            // so the application can still start and tests that don't use the watcher won't fail.
+        this.scanTimer = Timer.builder("watcher.scan.duration")
+                .description("Duration of a full watch directory scan")
+                .register(registry);
+        Gauge.builder("watcher.pending.backlog", pendingBacklog, AtomicLong::get)
+                .description("OCR files waiting for a matching upload")
+                .register(registry);
+
+        for (String dir : watchDirs.split(",")) {
+            if (dir.isBlank()) continue;
+            Path path = Path.of(dir.trim()).toAbsolutePath().normalize();
+            if (roots.stream().anyMatch(r -> r.dir.equals(path))) continue;
+            try {
+                Files.createDirectories(path);
+            } catch (IOException e) {
+                // If we cannot create/watch the directory (e.g., permission denied), skip it
+                // so the application can still start and tests that don't use the watcher won't fail.
+                org.slf4j.LoggerFactory.getLogger(WatcherService.class)
+                        .warn("Skipping watch root {}, cannot access it: {}", path, e.toString());
+                continue;
+            }
+            roots.add(new WatchRoot(roots.size(), path, new TokenBucket(rootRateLimit, Math.max(1, rootRateLimit)), registry));
+        }
+        if (roots.isEmpty()) {
             this.enabled = false;
             org.slf4j.LoggerFactory.getLogger(WatcherService.class)
-                    .warn("Watcher disabled, cannot access WATCH_DIR {}: {}", this.watchDir, e.toString());
-            return;
+                    .warn("Watcher disabled, no accessible directory in WATCH_DIRS/WATCH_DIR ({})", watchDirs);
+        }
+        this.dispatchQueue = new RoundRobinQueue<>(roots.stream().map(r -> r.rateLimit).toList());
+        for (WatchRoot root : roots) {
+            Gauge.builder("watcher.root.queue.depth", dispatchQueue, q -> q.depth(root.index))
+                    .description("Discovered OCR files waiting for the shared pipeline")
+                    .tag("root", root.tag)
+                    .register(registry);
         }
+        this.dispatcher = new Thread(this::dispatchLoop, "ocr-watch-dispatch");
+        this.dispatcher.setDaemon(true);
+        if (enabled) this.dispatcher.start();
     }
 
-    // scheduled scan runs every 5s by default
+    // scheduled scan runs every 5s by default; in event-driven mode the full directory scan
+    // only runs as a reconcile pass (interval elapsed or WatchService overflow)
     @Scheduled(fixedDelayString = "${watcher.scan-interval-ms:5000}")
     public void scheduledScan() {
         if (!enabled) return;
         try {
-            scanOnce();
+            long now = System.currentTimeMillis();
+            if (!isEventDriven() || reconcileRequested || now >= nextReconcileAt) {
+                reconcileRequested = false;
+                nextReconcileAt = now + reconcileIntervalMs;
+                scanOnce();
+            } else {
+                processPending();
+            }
         } catch (Exception e) {
             // avoid crashing scheduler
             org.slf4j.LoggerFactory.getLogger(WatcherService.class).error("Watcher scan failed", e);
@@ -79,106 +159,385 @@ public class WatcherService {
     }
 
     // public for tests
-    public List<OcrFile> scanOnce() throws IOException {
-        if (!enabled) return List.of();
-        List<Path> ocrFiles = Files.list(watchDir)
-                .filter(p -> p.getFileName().toString().endsWith("_ocr.json"))
-                .collect(Collectors.toList());
-
-        for (Path p : ocrFiles) {
-            String pathStr = p.toAbsolutePath().toString();
-            // skip if already processed and present in DB
-            if (ocrFileRepository.findByPath(pathStr).isPresent()) continue;
-
-            String rawJson = Files.readString(p);
-            OcrFile of = new OcrFile(pathStr, rawJson);
-            of.setChecksum(computeChecksum(p));
-
-            // determine basename (strip suffix _ocr.json)
-            String filename = p.getFileName().toString();
-            String base = filename.substring(0, filename.length() - "_ocr.json".length());
-
-            // try to find matching stored file (by filename base without extension)
-            StoredFile matched = findMatchingStoredFile(base);
-            if (matched != null) {
-                of.setMatchedFile(matched);
-                of.setStatus(OcrStatus.MATCHED);
-                of.setProcessedAt(Instant.now());
-                matchedCounter.increment();
-            } else {
-                of.setStatus(OcrStatus.PENDING);
-                pendingCounter.increment();
+    public ScanReport scanOnce() throws IOException {
+        Instant startedAt = Instant.now();
+        if (!enabled) return ScanReport.empty(startedAt);
+        long start = System.nanoTime();
+        List<Map<Path, FileSnapshot>> listings = new ArrayList<>(roots.size());
+        int discovered = 0;
+        for (WatchRoot root : roots) {
+            Map<Path, FileSnapshot> listing = root.list();
+            listings.add(listing);
+            discovered += listing.size();
+        }
+
+        refreshKnown();
+        List<Submission> submitted = new ArrayList<>();
+        int skipped = 0;
+        try {
+            for (int i = 0; i < roots.size(); i++) {
+                for (Map.Entry<Path, FileSnapshot> entry : listings.get(i).entrySet()) {
+                    Submission sub = submitIfChanged(roots.get(i), entry.getKey(), entry.getValue());
+                    if (sub != null) submitted.add(sub);
+                    else skipped++;
+                }
             }
+            // wait (bounded) for this scan's files so callers see them persisted; the rest keeps going
+            // in the pipeline and is counted as queued
+            CompletableFuture.allOf(submitted.stream().map(Submission::result).toArray(CompletableFuture[]::new))
+                    .exceptionally(ex -> null)
+                    .get(scanWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // individual failures are logged by submitIfChanged()
+        } catch (TimeoutException e) {
+            org.slf4j.LoggerFactory.getLogger(WatcherService.class)
+                    .info("Scan stopped waiting after {} ms, files still in the pipeline", scanWaitMs);
+        }
 
-            ocrFileRepository.save(of);
+        int matched = 0, pending = 0, failed = 0, updated = 0, queued = 0;
+        for (Submission sub : submitted) {
+            CompletableFuture<OcrFile> f = sub.result();
+            if (!f.isDone()) {
+                queued++;
+                continue;
+            }
+            if (f.isCompletedExceptionally()) {
+                failed++;
+                continue;
+            }
+            OcrFile of = f.getNow(null);
+            if (of == null) skipped++; // unchanged content, or lost a race against another writer
+            else if (sub.update()) updated++;
+            else if (of.getStatus() == OcrStatus.MATCHED) matched++;
+            else pending++;
         }
 
         // attempt to rematch pending OCRs on each scan
-        processPending();
+        OcrRetryScheduler.RetryBatch retries = retryScheduler.processDue();
+        pendingBacklog.set(ocrFileRepository.countByStatus(OcrStatus.PENDING));
 
-        return ocrFileRepository.findAll();
+        long elapsed = System.nanoTime() - start;
+        scanTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        ScanReport report = new ScanReport(startedAt,
+                TimeUnit.NANOSECONDS.toMillis(elapsed),
+                discovered, skipped,
+                matched + retries.matched(), pending,
+                failed + retries.failed(), retries.attempted(), updated, queued);
+        lastScan = report;
+        return report;
     }
 
-    private void processPending() {
-        List<de.flexis.mycontracts.model.OcrFile> pending = ocrFileRepository.findByStatus(de.flexis.mycontracts.model.enums.OcrStatus.PENDING);
-        for (var of : pending) {
+    /** Result of the most recent full scan, or null before the first one. */
+    public ScanReport getLastScan() {
+        return lastScan;
+    }
+
+    /** Paginated OCR listing without raw JSON, optionally filtered by status. */
+    public Page<OcrFileRepository.OcrFileSummary> listOcrFiles(OcrStatus status, Pageable pageable) {
+        return status == null
+                ? ocrFileRepository.findSummaries(pageable)
+                : ocrFileRepository.findSummariesByStatus(status, pageable);
+    }
+
+    /** Configured watch roots that are accessible. */
+    public List<Path> getWatchRoots() {
+        return roots.stream().map(r -> r.dir).toList();
+    }
+
+    /**
+     * Queues an OCR file for the shared pipeline if it is new or its fingerprint changed.
+     * Returns null if it is unchanged or already in flight.
+     * <p>
+     * Size and mtime come from the directory listing; only when they differ is the file read
+     * for its fast digest (CRC32C over the whole content), and only when that differs too is it
+     * re-ingested (the pipeline then compares SHA-256 before touching the row).
+     */
+    private Submission submitIfChanged(WatchRoot root, Path p, FileSnapshot snapshot) {
+        String pathStr = p.toAbsolutePath().toString();
+        if (!knownLoaded) refreshKnown();
+        KnownFile previous = known.get(pathStr);
+        if (previous != null) {
+            if (previous.sameStat(snapshot)) return null;
+            if (previous.sourceSize() != null && previous.sourceSize() == snapshot.size()
+                    && previous.fastDigest() != null && previous.fastDigest().equals(fastDigest(p))) {
+                // touched, content unchanged: only the mtime moves
+                ocrFileRepository.updateFingerprint(previous.id(), snapshot.size(),
+                        Instant.ofEpochMilli(snapshot.modifiedMillis()), previous.fastDigest());
+                known.put(pathStr, previous.withStat(snapshot));
+                return null;
+            }
+        }
+        if (!inFlight.add(pathStr)) return null;
+        CompletableFuture<OcrFile> result = new CompletableFuture<>();
+        dispatchQueue.offer(root.index, new Discovered(root, p, previous, result));
+        result.whenComplete((of, ex) -> {
+            // a failed read leaves the cache untouched so the next reconcile scan retries it
+            if (ex == null) {
+                if (of != null) known.put(pathStr, KnownFile.of(of));
+                else if (previous != null) known.put(pathStr, previous.withStat(snapshot));
+            }
+            inFlight.remove(pathStr);
+            if (ex != null && !(ex instanceof NoSuchFileException)) {
+                org.slf4j.LoggerFactory.getLogger(WatcherService.class).warn("Failed to ingest OCR {}", p, ex);
+            }
+        });
+        return new Submission(result, previous != null);
+    }
+
+    private static String fastDigest(Path p) {
+        try {
+            return HashingIO.fastDigest(p);
+        } catch (IOException e) {
+            return null; // treat as changed; the pipeline read reports the real error
+        }
+    }
+
+    private void dispatchLoop() {
+        while (dispatching) {
             try {
-                Instant now = Instant.now();
-                if (of.getLastAttempt() != null && now.isBefore(of.getLastAttempt().plusMillis(retryBackoffMs))) {
-                    continue; // respect backoff window
-                }
+                Discovered next = dispatchQueue.poll(500, TimeUnit.MILLISECONDS);
+                if (next == null) continue;
+                next.root.dispatched.increment();
+                // blocks while the pipeline is saturated; discovery keeps queueing per root
+                CompletableFuture<OcrFile> ingest = next.previous == null
+                        ? pipeline.submit(next.path)
+                        : pipeline.submit(next.path, next.previous.id(), next.previous.checksum());
+                ingest.whenComplete((of, ex) -> {
+                    if (ex != null) next.result.completeExceptionally(ex);
+                    else next.result.complete(of);
+                });
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                org.slf4j.LoggerFactory.getLogger(WatcherService.class).warn("Failed to submit OCR for ingestion", e);
+            }
+        }
+    }
 
-                // extract filename from path
-                Path p = Path.of(of.getPath());
-                String filename = p.getFileName().toString();
-                String base = filename;
-                if (base.endsWith("_ocr.json")) base = base.substring(0, base.length() - "_ocr.json".length());
-
-                StoredFile matched = findMatchingStoredFile(base);
-                of.setLastAttempt(now);
-                of.setRetryCount(of.getRetryCount() + 1);
-                retryCounter.increment();
-                if (matched != null) {
-                    of.setMatchedFile(matched);
-                    of.setStatus(de.flexis.mycontracts.model.enums.OcrStatus.MATCHED);
-                    of.setProcessedAt(Instant.now());
-                    matchedCounter.increment();
-                } else if (of.getRetryCount() >= maxRetries) {
-                    of.setStatus(de.flexis.mycontracts.model.enums.OcrStatus.FAILED);
-                    of.setProcessedAt(Instant.now());
-                    failedCounter.increment();
+    private synchronized void refreshKnown() {
+        Map<String, KnownFile> loaded = new HashMap<>();
+        for (OcrFileRepository.Fingerprint fp : ocrFileRepository.findFingerprints()) {
+            loaded.put(fp.getPath(), KnownFile.of(fp));
+        }
+        known.keySet().retainAll(loaded.keySet());
+        known.putAll(loaded);
+        knownLoaded = true;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startEventWatcher() {
+        if (!enabled || !eventDriven || running) return;
+        for (WatchRoot root : roots) {
+            try {
+                root.watchService = root.dir.getFileSystem().newWatchService();
+                root.dir.register(root.watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException | UnsupportedOperationException e) {
+                org.slf4j.LoggerFactory.getLogger(WatcherService.class)
+                        .warn("WatchService unavailable for {}, falling back to polling: {}", root.dir, e.toString());
+                roots.forEach(WatcherService::closeWatchService);
+                return;
+            }
+        }
+        running = true;
+        nextReconcileAt = System.currentTimeMillis() + reconcileIntervalMs;
+        for (WatchRoot root : roots) {
+            root.eventThread = new Thread(() -> eventLoop(root), "ocr-watch-" + root.index);
+            root.eventThread.setDaemon(true);
+            root.eventThread.start();
+        }
+    }
+
+    @PreDestroy
+    public void stopEventWatcher() {
+        running = false;
+        dispatching = false;
+        for (WatchRoot root : roots) {
+            closeWatchService(root);
+            if (root.eventThread != null) root.eventThread.interrupt();
+        }
+        dispatcher.interrupt();
+    }
+
+    public boolean isEventDriven() {
+        return running;
+    }
+
+    // per-root discovery: turns WatchService events into stable candidates
+    private void eventLoop(WatchRoot root) {
+        // poll often enough that a file becomes ingestible shortly after it stops changing
+        long pollMs = Math.max(50, Math.min(stabilityMs, 500));
+        while (running) {
+            try {
+                WatchKey key = root.watchService.poll(pollMs, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            // events were dropped; let the next scheduled tick do a full reconcile
+                            reconcileRequested = true;
+                            continue;
+                        }
+                        Path name = (Path) event.context();
+                        if (name.toString().endsWith(OCR_SUFFIX)) {
+                            root.candidates.put(root.dir.resolve(name), FileSnapshot.UNSEEN);
+                        }
+                    }
+                    if (!key.reset()) {
+                        org.slf4j.LoggerFactory.getLogger(WatcherService.class)
+                                .warn("Watch root {} is no longer accessible, stopping its event watcher", root.dir);
+                        reconcileRequested = true;
+                        break;
+                    }
                 }
-                ocrFileRepository.save(of);
+                promoteStableCandidates(root);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
             } catch (Exception e) {
-                org.slf4j.LoggerFactory.getLogger(WatcherService.class).warn("Failed to process pending OCR {}", of.getPath(), e);
+                org.slf4j.LoggerFactory.getLogger(WatcherService.class).error("Watcher event loop failed for {}", root.dir, e);
             }
         }
     }
-    private StoredFile findMatchingStoredFile(String base) {
-        List<StoredFile> all = storedFileRepository.findAll();
-        for (StoredFile sf : all) {
-            String fname = sf.getFilename();
-            String fnameBase = stripExtension(fname);
-            if (fnameBase.equals(base)) return sf;
+
+    /**
+     * Queues candidates whose size and mtime have not changed for stabilityMs,
+     * so files that are still being written are not picked up half-finished.
+     */
+    private void promoteStableCandidates(WatchRoot root) {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, FileSnapshot>> it = root.candidates.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, FileSnapshot> entry = it.next();
+            FileSnapshot current;
+            try {
+                current = FileSnapshot.of(entry.getKey(), now);
+            } catch (NoSuchFileException e) {
+                it.remove();
+                continue;
+            } catch (IOException e) {
+                continue;
+            }
+            FileSnapshot previous = entry.getValue();
+            if (!current.sameContentAs(previous)) {
+                entry.setValue(current);
+            } else if (now - previous.observedAt() >= stabilityMs) {
+                it.remove();
+                submitIfChanged(root, entry.getKey(), current);
+            }
         }
-        return null;
     }
 
-    private String stripExtension(String filename) {
-        int idx = filename.lastIndexOf('.');
-        if (idx > 0) return filename.substring(0, idx);
-        return filename;
+    private static void closeWatchService(WatchRoot root) {
+        WatchService ws = root.watchService;
+        root.watchService = null;
+        if (ws == null) return;
+        try {
+            ws.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
     }
 
-    private String computeChecksum(Path file) throws IOException {
-        try (var in = Files.newInputStream(file)) {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] buf = new byte[8192];
-            int r;
-            while ((r = in.read(buf)) > 0) md.update(buf, 0, r);
-            return HexFormat.of().formatHex(md.digest());
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
+    /** One watched directory with its own discovery thread, rate limit and metrics. */
+    private static final class WatchRoot {
+        final int index;
+        final Path dir;
+        final String tag;
+        final TokenBucket rateLimit;
+        final Counter dispatched;
+        // last full scan of this root, exported as gauges
+        final AtomicLong files = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        // files seen by the WatchService that have not yet been stable for stabilityMs
+        final Map<Path, FileSnapshot> candidates = new ConcurrentHashMap<>();
+        volatile WatchService watchService;
+        Thread eventThread;
+
+        WatchRoot(int index, Path dir, TokenBucket rateLimit, MeterRegistry registry) {
+            this.index = index;
+            this.dir = dir;
+            this.tag = dir.toString();
+            this.rateLimit = rateLimit;
+            this.dispatched = Counter.builder("watcher.root.dispatched")
+                    .description("OCR files handed from this root to the pipeline")
+                    .tag("root", tag)
+                    .register(registry);
+            Gauge.builder("watcher.directory.files", files, AtomicLong::get)
+                    .description("OCR files in the watch root at the last scan")
+                    .tag("root", tag)
+                    .register(registry);
+            Gauge.builder("watcher.directory.size", bytes, AtomicLong::get)
+                    .description("Total size of OCR files in the watch root at the last scan")
+                    .baseUnit("bytes")
+                    .tag("root", tag)
+                    .register(registry);
         }
+
+        Map<Path, FileSnapshot> list() throws IOException {
+            Map<Path, FileSnapshot> ocrFiles = new LinkedHashMap<>();
+            long total = 0;
+            long now = System.currentTimeMillis();
+            try (var listing = Files.newDirectoryStream(dir, "*" + OCR_SUFFIX)) {
+                for (Path p : listing) {
+                    FileSnapshot snapshot;
+                    try {
+                        snapshot = FileSnapshot.of(p, now);
+                    } catch (IOException e) {
+                        continue; // removed while listing
+                    }
+                    total += snapshot.size();
+                    ocrFiles.put(p, snapshot);
+                }
+            }
+            files.set(ocrFiles.size());
+            bytes.set(total);
+            return ocrFiles;
+        }
+    }
+
+    private record Discovered(WatchRoot root, Path path, KnownFile previous, CompletableFuture<OcrFile> result) {}
+
+    private record Submission(CompletableFuture<OcrFile> result, boolean update) {}
+
+    /** Cached fingerprint of an ingested OCR file. */
+    private record KnownFile(Long id, String checksum, Long sourceSize, long modifiedMillis, String fastDigest) {
+
+        static KnownFile of(OcrFileRepository.Fingerprint fp) {
+            return new KnownFile(fp.getId(), fp.getChecksum(), fp.getSourceSize(),
+                    fp.getSourceModifiedAt() == null ? -1 : fp.getSourceModifiedAt().toEpochMilli(), fp.getFastDigest());
+        }
+
+        static KnownFile of(OcrFile of) {
+            return new KnownFile(of.getId(), of.getChecksum(), of.getSourceSize(),
+                    of.getSourceModifiedAt() == null ? -1 : of.getSourceModifiedAt().toEpochMilli(), of.getFastDigest());
+        }
+
+        boolean sameStat(FileSnapshot snapshot) {
+            return sourceSize != null && sourceSize == snapshot.size() && modifiedMillis == snapshot.modifiedMillis();
+        }
+
+        KnownFile withStat(FileSnapshot snapshot) {
+            return new KnownFile(id, checksum, snapshot.size(), snapshot.modifiedMillis(), fastDigest);
+        }
+    }
+
+    private record FileSnapshot(long size, long modifiedMillis, long observedAt) {
+        static final FileSnapshot UNSEEN = new FileSnapshot(-1, -1, 0);
+
+        static FileSnapshot of(Path p, long now) throws IOException {
+            BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+            return new FileSnapshot(attrs.size(), attrs.lastModifiedTime().toMillis(), now);
+        }
+
+        boolean sameContentAs(FileSnapshot other) {
+            return other != null && size == other.size && modifiedMillis == other.modifiedMillis;
+        }
+    }
+
+    private void processPending() {
+        retryScheduler.processDue();
+        pendingBacklog.set(ocrFileRepository.countByStatus(OcrStatus.PENDING));
     }
 }
@@ -0,0 +1,157 @@
+package de.flexis.mycontracts.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.CRC32C;
+
+/**
+ * SHA-256 hashing that piggybacks on the read or copy that has to happen anyway,
+ * so every byte goes through I/O once.
+ */
+public final class HashingIO {
+
+    /** Files at or above this size are hashed through memory-mapped windows instead of a heap buffer copy loop. */
+    public static final long MMAP_THRESHOLD = 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // mapping window for hash-only reads, keeps address space use bounded for very large files
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+    private HashingIO() {}
+
+    public record HashedBytes(byte[] data, String sha256) {
+        public long size() {
+            return data.length;
+        }
+    }
+
+    public record HashedCopy(long size, String sha256) {}
+
+    /**
+     * Reads a whole file into memory and hashes the array. A memory mapping would not save the heap
+     * copy here, so it is only used where windows are hashed in place ({@link #sha256}, {@link #fastDigest}).
+     */
+    public static HashedBytes readAndHash(Path file) throws IOException {
+        if (Files.size(file) > Integer.MAX_VALUE - 8) {
+            throw new IOException("File too large to read into memory: " + file);
+        }
+        byte[] data = Files.readAllBytes(file);
+        MessageDigest md = newSha256();
+        md.update(data);
+        return new HashedBytes(data, hex(md));
+    }
+
+    /** Hashes a file without keeping its content, using mapped windows for large files. */
+    public static String sha256(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MessageDigest md = newSha256();
+            long size = ch.size();
+            if (size >= MMAP_THRESHOLD) {
+                for (long pos = 0; pos < size; pos += MAP_WINDOW) {
+                    md.update(ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_WINDOW, size - pos)));
+                }
+            } else {
+                try (InputStream in = Files.newInputStream(file)) {
+                    update(md, in, null, Long.MAX_VALUE);
+                }
+            }
+            return hex(md);
+        }
+    }
+
+    /**
+     * Streams {@code in} to {@code dest} (created or truncated) while hashing it.
+     *
+     * @throws IllegalArgumentException if more than {@code maxBytes} are read; the partial file is removed
+     */
+    public static HashedCopy copyAndHash(InputStream in, Path dest, long maxBytes) throws IOException {
+        MessageDigest md = newSha256();
+        long size;
+        try (OutputStream out = Files.newOutputStream(dest)) {
+            size = update(md, in, out, maxBytes);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(dest);
+            throw e;
+        }
+        return new HashedCopy(size, hex(md));
+    }
+
+    /**
+     * Feeds {@code in} into {@code md}, optionally copying to {@code out}.
+     *
+     * @return number of bytes read
+     */
+    public static long update(MessageDigest md, InputStream in, OutputStream out, long maxBytes) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        long total = 0;
+        int r;
+        while ((r = in.read(buf)) != -1) {
+            total += r;
+            if (total > maxBytes) {
+                throw new IllegalArgumentException("File too large");
+            }
+            md.update(buf, 0, r);
+            if (out != null) out.write(buf, 0, r);
+        }
+        return total;
+    }
+
+    /**
+     * Cheap change-detection digest: CRC32C over the size and the whole content, several times
+     * faster than SHA-256 but still covering every byte, so an edit anywhere changes it (barring
+     * a CRC collision). Not collision resistant; use it only to decide whether a SHA-256 rehash is needed.
+     */
+    public static String fastDigest(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            CRC32C crc = new CRC32C();
+            updateSize(crc, size);
+            if (size >= MMAP_THRESHOLD) {
+                for (long pos = 0; pos < size; pos += MAP_WINDOW) {
+                    crc.update(ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_WINDOW, size - pos)));
+                }
+            } else {
+                ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+                while (ch.read(buf) >= 0) {
+                    buf.flip();
+                    crc.update(buf);
+                    buf.clear();
+                }
+            }
+            return Long.toHexString(crc.getValue());
+        }
+    }
+
+    /** Same digest as {@link #fastDigest(Path)} for content already in memory. */
+    public static String fastDigest(byte[] data) {
+        CRC32C crc = new CRC32C();
+        updateSize(crc, data.length);
+        crc.update(data, 0, data.length);
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static void updateSize(CRC32C crc, long size) {
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, size));
+    }
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String hex(MessageDigest md) {
+        return HexFormat.of().formatHex(md.digest());
+    }
+}
@@ -0,0 +1,66 @@
+package de.flexis.mycontracts.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter. A rate of zero or less means unlimited.
+ * <p>
+ * {@link #acquire(long)} may take more permits than the burst size; the bucket then goes into
+ * debt and later callers wait until it is paid back, so large requests are throttled correctly too.
+ */
+public final class TokenBucket {
+
+    private final double ratePerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double ratePerSecond, double burst) {
+        this.ratePerNano = ratePerSecond > 0 ? ratePerSecond / TimeUnit.SECONDS.toNanos(1) : 0;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public static TokenBucket unlimited() {
+        return new TokenBucket(0, 1);
+    }
+
+    public boolean isUnlimited() {
+        return ratePerNano == 0;
+    }
+
+    /** Nanoseconds until {@code permits} could be taken without blocking; 0 if available now. */
+    public synchronized long nanosUntilAvailable(long permits) {
+        if (isUnlimited()) return 0;
+        refill();
+        double needed = Math.min(permits, burst) - tokens;
+        return needed <= 0 ? 0 : (long) Math.ceil(needed / ratePerNano);
+    }
+
+    public synchronized boolean tryAcquire(long permits) {
+        if (isUnlimited()) return true;
+        refill();
+        if (tokens < Math.min(permits, burst)) return false;
+        tokens -= permits;
+        return true;
+    }
+
+    /** Takes {@code permits}, sleeping as long as the configured rate requires. */
+    public void acquire(long permits) throws InterruptedException {
+        if (isUnlimited()) return;
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            tokens -= permits;
+            waitNanos = tokens < 0 ? (long) Math.ceil(-tokens / ratePerNano) : 0;
+        }
+        if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerNano);
+        lastRefill = now;
+    }
+}
@@ -1,16 +1,26 @@
 package de.flexis.mycontracts.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -23,6 +33,9 @@ public class ContractControllerIntegrationTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     static Path tempDir;
 
     @DynamicPropertySource
@@ -167,4 +180,99 @@ public class ContractControllerIntegrationTest {
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$.length()").value(0));
     }
+
+    @Test
+    void exportStreamsFilesAndManifestAsZip() throws Exception {
+        Long contractId = extractIdFromJson(mvc.perform(post("/api/contracts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Export Contract\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        byte[] text = "Kuendigungsfrist drei Monate zum Jahresende. ".repeat(500).getBytes(StandardCharsets.UTF_8);
+        byte[] png = new byte[20_000];
+        System.arraycopy(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}, 0, png, 0, 8);
+        byte[] otherText = "second version".getBytes(StandardCharsets.UTF_8);
+        upload(contractId, "vertrag.txt", MediaType.TEXT_PLAIN_VALUE, text);
+        upload(contractId, "scan.png", MediaType.IMAGE_PNG_VALUE, png);
+        upload(contractId, "Vertrag.txt", MediaType.TEXT_PLAIN_VALUE, otherText);
+        Long goneId = upload(contractId, "gone.pdf", MediaType.APPLICATION_PDF_VALUE, "lost".getBytes());
+        JsonNode listed = objectMapper.readTree(mvc.perform(get("/api/contracts/" + contractId + "/files"))
+                .andReturn().getResponse().getContentAsString());
+        for (JsonNode f : listed) {
+            if (f.get("id").asLong() == goneId) Files.delete(Path.of(f.get("path").asText()));
+        }
+
+        MockHttpServletResponse response = mvc.perform(get("/api/contracts/" + contractId + "/export"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assert "application/zip".equals(response.getContentType());
+        assert response.getHeader("Content-Disposition").contains("Export%20Contract.zip");
+
+        Map<String, byte[]> contents = new HashMap<>();
+        Map<String, ZipEntry> entries = new HashMap<>();
+        String first = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            for (ZipEntry e; (e = zip.getNextEntry()) != null; ) {
+                if (first == null) first = e.getName();
+                contents.put(e.getName(), zip.readAllBytes());
+                entries.put(e.getName(), e);
+            }
+        }
+        assert "manifest.json".equals(first);
+        assert contents.keySet().equals(java.util.Set.of("manifest.json", "files/vertrag.txt", "files/scan.png",
+                "files/Vertrag (2).txt"));
+        assert java.util.Arrays.equals(contents.get("files/vertrag.txt"), text);
+        assert java.util.Arrays.equals(contents.get("files/scan.png"), png);
+        assert java.util.Arrays.equals(contents.get("files/Vertrag (2).txt"), otherText);
+        // text is deflated, the PNG is only stored
+        assert entries.get("files/vertrag.txt").getCompressedSize() < text.length / 10;
+        assert entries.get("files/scan.png").getCompressedSize() >= png.length;
+
+        JsonNode manifest = objectMapper.readTree(contents.get("manifest.json"));
+        assert "Export Contract".equals(manifest.get("title").asText());
+        assert manifest.get("files").size() == 4;
+        for (JsonNode f : manifest.get("files")) {
+            boolean gone = f.get("id").asLong() == goneId;
+            assert f.get("missing").asBoolean() == gone;
+            assert gone == f.get("entry").isNull();
+            assert f.has("sha256") && f.has("ocr");
+        }
+
+        mvc.perform(get("/api/contracts/999999/export"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void exportNamesArchiveAfterSafeTitleOrId() throws Exception {
+        Long slashed = extractIdFromJson(mvc.perform(post("/api/contracts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Miete 2024/2025\\r\\n\"}"))
+                .andReturn().getResponse().getContentAsString());
+        String disposition = mvc.perform(get("/api/contracts/" + slashed + "/export"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Content-Disposition");
+        assert disposition.contains("Miete%202024_2025.zip") : disposition;
+
+        Long dots = extractIdFromJson(mvc.perform(post("/api/contracts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"..\"}"))
+                .andReturn().getResponse().getContentAsString());
+        disposition = mvc.perform(get("/api/contracts/" + dots + "/export"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Content-Disposition");
+        assert disposition.contains("contract-" + dots + ".zip") : disposition;
+    }
+
+    private Long upload(Long contractId, String name, String mime, byte[] content) throws Exception {
+        Long fileId = extractIdFromJson(mvc.perform(multipart("/api/files/upload")
+                        .file(new MockMultipartFile("file", name, mime, content)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        mvc.perform(patch("/api/contracts/files/" + fileId + "/link")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"contractId\":" + contractId + "}"))
+                .andExpect(status().isOk());
+        return fileId;
+    }
 }
@@ -4,18 +4,29 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
@@ -32,6 +43,7 @@ public class FileControllerIntegrationTest {
     static void props(DynamicPropertyRegistry r) throws Exception {
         tempDir = Files.createTempDirectory("mycontracts-test-files");
         r.add("FILE_STORAGE_PATH", () -> tempDir.toString());
+        r.add("PREVIEW_CACHE_PATH", () -> tempDir.resolve("previews").toString());
         // Ensure an in-memory JDBC DB is available for full context startup
         r.add("spring.datasource.url", () -> "jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1");
         // Override driver and credentials so the in-memory DB works even if application.properties
@@ -39,6 +51,8 @@ public class FileControllerIntegrationTest {
         r.add("spring.datasource.driver-class-name", () -> "org.h2.Driver");
         r.add("spring.datasource.username", () -> "sa");
         r.add("spring.datasource.password", () -> "");
+        // only affects files of 4 KB and more
+        r.add("storage.compression.enabled", () -> "true");
     }
 
     @Test
@@ -48,11 +62,227 @@ public class FileControllerIntegrationTest {
         mvc.perform(multipart("/api/files/upload").file(file))
                 .andExpect(status().isOk());
 
-        // assert file exists in storage
-        Path stored = tempDir.resolve("test.txt");
+        // assert file exists in storage, keyed by its SHA-256
+        Path stored = tempDir.resolve("blobs/2c/f2/2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
         assert Files.exists(stored);
     }
 
+    @Test
+    void uploadStream() throws Exception {
+        mvc.perform(post("/api/files/stream").param("filename", "streamed.txt")
+                        .contentType(MediaType.APPLICATION_PDF).content("hello".getBytes()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(5))
+                // SHA-256 of "hello"
+                .andExpect(jsonPath("$.checksum").value("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824"))
+                .andExpect(jsonPath("$.mime", startsWith(MediaType.APPLICATION_PDF_VALUE)));
+
+        assert Files.readString(tempDir.resolve("blobs/2c/f2/2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824")).equals("hello");
+        try (var parts = Files.list(tempDir.resolve(".tmp"))) {
+            assert parts.findAny().isEmpty();
+        }
+    }
+
+    @Test
+    void rejectOversizedStream() throws Exception {
+        mvc.perform(post("/api/files/stream").param("filename", "big-stream.bin")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM).content(new byte[11 * 1024 * 1024]))
+                .andExpect(status().isBadRequest());
+
+        try (var parts = Files.list(tempDir.resolve(".tmp"))) {
+            assert parts.findAny().isEmpty();
+        }
+    }
+
+    @Test
+    void identicalUploadsShareOneBlob() throws Exception {
+        byte[] content = "same contract".getBytes();
+        String first = mvc.perform(multipart("/api/files/upload")
+                        .file(new MockMultipartFile("file", "vertrag.pdf", MediaType.APPLICATION_PDF_VALUE, content)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String second = mvc.perform(multipart("/api/files/upload")
+                        .file(new MockMultipartFile("file", "vertrag-kopie.pdf", MediaType.APPLICATION_PDF_VALUE, content)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Long id1 = extractIdFromJson(first);
+        Long id2 = extractIdFromJson(second);
+        Path blob = Path.of(com.jayway.jsonpath.JsonPath.<String>read(first, "$.path"));
+        assert blob.equals(Path.of(com.jayway.jsonpath.JsonPath.<String>read(second, "$.path")));
+
+        mvc.perform(delete("/api/files/" + id1)).andExpect(status().is2xxSuccessful());
+        assert Files.exists(blob);
+
+        mvc.perform(delete("/api/files/" + id2)).andExpect(status().is2xxSuccessful());
+        assert Files.notExists(blob);
+    }
+
+    @Test
+    void batchUploadReportsDuplicatesAndRejectedParts() throws Exception {
+        mvc.perform(multipart("/api/files/upload")
+                        .file(new MockMultipartFile("file", "original.pdf", MediaType.APPLICATION_PDF_VALUE, "batch existing".getBytes())))
+                .andExpect(status().isOk());
+
+        mvc.perform(multipart("/api/files/upload/batch")
+                        .file(new MockMultipartFile("files", "a.pdf", MediaType.APPLICATION_PDF_VALUE, "batch new".getBytes()))
+                        .file(new MockMultipartFile("files", "b.pdf", MediaType.APPLICATION_PDF_VALUE, "batch existing".getBytes()))
+                        .file(new MockMultipartFile("files", "c.pdf", MediaType.APPLICATION_PDF_VALUE, "batch new".getBytes()))
+                        .file(new MockMultipartFile("files", "empty.pdf", MediaType.APPLICATION_PDF_VALUE, new byte[0]))
+                        .file(new MockMultipartFile("files", "../evil.pdf", MediaType.APPLICATION_PDF_VALUE, "x".getBytes())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[0].outcome").value("STORED"))
+                .andExpect(jsonPath("$[0].file.filename").value("a.pdf"))
+                .andExpect(jsonPath("$[1].outcome").value("DUPLICATE"))
+                .andExpect(jsonPath("$[1].duplicateOf").isNumber())
+                .andExpect(jsonPath("$[2].outcome").value("DUPLICATE"))
+                .andExpect(jsonPath("$[3].outcome").value("REJECTED"))
+                .andExpect(jsonPath("$[3].error").value("File is empty"))
+                .andExpect(jsonPath("$[4].outcome").value("REJECTED"));
+
+        String skipped = mvc.perform(multipart("/api/files/upload/batch")
+                        .file(new MockMultipartFile("files", "again.pdf", MediaType.APPLICATION_PDF_VALUE, "batch new".getBytes()))
+                        .file(new MockMultipartFile("files", "fresh.pdf", MediaType.APPLICATION_PDF_VALUE, "batch fresh".getBytes()))
+                        .param("skipDuplicates", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].outcome").value("SKIPPED"))
+                .andExpect(jsonPath("$[0].file").doesNotExist())
+                .andExpect(jsonPath("$[1].outcome").value("STORED"))
+                .andReturn().getResponse().getContentAsString();
+        Number firstA = com.jayway.jsonpath.JsonPath.read(skipped, "$[0].duplicateOf");
+        assert firstA != null;
+        try (var parts = Files.list(tempDir.resolve(".tmp"))) {
+            assert parts.findAny().isEmpty();
+        }
+    }
+
+    @Test
+    void downloadSupportsConditionalAndRangeRequests() throws Exception {
+        String body = mvc.perform(post("/api/files/stream").param("filename", "Vertrag 2024.pdf")
+                        .contentType(MediaType.APPLICATION_PDF).content("download me".getBytes()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Long id = extractIdFromJson(body);
+        String etag = "\"" + com.jayway.jsonpath.JsonPath.<String>read(body, "$.checksum") + "\"";
+        String url = "/api/files/" + id + "/download";
+
+        var full = mvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, containsString("Vertrag%202024.pdf")))
+                .andReturn().getResponse();
+        assert full.getContentAsString().equals("download me");
+
+        mvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        var partial = mvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=0-7"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-7/11"))
+                .andReturn().getResponse();
+        assert partial.getContentAsString().equals("download");
+
+        var multi = mvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=0-1,-2"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, startsWith("multipart/byteranges; boundary=")))
+                .andReturn().getResponse();
+        String parts = multi.getContentAsString();
+        assert parts.contains("Content-Range: bytes 0-1/11\r\n\r\ndo\r\n");
+        assert parts.contains("Content-Range: bytes 9-10/11\r\n\r\nme\r\n");
+        assert multi.getContentLength() == multi.getContentAsByteArray().length;
+
+        // a stale If-Range gets the whole file
+        mvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=0-1").header(HttpHeaders.IF_RANGE, "\"other\""))
+                .andExpect(status().isOk());
+
+        mvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */11"));
+
+        var head = mvc.perform(head(url))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andReturn().getResponse();
+        assert head.getContentLengthLong() == 11;
+        assert head.getContentAsByteArray().length == 0;
+    }
+
+    @Test
+    void downloadInflatesCompressedContent() throws Exception {
+        String text = "Beitrag monatlich 12,50 EUR, Laufzeit 12 Monate.\n".repeat(300);
+        String body = mvc.perform(post("/api/files/stream").param("filename", "police.txt")
+                        .contentType(MediaType.TEXT_PLAIN).content(text.getBytes()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.codec").value("DEFLATE"))
+                .andReturn().getResponse().getContentAsString();
+        Long id = extractIdFromJson(body);
+        String url = "/api/files/" + id + "/download";
+
+        var full = mvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assert full.getContentLengthLong() == text.length();
+        assert full.getContentAsString().equals(text);
+
+        var partial = mvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=5000-5007"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 5000-5007/" + text.length()))
+                .andReturn().getResponse();
+        assert partial.getContentAsString().equals(text.substring(5000, 5008));
+
+        String parts = mvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=0-6,5000-5007"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, startsWith("multipart/byteranges; boundary=")))
+                .andReturn().getResponse().getContentAsString();
+        assert parts.contains("Content-Range: bytes 0-6/" + text.length() + "\r\n\r\nBeitrag\r\n");
+        assert parts.contains("Content-Range: bytes 5000-5007/" + text.length() + "\r\n\r\n" + text.substring(5000, 5008) + "\r\n");
+
+        // out of order: the compressed body is not read backwards, the whole file is sent instead
+        var unordered = mvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=5000-5007,0-6"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assert unordered.getContentAsString().equals(text);
+    }
+
+    @Test
+    void previewServesCachedThumbnailAndPage() throws Exception {
+        BufferedImage scan = new BufferedImage(800, 1100, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(scan, "png", png);
+        String body = mvc.perform(post("/api/files/stream").param("filename", "scan.png")
+                        .contentType(MediaType.IMAGE_PNG).content(png.toByteArray()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Long id = extractIdFromJson(body);
+        String url = "/api/files/" + id + "/preview";
+
+        var thumbnail = mvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_JPEG_VALUE))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andReturn().getResponse();
+        assert ImageIO.read(new ByteArrayInputStream(thumbnail.getContentAsByteArray())).getWidth() == 240;
+
+        mvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, thumbnail.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+
+        var page = mvc.perform(get(url).param("size", "page"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assert ImageIO.read(new ByteArrayInputStream(page.getContentAsByteArray())).getWidth() == 800;
+
+        mvc.perform(get(url).param("size", "poster"))
+                .andExpect(status().isBadRequest());
+
+        String text = mvc.perform(post("/api/files/stream").param("filename", "notes.txt")
+                        .contentType(MediaType.TEXT_PLAIN).content("no preview".getBytes()))
+                .andReturn().getResponse().getContentAsString();
+        mvc.perform(get("/api/files/" + extractIdFromJson(text) + "/preview"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void rejectPathTraversal() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "../evil.txt", MediaType.TEXT_PLAIN_VALUE, "boom".getBytes());
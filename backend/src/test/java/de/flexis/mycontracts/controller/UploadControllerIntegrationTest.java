@@ -0,0 +1,165 @@
+package de.flexis.mycontracts.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import de.flexis.mycontracts.repository.UploadSessionRepository;
+import de.flexis.mycontracts.service.FileStorageService;
+import de.flexis.mycontracts.service.UploadSessionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UploadControllerIntegrationTest {
+
+    // SHA-256 of "hello world"
+    private static final String HELLO_WORLD_SHA = "b94d27b9934d3e08a52e52d7da7dabfac484efe37a5380ee9088f7ace2efcde9";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UploadSessionRepository sessionRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    static Path tempDir;
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) throws Exception {
+        tempDir = Files.createTempDirectory("mycontracts-upload-files");
+        r.add("FILE_STORAGE_PATH", () -> tempDir.toString());
+        r.add("spring.datasource.url", () -> "jdbc:h2:mem:uploaddb;DB_CLOSE_DELAY=-1");
+        r.add("spring.datasource.driver-class-name", () -> "org.h2.Driver");
+        r.add("spring.datasource.username", () -> "sa");
+        r.add("spring.datasource.password", () -> "");
+    }
+
+    @Test
+    void chunkedUploadResumesAndCompletes() throws Exception {
+        String id = create("bundle.pdf", 11);
+
+        mvc.perform(put("/api/uploads/" + id).param("offset", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM).content("hello".getBytes()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(5));
+
+        // a retried chunk that already arrived is answered with the offset to continue from
+        mvc.perform(put("/api/uploads/" + id).param("offset", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM).content("hello".getBytes()))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.received").value(5));
+
+        mvc.perform(post("/api/uploads/" + id + "/complete"))
+                .andExpect(status().isConflict());
+
+        mvc.perform(put("/api/uploads/" + id).param("offset", "5")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM).content(" world".getBytes()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(11));
+
+        mvc.perform(post("/api/uploads/" + id + "/complete").param("checksum", HELLO_WORLD_SHA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.filename").value("bundle.pdf"))
+                .andExpect(jsonPath("$.size").value(11))
+                .andExpect(jsonPath("$.checksum").value(HELLO_WORLD_SHA));
+
+        assert Files.readString(tempDir.resolve("blobs/b9/4d/" + HELLO_WORLD_SHA)).equals("hello world");
+        assert Files.notExists(tempDir.resolve(".uploads/" + id + ".part"));
+        mvc.perform(get("/api/uploads/" + id)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void rejectsChunkBeyondAnnouncedSizeAndWrongChecksum() throws Exception {
+        String id = create("short.pdf", 3);
+
+        mvc.perform(put("/api/uploads/" + id).param("offset", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM).content("toolong".getBytes()))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/uploads/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(0));
+
+        mvc.perform(put("/api/uploads/" + id).param("offset", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM).content("abc".getBytes()))
+                .andExpect(status().isOk());
+        mvc.perform(post("/api/uploads/" + id + "/complete").param("checksum", HELLO_WORLD_SHA))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/uploads/" + id)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void rejectsOversizedOrInvalidUploads() throws Exception {
+        mvc.perform(post("/api/uploads").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"filename\":\"huge.pdf\",\"size\":" + (2L << 30) + "}"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/uploads").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"filename\":\"../evil.pdf\",\"size\":10}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void rebuildsDigestAfterRestartAndPurgesAbandonedSessions() throws Exception {
+        String id = create("resumed.pdf", 11);
+        mvc.perform(put("/api/uploads/" + id).param("offset", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM).content("hello".getBytes()))
+                .andExpect(status().isOk());
+
+        // a fresh instance has no running digest and has to hash the staged part once
+        UploadSessionService restarted = new UploadSessionService(sessionRepository, fileStorageService, tempDir.toString(), 1 << 20, 24);
+        restarted.append(id, 5, new ByteArrayInputStream(" world".getBytes()));
+        assert restarted.complete(id, null).getChecksum().equals(HELLO_WORLD_SHA);
+
+        String abandoned = create("abandoned.pdf", 11);
+        mvc.perform(put("/api/uploads/" + abandoned).param("offset", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM).content("hello".getBytes()))
+                .andExpect(status().isOk());
+        sessionRepository.advance(abandoned, 5, 5, Instant.now().minus(2, ChronoUnit.DAYS));
+
+        restarted.purgeAbandoned();
+
+        assert sessionRepository.findById(abandoned).isEmpty();
+        assert Files.notExists(tempDir.resolve(".uploads/" + abandoned + ".part"));
+    }
+
+    @Test
+    void abortRemovesStagedData() throws Exception {
+        String id = create("aborted.pdf", 11);
+        mvc.perform(put("/api/uploads/" + id).param("offset", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM).content("hello".getBytes()))
+                .andExpect(status().isOk());
+
+        mvc.perform(delete("/api/uploads/" + id)).andExpect(status().isNoContent());
+
+        assert Files.notExists(tempDir.resolve(".uploads/" + id + ".part"));
+        mvc.perform(delete("/api/uploads/" + id)).andExpect(status().isNotFound());
+    }
+
+    private String create(String filename, long size) throws Exception {
+        String body = mvc.perform(post("/api/uploads").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"filename\":\"" + filename + "\",\"mime\":\"application/pdf\",\"size\":" + size + "}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.received").value(0))
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(body, "$.id");
+    }
+}
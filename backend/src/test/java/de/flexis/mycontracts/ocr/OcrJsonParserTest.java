@@ -0,0 +1,180 @@
+package de.flexis.mycontracts.ocr;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcrJsonParserTest {
+
+    private final OcrJsonParser parser = new OcrJsonParser();
+
+    @Test
+    void parse_hierarchicalWithWordBoxes() throws Exception {
+        String json = """
+                {"model": {"name": "x", "layers": [1, 2, 3]},
+                 "pages": [
+                   {"page_idx": 0, "dimensions": [842, 595], "blocks": [
+                     {"geometry": [[0.1, 0.1], [0.9, 0.2]], "lines": [
+                       {"words": [
+                         {"value": "Vertrag", "confidence": 0.98, "geometry": [[0.1, 0.1], [0.3, 0.15]]},
+                         {"value": "Nr.", "confidence": 0.9, "geometry": [[0.31, 0.1], [0.4, 0.15]]}
+                       ]}
+                     ]},
+                     {"lines": [{"text": "Seite eins", "confidence": 80}]}
+                   ]},
+                   {"page_number": 2, "width": 595, "height": 842,
+                    "lines": [{"text": "Unterschrift"}]}
+                 ]}
+                """;
+
+        OcrDocument doc = parseDocument(json);
+
+        assertEquals(OcrFormat.HIERARCHICAL, doc.format());
+        assertEquals(2, doc.pages().size());
+        OcrPage first = doc.pages().get(0);
+        assertEquals(1, first.number());
+        assertEquals(595.0, first.width());
+        assertEquals(842.0, first.height());
+        assertEquals(2, first.blocks().size());
+        OcrLine line = first.blocks().get(0).lines().get(0);
+        assertEquals("Vertrag Nr.", line.text());
+        OcrWord word = line.words().get(0);
+        assertEquals(0.98, word.confidence());
+        assertEquals(0.1, word.box().left(), 1e-9);
+        assertEquals(0.2, word.box().width(), 1e-9);
+        OcrLine split = first.blocks().get(1).lines().get(0);
+        assertEquals(2, split.words().size());
+        assertEquals(0.8, split.confidence(), 1e-9);
+        assertEquals("Unterschrift", doc.pages().get(1).blocks().get(0).lines().get(0).text());
+    }
+
+    @Test
+    void parse_textractBlocks() throws Exception {
+        String json = """
+                {"DocumentMetadata": {"Pages": 2}, "Blocks": [
+                  {"BlockType": "PAGE", "Page": 1},
+                  {"BlockType": "LINE", "Page": 1, "Text": "Police 123", "Confidence": 99.0,
+                   "Geometry": {"BoundingBox": {"Width": 0.5, "Height": 0.1, "Left": 0.1, "Top": 0.2}}},
+                  {"BlockType": "WORD", "Page": 1, "Text": "Police", "Confidence": 99.0},
+                  {"BlockType": "PAGE", "Page": 2},
+                  {"BlockType": "LINE", "Page": 2, "Text": "Ende", "Confidence": 50.0}
+                ]}
+                """;
+
+        OcrDocument doc = parseDocument(json);
+
+        assertEquals(OcrFormat.TEXTRACT, doc.format());
+        assertEquals(2, doc.pages().size());
+        OcrLine line = doc.pages().get(0).blocks().get(0).lines().get(0);
+        assertEquals("Police 123", line.text());
+        assertEquals(0.99, line.confidence(), 1e-9);
+        assertEquals(0.1, line.box().left(), 1e-9);
+        assertEquals(1, doc.pages().get(0).blocks().get(0).lines().size());
+        assertEquals(2, doc.pages().get(1).number());
+    }
+
+    @Test
+    void parse_tesseractRows() throws Exception {
+        String json = """
+                [
+                 {"level": 1, "page_num": 1, "block_num": 0, "par_num": 0, "line_num": 0, "word_num": 0,
+                  "left": 0, "top": 0, "width": 2480, "height": 3508, "conf": -1, "text": ""},
+                 {"level": 2, "page_num": 1, "block_num": 1, "par_num": 0, "line_num": 0, "word_num": 0,
+                  "left": 100, "top": 100, "width": 800, "height": 60, "conf": -1, "text": ""},
+                 {"level": 5, "page_num": 1, "block_num": 1, "par_num": 1, "line_num": 1, "word_num": 1,
+                  "left": 100, "top": 100, "width": 200, "height": 30, "conf": 96, "text": "Kündigung"},
+                 {"level": 5, "page_num": 1, "block_num": 1, "par_num": 1, "line_num": 1, "word_num": 2,
+                  "left": 310, "top": 100, "width": 100, "height": 30, "conf": 90, "text": "zum"},
+                 {"level": 5, "page_num": 1, "block_num": 1, "par_num": 1, "line_num": 2, "word_num": 1,
+                  "left": 100, "top": 140, "width": 200, "height": 30, "conf": 88, "text": "31.12."}
+                ]
+                """;
+
+        OcrDocument doc = parseDocument(json);
+
+        assertEquals(OcrFormat.TESSERACT, doc.format());
+        OcrPage page = doc.pages().get(0);
+        assertEquals(2480.0, page.width());
+        assertEquals(1, page.blocks().size());
+        assertEquals(2, page.blocks().get(0).lines().size());
+        assertEquals("Kündigung zum", page.blocks().get(0).lines().get(0).text());
+        assertEquals(0.96, page.blocks().get(0).lines().get(0).words().get(0).confidence(), 1e-9);
+    }
+
+    @Test
+    void parse_tesseractRowsWithTrailingBlankPage() throws Exception {
+        String json = """
+                [
+                 {"level": 1, "page_num": 1, "block_num": 0, "par_num": 0, "line_num": 0, "word_num": 0,
+                  "left": 0, "top": 0, "width": 2480, "height": 3508, "conf": -1, "text": ""},
+                 {"level": 5, "page_num": 1, "block_num": 1, "par_num": 1, "line_num": 1, "word_num": 1,
+                  "left": 100, "top": 100, "width": 200, "height": 30, "conf": 96, "text": "Vertrag"},
+                 {"level": 1, "page_num": 2, "block_num": 0, "par_num": 0, "line_num": 0, "word_num": 0,
+                  "left": 0, "top": 0, "width": 2480, "height": 3508, "conf": -1, "text": ""}
+                ]
+                """;
+
+        OcrDocument doc = parseDocument(json);
+
+        assertEquals(2, doc.pages().size());
+        assertEquals("Vertrag", doc.pages().get(0).blocks().get(0).lines().get(0).text());
+        assertTrue(doc.pages().get(1).blocks().isEmpty());
+
+        OcrDocument blank = parseDocument("""
+                [{"level": 1, "page_num": 1, "block_num": 0, "par_num": 0, "line_num": 0, "word_num": 0,
+                  "left": 0, "top": 0, "width": 2480, "height": 3508, "conf": -1, "text": ""}]
+                """);
+        assertEquals(1, blank.pages().size());
+        assertTrue(blank.pages().get(0).blocks().isEmpty());
+    }
+
+    @Test
+    void parse_plainTextAndUnknown() throws Exception {
+        OcrDocument plain = parseDocument("{\"extractedText\": \"Zeile 1\\nZeile 2\", \"confidence\": 0.92}");
+        assertEquals(OcrFormat.PLAIN_TEXT, plain.format());
+        assertEquals(2, plain.pages().get(0).blocks().get(0).lines().size());
+
+        OcrDocument unknown = parseDocument("{\"foo\": {\"bar\": [1, 2]}}");
+        assertEquals(OcrFormat.UNKNOWN, unknown.format());
+        assertTrue(unknown.pages().isEmpty());
+    }
+
+    @Test
+    void textExtractor_shouldSeparateBlocksAndPages() throws Exception {
+        String json = """
+                {"pages": [
+                  {"blocks": [{"lines": [{"text": "a b"}, {"text": "c"}]}, {"lines": [{"text": "d"}]}]},
+                  {"blocks": [{"lines": [{"text": "e", "confidence": 0.5}]}]}
+                ]}
+                """;
+        StringBuilder text = new StringBuilder();
+        OcrTextExtractor extractor = new OcrTextExtractor(text);
+
+        parser.parse(stream(json), extractor);
+
+        assertEquals("a b\nc\n\nd\n\fe\n", text.toString());
+        assertEquals(2, extractor.getPageCount());
+        assertEquals(5, extractor.getWordCount());
+        assertEquals(0.5, extractor.getMeanConfidence(), 1e-9);
+    }
+
+    @Test
+    void parse_shouldFailOnTruncatedInput() {
+        assertThrows(IOException.class, () -> parser.parse(stream("{\"pages\": [{\"blocks\": "), line -> {}));
+    }
+
+    private OcrDocument parseDocument(String json) throws IOException {
+        OcrDocumentBuilder builder = new OcrDocumentBuilder();
+        OcrFormat format = parser.parse(stream(json), builder);
+        return builder.build(format);
+    }
+
+    private static InputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
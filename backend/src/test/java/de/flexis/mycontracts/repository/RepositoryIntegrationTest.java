@@ -34,8 +34,10 @@ public class RepositoryIntegrationTest {
         f.setChecksum("abc123");
         storedFileRepository.save(f);
 
-        OcrFile o = new OcrFile("/data/incoming/vertrag_ocr.json", "{\"text\": \"Dies ist ein Test\"}");
+        OcrFile o = new OcrFile("/data/incoming/vertrag_ocr.json");
         o.setChecksum("ocr123");
+        o.setPayloadRef("ocr123");
+        o.setPayloadSize(32L);
         o.setStatus(OcrStatus.PENDING);
         o.setMatchedFile(f);
         ocrFileRepository.save(o);
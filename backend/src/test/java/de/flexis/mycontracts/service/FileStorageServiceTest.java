@@ -1,15 +1,24 @@
 package de.flexis.mycontracts.service;
 
 import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.StorageCodec;
 import de.flexis.mycontracts.repository.StoredFileRepository;
 import de.flexis.mycontracts.repository.OcrFileRepository;
+import de.flexis.mycontracts.repository.StoredBlobRepository;
+import de.flexis.mycontracts.util.HashingIO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
@@ -28,9 +37,15 @@ class FileStorageServiceTest {
     @Mock
     private OcrFileRepository ocrFileRepository;
 
+    @Mock
+    private StoredBlobRepository storedBlobRepository;
+
     @Mock
     private MultipartFile multipartFile;
 
+    @TempDir
+    Path storageDir;
+
     private StoredFile testFile;
 
     @BeforeEach
@@ -285,6 +300,104 @@ class FileStorageServiceTest {
         verify(storedFileRepository, times(1)).delete(testFile);
     }
 
+    @Test
+    void store_shouldWriteBlobOnce_whenSameContentIsUploadedTwice() throws Exception {
+        // Given
+        FileStorageService service = createServiceWithMocks();
+        when(storedFileRepository.save(any(StoredFile.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(storedBlobRepository.incrementRef(any())).thenReturn(0, 1);
+
+        // When
+        StoredFile first = service.store(new ByteArrayInputStream("same".getBytes()), "vertrag.pdf", "application/pdf");
+        StoredFile second = service.store(new ByteArrayInputStream("same".getBytes()), "kopie.pdf", "application/pdf");
+
+        // Then
+        assertEquals(first.getPath(), second.getPath());
+        assertEquals(first.getChecksum(), second.getBlobKey());
+        assertTrue(first.getPath().startsWith(storageDir.resolve("blobs").toString()));
+        assertEquals("same", Files.readString(Path.of(first.getPath())));
+        verify(storedBlobRepository, times(1)).saveAndFlush(any());
+        try (var parts = Files.list(storageDir.resolve(".tmp"))) {
+            assertEquals(0, parts.count());
+        }
+    }
+
+    @Test
+    void store_shouldDeflateCompressibleContent_whenCompressionIsEnabled() throws Exception {
+        // Given
+        FileStorageService service = createServiceWithMocks(true);
+        when(storedFileRepository.save(any(StoredFile.class))).thenAnswer(inv -> inv.getArgument(0));
+        String text = "Laufzeit 24 Monate, Kuendigungsfrist 3 Monate zum Vertragsende.\n".repeat(200);
+
+        // When
+        StoredFile stored = service.store(new ByteArrayInputStream(text.getBytes()), "scan.pdf", "application/pdf");
+
+        // Then
+        assertEquals(StorageCodec.DEFLATE, stored.getCodec());
+        assertEquals(text.length(), stored.getSize());
+        assertTrue(stored.getStoredSize() < stored.getSize());
+        assertEquals(Files.size(Path.of(stored.getPath())), stored.getStoredSize());
+        MessageDigest md = HashingIO.newSha256();
+        md.update(text.getBytes());
+        assertEquals(HashingIO.hex(md), stored.getChecksum());
+        try (InputStream in = service.openContent(stored)) {
+            assertEquals(text, new String(in.readAllBytes()));
+        }
+    }
+
+    @Test
+    void store_shouldKeepCompressedFormatsAsIs_whenCompressionIsEnabled() throws Exception {
+        // Given
+        FileStorageService service = createServiceWithMocks(true);
+        when(storedFileRepository.save(any(StoredFile.class))).thenAnswer(inv -> inv.getArgument(0));
+        byte[] jpeg = new byte[8192];
+        jpeg[0] = (byte) 0xFF;
+        jpeg[1] = (byte) 0xD8;
+        jpeg[2] = (byte) 0xFF;
+
+        // When
+        StoredFile stored = service.store(new ByteArrayInputStream(jpeg), "foto.jpg", null);
+
+        // Then
+        assertEquals(StorageCodec.NONE, stored.getCodec());
+        assertEquals(jpeg.length, stored.getStoredSize());
+        assertArrayEquals(jpeg, Files.readAllBytes(Path.of(stored.getPath())));
+    }
+
+    @Test
+    void store_shouldNotOverwrite_whenNamesClash() throws Exception {
+        // Given
+        FileStorageService service = createServiceWithMocks();
+        when(storedFileRepository.save(any(StoredFile.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // When
+        StoredFile first = service.store(new ByteArrayInputStream("one".getBytes()), "vertrag.pdf", null);
+        StoredFile second = service.store(new ByteArrayInputStream("two".getBytes()), "vertrag.pdf", null);
+
+        // Then
+        assertNotEquals(first.getPath(), second.getPath());
+        assertEquals("one", Files.readString(Path.of(first.getPath())));
+        assertEquals("two", Files.readString(Path.of(second.getPath())));
+    }
+
+    @Test
+    void delete_shouldRemoveBlob_onlyWithLastReference() throws Exception {
+        // Given
+        FileStorageService service = createServiceWithMocks();
+        when(storedFileRepository.save(any(StoredFile.class))).thenAnswer(inv -> inv.getArgument(0));
+        StoredFile stored = service.store(new ByteArrayInputStream("shared".getBytes()), "a.pdf", null);
+        Path blob = Path.of(stored.getPath());
+        when(storedFileRepository.findById(1L)).thenReturn(Optional.of(stored));
+        when(storedBlobRepository.deleteIfUnreferenced(stored.getBlobKey())).thenReturn(0, 1);
+
+        // When & Then
+        service.delete(1L);
+        assertTrue(Files.exists(blob));
+        service.delete(1L);
+        assertFalse(Files.exists(blob));
+        verify(storedBlobRepository, times(2)).decrementRef(stored.getBlobKey());
+    }
+
     @Test
     void delete_shouldThrowException_whenFileNotFound() throws Exception {
         // Given
@@ -300,10 +413,18 @@ class FileStorageServiceTest {
     }
 
     private FileStorageService createServiceWithMocks() throws Exception {
+        return createServiceWithMocks(false);
+    }
+
+    private FileStorageService createServiceWithMocks(boolean compression) throws Exception {
         return new FileStorageService(
-            System.getProperty("java.io.tmpdir") + "/test-storage",
             storedFileRepository,
-            ocrFileRepository
+            ocrFileRepository,
+            new StoredFileIndex(storedFileRepository),
+            new OcrPayloadStore(System.getProperty("java.io.tmpdir") + "/test-ocr-payloads", 6),
+            new BlobStore(storageDir.toString(), 2, 2, storedBlobRepository),
+            new StorageCompression(compression, 6, 10),
+            new PreviewService(storageDir.resolve("previews").toString(), false, 1, 240, 1000, 0)
         );
     }
 }
@@ -0,0 +1,176 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.repository.OcrFileRepository;
+import de.flexis.mycontracts.repository.StoredBlobRepository;
+import de.flexis.mycontracts.repository.StoredFileRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InboxImportServiceTest {
+
+    @Mock
+    private StoredFileRepository storedFileRepository;
+
+    @Mock
+    private OcrFileRepository ocrFileRepository;
+
+    @Mock
+    private StoredBlobRepository storedBlobRepository;
+
+    @Mock
+    private OcrRetryScheduler retryScheduler;
+
+    @Mock
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @TempDir
+    Path tempDir;
+
+    private Path inbox;
+    private Path storage;
+    private BlobStore blobStore;
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        inbox = Files.createDirectories(tempDir.resolve("inbox"));
+        storage = Files.createDirectories(tempDir.resolve("files"));
+        blobStore = new BlobStore(storage.toString(), 2, 2, storedBlobRepository);
+        fileStorageService = new FileStorageService(storedFileRepository, ocrFileRepository,
+                new StoredFileIndex(storedFileRepository),
+                new OcrPayloadStore(tempDir.resolve("payloads").toString(), 6), blobStore,
+                new StorageCompression(false, 6, 10),
+                new PreviewService(tempDir.resolve("previews").toString(), false, 1, 240, 1000, 0));
+        when(meterRegistryProvider.getIfAvailable(any())).thenAnswer(inv -> new SimpleMeterRegistry());
+    }
+
+    @Test
+    void importOnce_shouldLinkDocumentsIntoStorageAndRegisterThemInOneBatch() throws Exception {
+        // Given
+        byte[] pdf = "%PDF-1.7 contract".getBytes();
+        Files.write(inbox.resolve("vertrag.pdf"), pdf);
+        Files.write(inbox.resolve("scan.PNG"), new byte[]{(byte) 0x89, 'P', 'N', 'G'});
+        Files.writeString(inbox.resolve("notes.txt"), "not a document");
+        // originals may only leave the inbox once their rows are saved
+        when(storedFileRepository.saveAll(anyList())).thenAnswer(inv -> {
+            assertTrue(Files.exists(inbox.resolve("vertrag.pdf")));
+            return inv.getArgument(0);
+        });
+
+        // When
+        InboxImportService.ImportReport report = service(200).importOnce();
+
+        // Then
+        assertEquals(2, report.imported());
+        assertEquals(2, report.linked());
+        assertEquals(0, report.rejected());
+        assertFalse(Files.exists(inbox.resolve("vertrag.pdf")));
+        assertTrue(Files.exists(inbox.resolve("notes.txt")));
+        assertArrayEquals(pdf, Files.readAllBytes(blobStore.pathFor(sha256(pdf))));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StoredFile>> saved = ArgumentCaptor.forClass(List.class);
+        verify(storedFileRepository, times(1)).saveAll(saved.capture());
+        StoredFile registered = saved.getValue().stream()
+                .filter(f -> f.getFilename().equals("vertrag.pdf")).findFirst().orElseThrow();
+        assertEquals("application/pdf", registered.getMime());
+        assertEquals(pdf.length, registered.getSize());
+        assertEquals(sha256(pdf), registered.getChecksum());
+        verify(retryScheduler).schedule(any());
+    }
+
+    @Test
+    void importOnce_shouldSaveInBatchesOfConfiguredSize() throws Exception {
+        // Given
+        for (int i = 0; i < 5; i++) Files.writeString(inbox.resolve("doc" + i + ".pdf"), "%PDF " + i);
+        when(storedFileRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        // When
+        InboxImportService.ImportReport report = service(2).importOnce();
+
+        // Then
+        assertEquals(5, report.imported());
+        verify(storedFileRepository, times(3)).saveAll(anyList());
+    }
+
+    @Test
+    void importOnce_shouldKeepBothFiles_whenNamesClash() throws Exception {
+        // Given
+        Files.writeString(inbox.resolve("dup.pdf"), "original");
+        when(storedFileRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        service(200).importOnce();
+        Files.writeString(inbox.resolve("dup.pdf"), "newer");
+
+        // When
+        InboxImportService.ImportReport report = service(200).importOnce();
+
+        // Then
+        assertEquals(1, report.imported());
+        assertEquals(0, report.rejected());
+        assertEquals("original", Files.readString(blobStore.pathFor(sha256("original".getBytes()))));
+        assertEquals("newer", Files.readString(blobStore.pathFor(sha256("newer".getBytes()))));
+    }
+
+    @Test
+    void importOnce_shouldHandBackFiles_whenBatchRegistrationFails() throws Exception {
+        // Given
+        Files.writeString(inbox.resolve("broken.pdf"), "%PDF");
+        when(storedFileRepository.saveAll(anyList())).thenThrow(new IllegalStateException("db down"));
+
+        // When
+        InboxImportService.ImportReport report = service(200).importOnce();
+
+        // Then
+        assertEquals(0, report.imported());
+        assertEquals(1, report.rejected());
+        assertEquals("%PDF", Files.readString(inbox.resolve("rejected").resolve("broken.pdf")));
+        verify(storedBlobRepository).decrementRef(sha256("%PDF".getBytes()));
+    }
+
+    @Test
+    void importOnce_shouldKeepEarlierReject_whenSameNameIsRejectedAgain() throws Exception {
+        // Given
+        when(storedFileRepository.saveAll(anyList())).thenThrow(new IllegalStateException("db down"));
+        Files.writeString(inbox.resolve("scan.pdf"), "first scan");
+        service(200).importOnce();
+        Files.writeString(inbox.resolve("scan.pdf"), "second scan");
+
+        // When
+        service(200).importOnce();
+
+        // Then
+        Path rejected = inbox.resolve("rejected");
+        assertEquals("first scan", Files.readString(rejected.resolve("scan.pdf")));
+        assertEquals("second scan", Files.readString(rejected.resolve("scan (2).pdf")));
+    }
+
+    private InboxImportService service(int batchSize) {
+        return new InboxImportService(inbox.toString(), "pdf,png,jpg,jpeg,tif,tiff", batchSize, 0,
+                fileStorageService, blobStore, retryScheduler, meterRegistryProvider);
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
@@ -0,0 +1,74 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.repository.OcrClaimRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class OcrClaimServiceIntegrationTest {
+
+    @Autowired
+    OcrClaimRepository claimRepository;
+
+    @Autowired
+    ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) throws Exception {
+        String watchDir = Files.createTempDirectory("mycontracts-claims-watch").toString();
+        r.add("WATCH_DIR", () -> watchDir);
+        r.add("spring.datasource.url", () -> "jdbc:h2:mem:claimsdb;DB_CLOSE_DELAY=-1");
+        r.add("spring.datasource.driver-class-name", () -> "org.h2.Driver");
+        r.add("spring.datasource.username", () -> "sa");
+        r.add("spring.datasource.password", () -> "");
+    }
+
+    @Test
+    void onlyOneInstanceClaimsAPath_untilItReleases() {
+        OcrClaimService a = service("instance-a", 60_000);
+        OcrClaimService b = service("instance-b", 60_000);
+
+        assertThat(a.tryClaim("/in/shared_ocr.json")).isTrue();
+        assertThat(b.tryClaim("/in/shared_ocr.json")).isFalse();
+        assertThat(a.tryClaim("/in/shared_ocr.json")).isTrue(); // re-claim by the holder, e.g. after restart
+
+        a.release("/in/shared_ocr.json");
+
+        assertThat(b.tryClaim("/in/shared_ocr.json")).isTrue();
+        assertThat(claimRepository.findById("/in/shared_ocr.json").orElseThrow().getOwner()).isEqualTo("instance-b");
+    }
+
+    @Test
+    void expiredLease_isTakenOverByAnotherInstance() {
+        OcrClaimService crashed = service("instance-crashed", -1);
+        OcrClaimService survivor = service("instance-survivor", 60_000);
+
+        assertThat(crashed.tryClaim("/in/stale_ocr.json")).isTrue();
+
+        assertThat(survivor.tryClaim("/in/stale_ocr.json")).isTrue();
+        assertThat(claimRepository.findById("/in/stale_ocr.json").orElseThrow().getOwner()).isEqualTo("instance-survivor");
+    }
+
+    @Test
+    void purgeExpired_removesLeftoverClaims() {
+        OcrClaimService crashed = service("instance-gone", -1);
+        crashed.tryClaim("/in/vanished_ocr.json");
+
+        crashed.purgeExpired();
+
+        assertThat(claimRepository.existsById("/in/vanished_ocr.json")).isFalse();
+    }
+
+    private OcrClaimService service(String instanceId, long leaseMs) {
+        return new OcrClaimService(claimRepository, instanceId, leaseMs, true, meterRegistryProvider);
+    }
+}
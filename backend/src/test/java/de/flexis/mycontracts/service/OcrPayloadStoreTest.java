@@ -0,0 +1,104 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.util.HashingIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcrPayloadStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void put_shouldStoreCompressedPayloadUnderShardedKey() throws Exception {
+        // Given
+        OcrPayloadStore store = new OcrPayloadStore(tempDir.toString(), 6);
+        String json = "{\"text\":\"" + "Vertragslaufzeit 12 Monate. ".repeat(500) + "\"}";
+        byte[] data = json.getBytes(StandardCharsets.UTF_8);
+        String key = sha256(data);
+
+        // When
+        String ref = store.put(key, data);
+
+        // Then
+        Path blob = store.pathFor(ref);
+        assertEquals(tempDir.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)), blob.getParent());
+        assertTrue(Files.size(blob) < data.length / 10);
+        assertEquals(Optional.of(json), store.loadString(ref));
+    }
+
+    @Test
+    void put_shouldKeepExistingBlobForSameContent() throws Exception {
+        // Given
+        OcrPayloadStore store = new OcrPayloadStore(tempDir.toString(), 6);
+        byte[] data = "{\"text\":\"same\"}".getBytes(StandardCharsets.UTF_8);
+        String key = sha256(data);
+        store.put(key, data);
+        Object fileKey = Files.readAttributes(store.pathFor(key), BasicFileAttributes.class).fileKey();
+
+        // When
+        store.put(key, data);
+
+        // Then: the same file, not a rewritten copy
+        assertEquals(fileKey, Files.readAttributes(store.pathFor(key), BasicFileAttributes.class).fileKey());
+        try (var files = Files.walk(tempDir)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void deleteOrphan_shouldKeepBlob_whenReusedAfterCutoff() throws Exception {
+        // Given
+        OcrPayloadStore store = new OcrPayloadStore(tempDir.toString(), 6);
+        byte[] data = "{\"text\":\"reused\"}".getBytes(StandardCharsets.UTF_8);
+        String key = store.put(sha256(data), data);
+        Files.setLastModifiedTime(store.pathFor(key), FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        Instant cutoff = Instant.now().minus(Duration.ofDays(1));
+        List<String> walked = new ArrayList<>();
+
+        // When
+        store.put(key, data);
+        store.walk((k, path) -> walked.add(k));
+
+        // Then
+        assertEquals(List.of(key), walked);
+        assertFalse(store.deleteOrphan(key, cutoff));
+        assertTrue(store.exists(key));
+        assertTrue(store.deleteOrphan(key, Instant.now().plusSeconds(60)));
+        assertFalse(store.exists(key));
+    }
+
+    @Test
+    void loadString_shouldReturnEmpty_whenBlobMissing() throws Exception {
+        OcrPayloadStore store = new OcrPayloadStore(tempDir.toString(), 6);
+
+        assertEquals(Optional.empty(), store.loadString(sha256(new byte[]{1})));
+    }
+
+    @Test
+    void pathFor_shouldRejectNonHexKeys() throws Exception {
+        OcrPayloadStore store = new OcrPayloadStore(tempDir.toString(), 6);
+
+        assertThrows(IllegalArgumentException.class, () -> store.pathFor("../../etc/passwd"));
+    }
+
+    private static String sha256(byte[] data) {
+        MessageDigest md = HashingIO.newSha256();
+        md.update(data);
+        return HashingIO.hex(md);
+    }
+}
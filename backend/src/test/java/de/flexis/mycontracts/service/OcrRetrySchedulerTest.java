@@ -0,0 +1,114 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.OcrStatus;
+import de.flexis.mycontracts.repository.OcrFileRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OcrRetrySchedulerTest {
+
+    @Mock
+    private OcrFileRepository ocrFileRepository;
+
+    @Mock
+    private StoredFileIndex storedFileIndex;
+
+    @Mock
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private OcrRetryScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        when(meterRegistryProvider.getIfAvailable(any())).thenAnswer(inv -> new SimpleMeterRegistry());
+        scheduler = new OcrRetryScheduler(ocrFileRepository, storedFileIndex, meterRegistryProvider);
+        ReflectionTestUtils.setField(scheduler, "maxRetries", 5);
+        ReflectionTestUtils.setField(scheduler, "retryBackoffMs", 1000L);
+        ReflectionTestUtils.setField(scheduler, "retryMaxBackoffMs", 10_000L);
+        ReflectionTestUtils.setField(scheduler, "batchSize", 100);
+    }
+
+    @Test
+    void backoff_shouldDoublePerAttemptUpToCap() {
+        assertEquals(1000, scheduler.backoffMillis(0));
+        assertEquals(2000, scheduler.backoffMillis(1));
+        assertEquals(8000, scheduler.backoffMillis(3));
+        assertEquals(10_000, scheduler.backoffMillis(4));
+        assertEquals(10_000, scheduler.backoffMillis(40));
+    }
+
+    @Test
+    void processDue_shouldRescheduleUnmatchedRowWithBackoff() {
+        // Given
+        OcrFileRepository.DueRetry row = dueRetry(1L, "/in/unknown_ocr.json", 1);
+        when(ocrFileRepository.findDue(eq(OcrStatus.PENDING), any(), any())).thenReturn(List.of(row));
+        when(storedFileIndex.findByBasename("unknown")).thenReturn(Optional.empty());
+
+        // When
+        int processed = scheduler.processDue().attempted();
+
+        // Then
+        assertEquals(1, processed);
+        verify(ocrFileRepository).scheduleRetry(eq(1L), any(Instant.class), any(Instant.class), eq(OcrStatus.PENDING));
+        verify(ocrFileRepository, never()).markFailed(any(), any(), any(), any());
+    }
+
+    @Test
+    void processDue_shouldMarkFailed_whenRetriesExhausted() {
+        // Given
+        OcrFileRepository.DueRetry row = dueRetry(2L, "/in/lost_ocr.json", 4);
+        when(ocrFileRepository.findDue(eq(OcrStatus.PENDING), any(), any())).thenReturn(List.of(row));
+        when(storedFileIndex.findByBasename("lost")).thenReturn(Optional.empty());
+
+        // When
+        scheduler.processDue();
+
+        // Then
+        verify(ocrFileRepository).markFailed(eq(2L), any(Instant.class), eq(OcrStatus.PENDING), eq(OcrStatus.FAILED));
+    }
+
+    @Test
+    void processDue_shouldBackOff_whenMarkingMatchedFails() {
+        // Given
+        OcrFileRepository.DueRetry row = dueRetry(3L, "/in/twin_ocr.json", 1);
+        StoredFile twin = new StoredFile("twin.pdf", "/storage/twin.pdf");
+        when(ocrFileRepository.findDue(eq(OcrStatus.PENDING), any(), any())).thenReturn(List.of(row));
+        when(storedFileIndex.findByBasename("twin")).thenReturn(Optional.of(twin));
+        when(ocrFileRepository.markMatched(eq(3L), eq(twin), any(), eq(OcrStatus.PENDING), eq(OcrStatus.MATCHED)))
+                .thenThrow(new DataIntegrityViolationException("matched_file_id"));
+
+        // When
+        scheduler.processDue();
+
+        // Then
+        verify(ocrFileRepository).scheduleRetry(eq(3L), any(Instant.class), any(Instant.class), eq(OcrStatus.PENDING));
+    }
+
+    private OcrFileRepository.DueRetry dueRetry(Long id, String path, int retryCount) {
+        return new OcrFileRepository.DueRetry() {
+            public Long getId() { return id; }
+            public String getPath() { return path; }
+            public int getRetryCount() { return retryCount; }
+            public Instant getSourceModifiedAt() { return null; }
+        };
+    }
+}
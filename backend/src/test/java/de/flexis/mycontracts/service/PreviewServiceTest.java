@@ -0,0 +1,72 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.PreviewSize;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreviewServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    PreviewService previewService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        previewService = new PreviewService(tempDir.resolve("previews").toString(), true, 1, 240, 1000, 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        previewService.shutdown();
+    }
+
+    @Test
+    void find_shouldRememberContentThePdfParserRejects() throws Exception {
+        // Given
+        Path broken = Files.writeString(tempDir.resolve("broken.pdf"), "%PDF-1.7 this is not a document");
+        StoredFile file = storedFile(broken, "a".repeat(64));
+
+        // When
+        Optional<Path> preview = previewService.find(file, PreviewSize.THUMBNAIL);
+
+        // Then
+        assertTrue(preview.isEmpty());
+        assertTrue(Files.exists(tempDir.resolve("previews/aa/" + "a".repeat(64) + ".none")));
+    }
+
+    @Test
+    void find_shouldRetryLater_whenReadingTheSourceFails() throws Exception {
+        // Given: the body cannot be read (a directory stands in for an I/O error)
+        Path source = Files.createDirectory(tempDir.resolve("scan.png"));
+        StoredFile file = storedFile(source, "b".repeat(64));
+
+        // When
+        Optional<Path> first = previewService.find(file, PreviewSize.THUMBNAIL);
+        Files.delete(source);
+        ImageIO.write(new BufferedImage(400, 600, BufferedImage.TYPE_INT_RGB), "png", source.toFile());
+        Optional<Path> second = previewService.find(file, PreviewSize.THUMBNAIL);
+
+        // Then
+        assertTrue(first.isEmpty());
+        assertTrue(second.isPresent());
+        assertEquals(240, ImageIO.read(second.get().toFile()).getWidth());
+    }
+
+    private static StoredFile storedFile(Path path, String sha256) {
+        StoredFile file = new StoredFile(path.getFileName().toString(), path.toString());
+        file.setChecksum(sha256);
+        return file;
+    }
+}
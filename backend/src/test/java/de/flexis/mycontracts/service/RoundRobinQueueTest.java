@@ -0,0 +1,48 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.util.TokenBucket;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoundRobinQueueTest {
+
+    @Test
+    void poll_shouldAlternateLanes_soBusyLaneCannotStarveOthers() throws Exception {
+        // Given
+        RoundRobinQueue<String> queue = new RoundRobinQueue<>(List.of(TokenBucket.unlimited(), TokenBucket.unlimited()));
+        for (int i = 0; i < 5; i++) queue.offer(0, "a" + i);
+        queue.offer(1, "b0");
+        queue.offer(1, "b1");
+
+        // When
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 7; i++) order.add(queue.poll(1, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals(List.of("a0", "b0", "a1", "b1", "a2", "a3", "a4"), order);
+    }
+
+    @Test
+    void poll_shouldSkipRateLimitedLane() throws Exception {
+        // Given: lane 0 allows one item, then one per minute
+        RoundRobinQueue<String> queue = new RoundRobinQueue<>(List.of(new TokenBucket(1.0 / 60, 1), TokenBucket.unlimited()));
+        queue.offer(0, "a0");
+        queue.offer(0, "a1");
+        queue.offer(1, "b0");
+        queue.offer(1, "b1");
+
+        // When
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 3; i++) order.add(queue.poll(1, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals(List.of("a0", "b0", "b1"), order);
+        assertNull(queue.poll(50, TimeUnit.MILLISECONDS));
+        assertEquals(1, queue.depth(0));
+    }
+}
@@ -0,0 +1,134 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.MaintenanceCheckpoint;
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.MaintenanceState;
+import de.flexis.mycontracts.repository.MaintenanceCheckpointRepository;
+import de.flexis.mycontracts.repository.StoredBlobRepository;
+import de.flexis.mycontracts.repository.StoredFileRepository;
+import de.flexis.mycontracts.util.HashingIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class StorageLayoutMigrationIntegrationTest {
+
+    static Path storageDir;
+
+    @Autowired
+    StoredFileRepository storedFileRepository;
+
+    @Autowired
+    StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    MaintenanceCheckpointRepository checkpointRepository;
+
+    @Autowired
+    BlobStore blobStore;
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) throws Exception {
+        storageDir = Files.createTempDirectory("mycontracts-migration-files");
+        String watchDir = Files.createTempDirectory("mycontracts-migration-watch").toString();
+        r.add("FILE_STORAGE_PATH", () -> storageDir.toString());
+        r.add("WATCH_DIR", () -> watchDir);
+        r.add("spring.datasource.url", () -> "jdbc:h2:mem:migrationdb;DB_CLOSE_DELAY=-1");
+        r.add("spring.datasource.driver-class-name", () -> "org.h2.Driver");
+        r.add("spring.datasource.username", () -> "sa");
+        r.add("spring.datasource.password", () -> "");
+    }
+
+    @BeforeEach
+    void clean() {
+        storedFileRepository.deleteAll();
+        storedBlobRepository.deleteAll();
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void movesLegacyFilesAndOldLayoutBlobs() throws Exception {
+        // two rows for one re-uploaded name (the old store() overwrote the file) and a blob in a 1x2 layout
+        Path legacy = Files.writeString(storageDir.resolve("vertrag.pdf"), "legacy content");
+        StoredFile first = storedFileRepository.save(new StoredFile("vertrag.pdf", legacy.toString()));
+        StoredFile second = storedFileRepository.save(new StoredFile("vertrag.pdf", legacy.toString()));
+        BlobStore oldLayout = new BlobStore(storageDir.toString(), 1, 2, storedBlobRepository);
+        Path tmp = Files.writeString(oldLayout.newTempPath(), "blob content");
+        String blobSha = HashingIO.sha256(tmp);
+        Path oldBlob = oldLayout.store(tmp, blobSha, 12).path();
+        StoredFile blobFile = new StoredFile("police.pdf", oldBlob.toString());
+        blobFile.setBlobKey(blobSha);
+        blobFile = storedFileRepository.save(blobFile);
+
+        StorageLayoutMigration migration = migration(2);
+        migration.start();
+        awaitFinished(migration);
+
+        MaintenanceStatus status = migration.status();
+        assertThat(status.state()).isEqualTo(MaintenanceState.DONE);
+        assertThat(status.detail()).isEqualTo("2x2");
+        assertThat(status.processed()).isEqualTo(3);
+        assertThat(status.changed()).isEqualTo(3);
+        assertThat(status.failed()).isZero();
+
+        String legacySha = sha("legacy content");
+        StoredFile migrated = storedFileRepository.findById(first.getId()).orElseThrow();
+        assertThat(migrated.getBlobKey()).isEqualTo(legacySha);
+        assertThat(Path.of(migrated.getPath())).isEqualTo(blobStore.pathFor(legacySha));
+        assertThat(storedFileRepository.findById(second.getId()).orElseThrow().getPath()).isEqualTo(migrated.getPath());
+        assertThat(storedBlobRepository.findById(legacySha).orElseThrow().getRefCount()).isEqualTo(2);
+        assertThat(legacy).doesNotExist();
+
+        assertThat(Path.of(storedFileRepository.findById(blobFile.getId()).orElseThrow().getPath()))
+                .isEqualTo(blobStore.pathFor(blobSha));
+        assertThat(blobStore.pathFor(blobSha)).hasContent("blob content");
+        assertThat(oldBlob).doesNotExist();
+    }
+
+    @Test
+    void resumesAfterCheckpointedId() throws Exception {
+        StoredFile done = storedFileRepository.save(new StoredFile("done.pdf", storageDir.resolve("done.pdf").toString()));
+        Path pending = Files.writeString(storageDir.resolve("pending.pdf"), "pending");
+        StoredFile todo = storedFileRepository.save(new StoredFile("pending.pdf", pending.toString()));
+        MaintenanceCheckpoint checkpoint = new MaintenanceCheckpoint(StorageLayoutMigration.TASK, blobStore.layout());
+        checkpoint.setState(MaintenanceState.STOPPED);
+        checkpoint.setCursor(done.getId().toString());
+        checkpoint.setProcessed(1);
+        checkpointRepository.save(checkpoint);
+
+        StorageLayoutMigration migration = migration(10);
+        migration.start();
+        awaitFinished(migration);
+
+        MaintenanceStatus status = migration.status();
+        assertThat(status.state()).isEqualTo(MaintenanceState.DONE);
+        assertThat(status.processed()).isEqualTo(2);
+        assertThat(status.failed()).isZero(); // done.pdf has no file, but was not looked at again
+        assertThat(storedFileRepository.findById(todo.getId()).orElseThrow().getBlobKey()).isEqualTo(sha("pending"));
+    }
+
+    private StorageLayoutMigration migration(int batchSize) {
+        return new StorageLayoutMigration(storedFileRepository, checkpointRepository, blobStore, batchSize, 0);
+    }
+
+    private static void awaitFinished(StorageLayoutMigration migration) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (migration.isRunning() && System.currentTimeMillis() < deadline) Thread.sleep(20);
+        assertThat(migration.isRunning()).isFalse();
+    }
+
+    private static String sha(String content) throws Exception {
+        var md = HashingIO.newSha256();
+        md.update(content.getBytes());
+        return HashingIO.hex(md);
+    }
+}
@@ -0,0 +1,174 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.OcrFile;
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.MaintenanceState;
+import de.flexis.mycontracts.repository.OcrFileRepository;
+import de.flexis.mycontracts.repository.StoredBlobRepository;
+import de.flexis.mycontracts.repository.StoredFileRepository;
+import de.flexis.mycontracts.util.HashingIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class StorageReconciliationIntegrationTest {
+
+    static Path storageDir;
+
+    @Autowired
+    StorageReconciliation reconciliation;
+
+    @Autowired
+    FileStorageService fileStorageService;
+
+    @Autowired
+    StoredFileRepository storedFileRepository;
+
+    @Autowired
+    StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    BlobStore blobStore;
+
+    @Autowired
+    OcrFileRepository ocrFileRepository;
+
+    @Autowired
+    OcrPayloadStore payloadStore;
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) throws Exception {
+        storageDir = Files.createTempDirectory("mycontracts-reconcile-files");
+        String watchDir = Files.createTempDirectory("mycontracts-reconcile-watch").toString();
+        String payloadDir = Files.createTempDirectory("mycontracts-reconcile-payloads").toString();
+        r.add("FILE_STORAGE_PATH", () -> storageDir.toString());
+        r.add("WATCH_DIR", () -> watchDir);
+        r.add("OCR_PAYLOAD_PATH", () -> payloadDir);
+        r.add("storage.reconcile.batch-size", () -> "2");
+        r.add("storage.reconcile.min-age-hours", () -> "0");
+        r.add("spring.datasource.url", () -> "jdbc:h2:mem:reconciledb;DB_CLOSE_DELAY=-1");
+        r.add("spring.datasource.driver-class-name", () -> "org.h2.Driver");
+        r.add("spring.datasource.username", () -> "sa");
+        r.add("spring.datasource.password", () -> "");
+    }
+
+    @BeforeEach
+    void clean() {
+        ocrFileRepository.deleteAll();
+        storedFileRepository.deleteAll();
+        storedBlobRepository.deleteAll();
+    }
+
+    @Test
+    void reportsDriftInBothDirectionsAndDeletesOrphansOnRequest() throws Exception {
+        StoredFile kept = store("kept content", "a.pdf");
+        store("kept content", "b.pdf");
+        StoredFile lost = store("lost content", "c.pdf");
+        Files.delete(Path.of(lost.getPath()));
+        // bodies left behind by a failed save
+        Path orphan = writeBlob("orphan content");
+        Path secondOrphan = writeBlob("another orphan");
+        Path stray = Files.writeString(storageDir.resolve("blobs/readme.txt"), "not a blob");
+        Path legacyOrphan = Files.writeString(storageDir.resolve("old.pdf"), "legacy");
+        Path secondLegacyOrphan = Files.writeString(storageDir.resolve("zz.pdf"), "legacy");
+        storedFileRepository.save(new StoredFile("gone.pdf", storageDir.resolve("gone.pdf").toString()));
+        // legacy rows that are fine: one in the root, one outside it
+        Path legacyKept = Files.writeString(storageDir.resolve("kept.pdf"), "legacy");
+        storedFileRepository.save(new StoredFile("kept.pdf", legacyKept.toString()));
+        Path outside = Files.createTempFile("mycontracts-reconcile-outside", ".pdf");
+        storedFileRepository.save(new StoredFile("outside.pdf", outside.toString()));
+
+        reconciliation.start(false);
+        awaitFinished();
+
+        ReconciliationReport report = reconciliation.report();
+        assertThat(report.state()).isEqualTo(MaintenanceState.DONE);
+        assertThat(report.blobsOnDisk()).isEqualTo(3);
+        assertThat(report.blobsReferenced()).isEqualTo(2);
+        assertThat(report.orphanBlobs()).isEqualTo(2);
+        assertThat(report.orphanBytes()).isEqualTo("orphan content".length() + "another orphan".length());
+        assertThat(report.deletedBlobs()).isZero();
+        assertThat(report.missingBlobs()).isEqualTo(1);
+        assertThat(report.strayFiles()).isEqualTo(1);
+        assertThat(report.legacyOrphans()).isEqualTo(2);
+        assertThat(report.legacyMissing()).isEqualTo(1);
+        assertThat(report.orphanSamples()).contains(orphan.toString(), secondOrphan.toString(), legacyOrphan.toString(),
+                secondLegacyOrphan.toString());
+        assertThat(report.missingSamples()).contains(lost.getPath(), storageDir.resolve("gone.pdf").toString());
+        assertThat(orphan).exists();
+
+        reconciliation.start(true);
+        awaitFinished();
+
+        report = reconciliation.report();
+        assertThat(report.deletedBlobs()).isEqualTo(2);
+        assertThat(orphan).doesNotExist();
+        assertThat(secondOrphan).doesNotExist();
+        assertThat(Path.of(kept.getPath())).hasContent("kept content");
+        assertThat(stray).exists();
+        assertThat(legacyOrphan).exists();
+    }
+
+    @Test
+    void reportsUnreferencedOcrPayloadsAndDeletesThemOnRequest() throws Exception {
+        String payload = payloadStore.put(sha256("payload"), "{\"pages\":[]}".getBytes());
+        String text = payloadStore.put(sha256("text"), "Vertragstext".getBytes());
+        String orphan = payloadStore.put(sha256("re-ingested"), "{\"old\":true}".getBytes());
+        OcrFile ocr = new OcrFile(storageDir.resolve("contract_ocr.json").toString());
+        ocr.setPayloadRef(payload);
+        ocr.setTextRef(text);
+        ocrFileRepository.save(ocr);
+
+        reconciliation.start(false);
+        awaitFinished();
+
+        ReconciliationReport report = reconciliation.report();
+        assertThat(report.payloadsOnDisk()).isEqualTo(3);
+        assertThat(report.orphanPayloads()).isEqualTo(1);
+        assertThat(report.orphanPayloadBytes()).isPositive();
+        assertThat(report.deletedPayloads()).isZero();
+        assertThat(payloadStore.exists(orphan)).isTrue();
+
+        reconciliation.start(true);
+        awaitFinished();
+
+        assertThat(reconciliation.report().deletedPayloads()).isEqualTo(1);
+        assertThat(payloadStore.exists(orphan)).isFalse();
+        assertThat(payloadStore.loadString(payload)).contains("{\"pages\":[]}");
+        assertThat(payloadStore.loadString(text)).contains("Vertragstext");
+    }
+
+    private static String sha256(String content) {
+        var md = HashingIO.newSha256();
+        md.update(content.getBytes());
+        return HashingIO.hex(md);
+    }
+
+    private StoredFile store(String content, String name) throws Exception {
+        return fileStorageService.store(new ByteArrayInputStream(content.getBytes()), name, "application/pdf");
+    }
+
+    private Path writeBlob(String content) throws Exception {
+        var md = HashingIO.newSha256();
+        md.update(content.getBytes());
+        Path path = blobStore.pathFor(HashingIO.hex(md));
+        Files.createDirectories(path.getParent());
+        return Files.writeString(path, content);
+    }
+
+    private void awaitFinished() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reconciliation.isRunning() && System.currentTimeMillis() < deadline) Thread.sleep(20);
+        assertThat(reconciliation.isRunning()).isFalse();
+    }
+}
@@ -0,0 +1,121 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.enums.MaintenanceState;
+import de.flexis.mycontracts.model.enums.StorageIntegrity;
+import de.flexis.mycontracts.repository.MaintenanceCheckpointRepository;
+import de.flexis.mycontracts.repository.StoredBlobRepository;
+import de.flexis.mycontracts.repository.StoredFileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+public class StorageScrubberIntegrationTest {
+
+    @Autowired
+    StorageScrubber scrubber;
+
+    @Autowired
+    FileStorageService fileStorageService;
+
+    @Autowired
+    StoredFileRepository storedFileRepository;
+
+    @Autowired
+    StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    MaintenanceCheckpointRepository checkpointRepository;
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) throws Exception {
+        String storageDir = Files.createTempDirectory("mycontracts-scrub-files").toString();
+        String watchDir = Files.createTempDirectory("mycontracts-scrub-watch").toString();
+        r.add("FILE_STORAGE_PATH", () -> storageDir);
+        r.add("WATCH_DIR", () -> watchDir);
+        r.add("storage.scrub.batch-size", () -> "2");
+        r.add("spring.datasource.url", () -> "jdbc:h2:mem:scrubdb;DB_CLOSE_DELAY=-1");
+        r.add("spring.datasource.driver-class-name", () -> "org.h2.Driver");
+        r.add("spring.datasource.username", () -> "sa");
+        r.add("spring.datasource.password", () -> "");
+    }
+
+    @BeforeEach
+    void clean() {
+        storedFileRepository.deleteAll();
+        storedBlobRepository.deleteAll();
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void flagsChangedAndMissingFiles() throws Exception {
+        StoredFile intact = store("intact content", "a.pdf");
+        StoredFile copy = store("intact content", "b.pdf");
+        StoredFile changed = store("original content", "c.pdf");
+        StoredFile lost = store("lost content", "d.pdf");
+        Files.writeString(Path.of(changed.getPath()), "tampered content");
+        Files.delete(Path.of(lost.getPath()));
+
+        scrubber.start();
+        awaitFinished();
+
+        MaintenanceStatus status = scrubber.status();
+        assertThat(status.state()).isEqualTo(MaintenanceState.DONE);
+        assertThat(status.processed()).isEqualTo(4);
+        assertThat(status.changed()).isEqualTo(2);
+        assertThat(status.failed()).isZero();
+        assertThat(status.cursor()).isEqualTo(lost.getId().toString());
+
+        assertThat(scrubber.issues())
+                .extracting(IntegrityIssue::fileId, IntegrityIssue::integrity)
+                .containsExactly(
+                        tuple(changed.getId(), StorageIntegrity.MISMATCH),
+                        tuple(lost.getId(), StorageIntegrity.MISSING));
+        StoredFile shared = storedFileRepository.findById(copy.getId()).orElseThrow();
+        assertThat(shared.getIntegrity()).isEqualTo(StorageIntegrity.OK);
+        assertThat(shared.getVerifiedAt()).isNotNull();
+        assertThat(storedFileRepository.findById(intact.getId()).orElseThrow().getIntegrity())
+                .isEqualTo(StorageIntegrity.OK);
+    }
+
+    @Test
+    void waitsWhileDownloadsAreServed() throws Exception {
+        StoredFile file = store("some content", "e.pdf");
+
+        scrubber.foregroundStarted();
+        try {
+            scrubber.start();
+            Thread.sleep(300);
+            assertThat(scrubber.isRunning()).isTrue();
+            assertThat(storedFileRepository.findById(file.getId()).orElseThrow().getVerifiedAt()).isNull();
+        } finally {
+            scrubber.foregroundFinished();
+        }
+        awaitFinished();
+
+        assertThat(scrubber.status().state()).isEqualTo(MaintenanceState.DONE);
+        assertThat(storedFileRepository.findById(file.getId()).orElseThrow().getIntegrity())
+                .isEqualTo(StorageIntegrity.OK);
+    }
+
+    private StoredFile store(String content, String name) throws Exception {
+        return fileStorageService.store(new ByteArrayInputStream(content.getBytes()), name, "application/pdf");
+    }
+
+    private void awaitFinished() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (scrubber.isRunning() && System.currentTimeMillis() < deadline) Thread.sleep(20);
+        assertThat(scrubber.isRunning()).isFalse();
+    }
+}
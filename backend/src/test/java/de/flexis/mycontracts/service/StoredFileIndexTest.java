@@ -0,0 +1,81 @@
+package de.flexis.mycontracts.service;
+
+import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.repository.StoredFileRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StoredFileIndexTest {
+
+    @Mock
+    private StoredFileRepository storedFileRepository;
+
+    @Test
+    void findIdByBasename_shouldServeRegisteredFilesWithoutQuery() {
+        // Given
+        StoredFileIndex index = new StoredFileIndex(storedFileRepository);
+        when(storedFileRepository.findTop500ByBasenameIsNull()).thenReturn(List.of());
+        when(storedFileRepository.findBasenameEntries()).thenReturn(List.of());
+        StoredFile file = storedFile(7L, "vertrag.pdf");
+
+        // When
+        index.register(file);
+        Optional<Long> result = index.findIdByBasename("vertrag");
+
+        // Then
+        assertEquals(Optional.of(7L), result);
+        verify(storedFileRepository, never()).findFirstIdByBasename(any());
+    }
+
+    @Test
+    void findIdByBasename_shouldFallBackToIndexedQuery_whenNotInMemory() {
+        // Given
+        StoredFileIndex index = new StoredFileIndex(storedFileRepository);
+        when(storedFileRepository.findTop500ByBasenameIsNull()).thenReturn(List.of());
+        when(storedFileRepository.findBasenameEntries()).thenReturn(List.of());
+        when(storedFileRepository.findFirstIdByBasename("scan")).thenReturn(3L);
+
+        // When
+        Optional<Long> first = index.findIdByBasename("scan");
+        Optional<Long> second = index.findIdByBasename("scan");
+
+        // Then
+        assertEquals(Optional.of(3L), first);
+        assertEquals(Optional.of(3L), second);
+        verify(storedFileRepository, times(1)).findFirstIdByBasename("scan");
+    }
+
+    @Test
+    void unregister_shouldRemoveMapping() {
+        // Given
+        StoredFileIndex index = new StoredFileIndex(storedFileRepository);
+        when(storedFileRepository.findTop500ByBasenameIsNull()).thenReturn(List.of());
+        when(storedFileRepository.findBasenameEntries()).thenReturn(List.of());
+        when(storedFileRepository.findFirstIdByBasename("nda")).thenReturn(null);
+        StoredFile file = storedFile(5L, "nda.pdf");
+        index.register(file);
+
+        // When
+        index.unregister(file);
+
+        // Then
+        assertTrue(index.findIdByBasename("nda").isEmpty());
+    }
+
+    private StoredFile storedFile(Long id, String filename) {
+        StoredFile file = new StoredFile(filename, "/path/to/" + filename);
+        ReflectionTestUtils.setField(file, "id", id);
+        return file;
+    }
+}
@@ -2,20 +2,32 @@ package de.flexis.mycontracts.service;
 
 import de.flexis.mycontracts.model.OcrFile;
 import de.flexis.mycontracts.model.StoredFile;
+import de.flexis.mycontracts.model.Contract;
+import de.flexis.mycontracts.model.ExtractedField;
+import de.flexis.mycontracts.model.enums.FieldSource;
+import de.flexis.mycontracts.repository.ContractRepository;
+import de.flexis.mycontracts.repository.ExtractedFieldRepository;
 import de.flexis.mycontracts.repository.OcrFileRepository;
 import de.flexis.mycontracts.repository.StoredFileRepository;
+import de.flexis.mycontracts.model.enums.OcrStatus;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 @SpringBootTest
 public class WatcherServiceIntegrationTest {
@@ -29,16 +41,40 @@ public class WatcherServiceIntegrationTest {
     @Autowired
     OcrFileRepository ocrFileRepository;
 
+    @Autowired
+    FileStorageService fileStorageService;
+
+    @Autowired
+    OcrPayloadMigration ocrPayloadMigration;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    ContractRepository contractRepository;
+
+    @Autowired
+    ExtractedFieldRepository extractedFieldRepository;
+
     static Path watchDir;
+    static Path secondWatchDir;
     static Path storageDir;
+    static Path payloadDir;
 
     @DynamicPropertySource
     static void props(DynamicPropertyRegistry r) throws Exception {
         storageDir = Files.createTempDirectory("mycontracts-storage");
         watchDir = Files.createTempDirectory("mycontracts-watch");
+        secondWatchDir = Files.createTempDirectory("mycontracts-watch2");
+        payloadDir = Files.createTempDirectory("mycontracts-ocr-payloads");
         r.add("FILE_STORAGE_PATH", () -> storageDir.toString());
-        r.add("WATCH_DIR", () -> watchDir.toString());
+        r.add("WATCH_DIRS", () -> watchDir + "," + secondWatchDir);
+        r.add("OCR_PAYLOAD_PATH", () -> payloadDir.toString());
         r.add("watcher.retry-backoff-ms", () -> 0); // allow immediate retry in tests
+        r.add("watcher.stability-ms", () -> 100);
         r.add("spring.datasource.url", () -> "jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1");
         r.add("spring.datasource.driver-class-name", () -> "org.h2.Driver");
         r.add("spring.datasource.username", () -> "sa");
@@ -67,6 +103,28 @@ public class WatcherServiceIntegrationTest {
         assertThat(of.getStatus()).isEqualTo(de.flexis.mycontracts.model.enums.OcrStatus.MATCHED);
         assertThat(of.getMatchedFile()).isNotNull();
         assertThat(of.getMatchedFile().getFilename()).isEqualTo("contract1.pdf");
+        assertThat(of.getPayloadRef()).isEqualTo(of.getChecksum());
+        assertThat(of.getPayloadSize()).isEqualTo(17L);
+        assertThat(fileStorageService.loadOcrJson(of)).contains("{\"text\":\"sample\"}");
+        assertThat(of.getOcrFormat()).isEqualTo(de.flexis.mycontracts.ocr.OcrFormat.PLAIN_TEXT);
+        assertThat(of.getTextRef()).isNotNull();
+        assertThat(of.getPageCount()).isEqualTo(1);
+        assertThat(of.getWordCount()).isEqualTo(1L);
+        assertThat(fileStorageService.loadOcrText(of)).contains("sample\n");
+    }
+
+    @Test
+    void whenOcrJsonIsMalformed_thenIngestedWithoutText() throws Exception {
+        Files.writeString(watchDir.resolve("broken_ocr.json"), "{\"pages\": [ {\"blocks\": ");
+
+        watcherService.scanOnce();
+
+        OcrFile of = ocrFileRepository.findAll().stream()
+                .filter(o -> o.getPath().endsWith("broken_ocr.json"))
+                .findFirst().orElseThrow();
+        assertThat(of.getOcrFormat()).isEqualTo(de.flexis.mycontracts.ocr.OcrFormat.UNKNOWN);
+        assertThat(of.getTextRef()).isNull();
+        assertThat(of.getPayloadRef()).isNotNull();
     }
 
     @Test
@@ -106,4 +164,210 @@ public class WatcherServiceIntegrationTest {
         boolean foundMatched = all2.stream().anyMatch(o -> o.getPath().endsWith("willmatch_ocr.json") && o.getStatus().name().equals("MATCHED") && o.getMatchedFile() != null && o.getMatchedFile().getFilename().equals("willmatch.pdf"));
         assertThat(foundMatched).isTrue();
     }
+
+    @Test
+    void whenOcrDropped_thenIngestedByWatchEventsWithoutScan() throws Exception {
+        assumeTrue(watcherService.isEventDriven(), "WatchService not available on this platform");
+
+        Path ocr = watchDir.resolve("evented_ocr.json");
+        Files.writeString(ocr, "{\"text\":\"x\"}");
+        String pathStr = ocr.toAbsolutePath().toString();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (ocrFileRepository.findByPath(pathStr).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        assertThat(ocrFileRepository.findByPath(pathStr)).isPresent();
+    }
+
+    @Test
+    void whenManyOcrFilesDropped_thenAllIngestedInOneScan() throws Exception {
+        for (int i = 0; i < 40; i++) {
+            Files.writeString(watchDir.resolve("bulk" + i + "_ocr.json"), "{\"text\":\"" + i + "\"}");
+        }
+
+        watcherService.scanOnce();
+
+        long ingested = ocrFileRepository.findAll().stream()
+                .filter(o -> o.getPath().matches(".*bulk\\d+_ocr\\.json"))
+                .count();
+        assertThat(ingested).isEqualTo(40);
+    }
+
+    @Test
+    void scanReportCountsNewFilesAndSkipsKnownOnes() throws Exception {
+        Path storedFile = storageDir.resolve("reported.pdf");
+        Files.writeString(storedFile, "dummy");
+        storedFileRepository.save(new StoredFile("reported.pdf", storedFile.toString()));
+        Files.writeString(watchDir.resolve("reported_ocr.json"), "{\"text\":\"a\"}");
+        Files.writeString(watchDir.resolve("unreported_ocr.json"), "{\"text\":\"b\"}");
+
+        ScanReport first = watcherService.scanOnce();
+        ScanReport second = watcherService.scanOnce();
+
+        assertThat(first.matched()).isGreaterThanOrEqualTo(1);
+        assertThat(first.pending()).isGreaterThanOrEqualTo(1);
+        assertThat(second.skipped()).isEqualTo(second.discovered());
+        assertThat(watcherService.listOcrFiles(OcrStatus.MATCHED, PageRequest.of(0, 500)).getContent())
+                .anyMatch(o -> o.getPath().endsWith("reported_ocr.json") && o.getMatchedFileId() != null);
+    }
+
+    @Test
+    void legacyRawJsonColumn_isMovedToPayloadStore() {
+        jdbcTemplate.execute("alter table ocr_files add column if not exists raw_json clob");
+        OcrFile legacy = new OcrFile(watchDir.resolve("legacy_ocr.json").toString());
+        legacy.setChecksum("legacy");
+        legacy = ocrFileRepository.save(legacy);
+        jdbcTemplate.update("update ocr_files set raw_json = ? where id = ?", "{\"text\":\"old\"}", legacy.getId());
+
+        ocrPayloadMigration.migrate();
+
+        OcrFile migrated = ocrFileRepository.findById(legacy.getId()).orElseThrow();
+        assertThat(migrated.getPayloadSize()).isEqualTo(14L);
+        assertThat(fileStorageService.loadOcrJson(migrated)).contains("{\"text\":\"old\"}");
+        assertThat(jdbcTemplate.queryForObject("select count(*) from ocr_files where raw_json is not null", Integer.class))
+                .isZero();
+    }
+
+    @Test
+    void scan_recordsDurationLagAndDirectoryMetrics() throws Exception {
+        Path storedFile = storageDir.resolve("metered.pdf");
+        Files.writeString(storedFile, "dummy");
+        storedFileRepository.save(new StoredFile("metered.pdf", storedFile.toString()));
+        Files.writeString(watchDir.resolve("metered_ocr.json"), "{\"text\":\"m\"}");
+        long scansBefore = meterRegistry.get("watcher.scan.duration").timer().count();
+
+        watcherService.scanOnce();
+
+        assertThat(meterRegistry.get("watcher.scan.duration").timer().count()).isGreaterThan(scansBefore);
+        assertThat(meterRegistry.get("watcher.ingest.duration").timer().count()).isPositive();
+        assertThat(meterRegistry.get("watcher.ingest.lag").timer().count()).isPositive();
+        String rootTag = watchDir.toAbsolutePath().normalize().toString();
+        assertThat(meterRegistry.get("watcher.directory.files").tag("root", rootTag).gauge().value())
+                .isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("watcher.directory.size").tag("root", rootTag).gauge().value()).isPositive();
+        assertThat(meterRegistry.get("watcher.pending.backlog").gauge().value())
+                .isEqualTo(ocrFileRepository.countByStatus(OcrStatus.PENDING));
+    }
+
+    @Test
+    void scan_ingestsEveryWatchRootAndTagsMetricsPerRoot() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Files.writeString(watchDir.resolve("rootA" + i + "_ocr.json"), "{\"text\":\"a\"}");
+            Files.writeString(secondWatchDir.resolve("rootB" + i + "_ocr.json"), "{\"text\":\"b\"}");
+        }
+
+        watcherService.scanOnce();
+
+        assertThat(watcherService.getWatchRoots()).hasSize(2);
+        for (int i = 0; i < 3; i++) {
+            assertThat(ocrFileRepository.findByPath(watchDir.resolve("rootA" + i + "_ocr.json").toString())).isPresent();
+            assertThat(ocrFileRepository.findByPath(secondWatchDir.resolve("rootB" + i + "_ocr.json").toString())).isPresent();
+        }
+        String secondTag = secondWatchDir.toAbsolutePath().normalize().toString();
+        assertThat(meterRegistry.get("watcher.root.dispatched").tag("root", secondTag).counter().count())
+                .isGreaterThanOrEqualTo(3);
+        assertThat(meterRegistry.get("watcher.directory.files").tag("root", secondTag).gauge().value())
+                .isGreaterThanOrEqualTo(3);
+    }
+
+    @Test
+    void changedOcrFile_isReingestedIntoSameRowAndMarksExtractionsStale() throws Exception {
+        Contract contract = contractRepository.save(new Contract("Changing contract"));
+        Path storedFile = storageDir.resolve("changing.pdf");
+        Files.writeString(storedFile, "dummy");
+        StoredFile sf = new StoredFile("changing.pdf", storedFile.toString());
+        sf.setContract(contract);
+        storedFileRepository.save(sf);
+        ExtractedField field = extractedFieldRepository.save(
+                new ExtractedField(contract, "amount", "100 EUR", 0.9, FieldSource.LLM));
+        Path ocr = watchDir.resolve("changing_ocr.json");
+        Files.writeString(ocr, "{\"text\":\"v1\"}");
+        watcherService.scanOnce();
+        OcrFile original = ocrFileRepository.findByPath(ocr.toString()).orElseThrow();
+
+        Files.writeString(ocr, "{\"text\":\"v2 longer\"}");
+        Files.setLastModifiedTime(ocr, FileTime.from(Instant.now().plusSeconds(60)));
+        watcherService.scanOnce();
+
+        OcrFile updated = awaitChecksumChange(ocr.toString(), original.getChecksum());
+        assertThat(updated.getId()).isEqualTo(original.getId());
+        assertThat(updated.getStatus()).isEqualTo(OcrStatus.MATCHED);
+        assertThat(updated.getSourceSize()).isEqualTo(Files.size(ocr));
+        assertThat(fileStorageService.loadOcrJson(updated)).contains("{\"text\":\"v2 longer\"}");
+        assertThat(extractedFieldRepository.findById(field.getId()).orElseThrow().isStale()).isTrue();
+    }
+
+    @Test
+    void touchedOcrFile_onlyRefreshesFingerprint() throws Exception {
+        Path ocr = watchDir.resolve("touched_ocr.json");
+        Files.writeString(ocr, "{\"text\":\"same\"}");
+        watcherService.scanOnce();
+        OcrFile original = ocrFileRepository.findByPath(ocr.toString()).orElseThrow();
+        Instant touchedAt = Instant.now().plusSeconds(120);
+
+        Files.setLastModifiedTime(ocr, FileTime.from(touchedAt));
+        ScanReport report = watcherService.scanOnce();
+
+        OcrFile after = ocrFileRepository.findByPath(ocr.toString()).orElseThrow();
+        assertThat(report.updated()).isZero();
+        assertThat(after.getChecksum()).isEqualTo(original.getChecksum());
+        assertThat(after.getPayloadRef()).isEqualTo(original.getPayloadRef());
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (ocrFileRepository.findByPath(ocr.toString()).orElseThrow().getSourceModifiedAt().toEpochMilli()
+                != touchedAt.toEpochMilli() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(ocrFileRepository.findByPath(ocr.toString()).orElseThrow().getSourceModifiedAt().toEpochMilli())
+                .isEqualTo(touchedAt.toEpochMilli());
+    }
+
+    @Test
+    void sameSizeEditInMiddleOfLargeOcrFile_isReingested() throws Exception {
+        Path ocr = watchDir.resolve("large_ocr.json");
+        // well above 128 KiB, the edit lands far from both ends
+        char[] text = new char[512 * 1024];
+        java.util.Arrays.fill(text, 'a');
+        Files.writeString(ocr, "{\"text\":\"" + new String(text) + "\"}");
+        watcherService.scanOnce();
+        OcrFile original = ocrFileRepository.findByPath(ocr.toString()).orElseThrow();
+
+        text[text.length / 2] = 'b';
+        Files.writeString(ocr, "{\"text\":\"" + new String(text) + "\"}");
+        Files.setLastModifiedTime(ocr, FileTime.from(Instant.now().plusSeconds(180)));
+        watcherService.scanOnce();
+
+        OcrFile updated = awaitChecksumChange(ocr.toString(), original.getChecksum());
+        assertThat(updated.getChecksum()).isNotEqualTo(original.getChecksum());
+        assertThat(updated.getSourceSize()).isEqualTo(original.getSourceSize());
+    }
+
+    @Test
+    void sameSidecarInTwoRoots_keepsSecondOcrPendingInsteadOfDroppingIt() throws Exception {
+        Path storedFile = storageDir.resolve("twin.pdf");
+        Files.writeString(storedFile, "dummy");
+        storedFileRepository.save(new StoredFile("twin.pdf", storedFile.toString()));
+        Path first = watchDir.resolve("twin_ocr.json");
+        Path second = secondWatchDir.resolve("twin_ocr.json");
+        Files.writeString(first, "{\"text\":\"first\"}");
+        Files.writeString(second, "{\"text\":\"second\"}");
+
+        watcherService.scanOnce();
+
+        OcrFile a = ocrFileRepository.findByPath(first.toString()).orElseThrow();
+        OcrFile b = ocrFileRepository.findByPath(second.toString()).orElseThrow();
+        // only one OCR can be matched to a file, the other one waits instead of being lost
+        assertThat(List.of(a.getStatus(), b.getStatus())).containsExactlyInAnyOrder(OcrStatus.MATCHED, OcrStatus.PENDING);
+    }
+
+    private OcrFile awaitChecksumChange(String path, String oldChecksum) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        OcrFile current = ocrFileRepository.findByPath(path).orElseThrow();
+        while (oldChecksum.equals(current.getChecksum()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            current = ocrFileRepository.findByPath(path).orElseThrow();
+        }
+        return current;
+    }
 }
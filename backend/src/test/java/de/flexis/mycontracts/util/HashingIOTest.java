@@ -0,0 +1,89 @@
+package de.flexis.mycontracts.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashingIOTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readAndHash_shouldReturnContentAndSha256_forSmallAndLargeFiles() throws Exception {
+        byte[] small = "{\"text\":\"hello\"}".getBytes();
+        byte[] large = new byte[(int) HashingIO.MMAP_THRESHOLD + 123];
+        Arrays.fill(large, (byte) 'x');
+
+        for (byte[] content : new byte[][]{small, large}) {
+            Path file = tempDir.resolve("f" + content.length);
+            Files.write(file, content);
+
+            HashingIO.HashedBytes result = HashingIO.readAndHash(file);
+
+            assertArrayEquals(content, result.data());
+            assertEquals(sha256(content), result.sha256());
+            assertEquals(sha256(content), HashingIO.sha256(file));
+        }
+    }
+
+    @Test
+    void copyAndHash_shouldWriteDestinationAndHashInOnePass() throws Exception {
+        byte[] content = "contract body".getBytes();
+        Path dest = tempDir.resolve("copy.bin");
+
+        HashingIO.HashedCopy copy = HashingIO.copyAndHash(new ByteArrayInputStream(content), dest, 1024);
+
+        assertEquals(content.length, copy.size());
+        assertEquals(sha256(content), copy.sha256());
+        assertArrayEquals(content, Files.readAllBytes(dest));
+    }
+
+    @Test
+    void copyAndHash_shouldRejectAndRemovePartialFile_whenLimitExceeded() {
+        Path dest = tempDir.resolve("big.bin");
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> HashingIO.copyAndHash(new ByteArrayInputStream(new byte[2048]), dest, 1024));
+
+        assertEquals("File too large", ex.getMessage());
+        assertFalse(Files.exists(dest));
+    }
+
+    @Test
+    void fastDigest_shouldMatchForFileAndBytes_andChangeWithAnyByte() throws Exception {
+        byte[] small = "{\"text\":\"small\"}".getBytes();
+        // 3 MB: read through the mapped path, well past any head/tail window
+        byte[] large = new byte[3 * 1024 * 1024];
+        Arrays.fill(large, (byte) 'x');
+
+        for (byte[] content : new byte[][]{small, large}) {
+            Path file = tempDir.resolve("d" + content.length);
+            Files.write(file, content);
+
+            assertEquals(HashingIO.fastDigest(content), HashingIO.fastDigest(file));
+        }
+
+        byte[] tailChanged = large.clone();
+        tailChanged[tailChanged.length - 1] = 'y';
+        assertNotEquals(HashingIO.fastDigest(large), HashingIO.fastDigest(tailChanged));
+
+        // same length, one byte flipped in the middle
+        byte[] middleChanged = large.clone();
+        middleChanged[middleChanged.length / 2] = 'y';
+        Path file = Files.write(tempDir.resolve("middle"), middleChanged);
+        assertNotEquals(HashingIO.fastDigest(large), HashingIO.fastDigest(file));
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
@@ -0,0 +1,39 @@
+package de.flexis.mycontracts.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    @Test
+    void tryAcquire_shouldAllowBurstThenRefuse() {
+        TokenBucket bucket = new TokenBucket(1, 3);
+
+        assertTrue(bucket.tryAcquire(1));
+        assertTrue(bucket.tryAcquire(1));
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+        assertTrue(bucket.nanosUntilAvailable(1) > 0);
+    }
+
+    @Test
+    void acquire_shouldThrottleToConfiguredRate() throws Exception {
+        TokenBucket bucket = new TokenBucket(1000, 100);
+        bucket.acquire(100); // drains the burst
+
+        long start = System.nanoTime();
+        bucket.acquire(100);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMs >= 80, "expected ~100ms wait, got " + elapsedMs);
+    }
+
+    @Test
+    void unlimited_shouldNeverBlock() {
+        TokenBucket bucket = TokenBucket.unlimited();
+
+        for (int i = 0; i < 1000; i++) assertTrue(bucket.tryAcquire(1));
+        assertEquals(0, bucket.nanosUntilAvailable(Long.MAX_VALUE));
+    }
+}
@@ -3,6 +3,7 @@ import { Routes, Route, Navigate, useNavigate, useParams, useLocation } from 're
 import { FileSummary, FileDetail, MarkerFilter } from './types'
 import { apiBase } from './utils/apiConfig'
 import { getFiltered } from './utils'
+import { uploadFile } from './utils/upload'
 import { getResponsiveStyles, isMobileScreen } from './styles/styles'
 import { Dashboard } from './components/Dashboard'
 import { FileList } from './components/FileList'
@@ -252,13 +253,11 @@ function FilesShell() {
     const input = ev.currentTarget.elements.namedItem('file') as HTMLInputElement
     if (!input?.files || !input.files[0]) return
     const file = input.files[0]
-    const body = new FormData()
-    body.append('file', file)
     setUploading(true)
     setUploadStatus('uploading')
     setError(null)
     try {
-      const res = await fetch(apiBase + '/api/files/upload', { method: 'POST', body })
+      const res = await uploadFile(file)
       if (!res.ok) throw new Error('Upload failed')
       const created: FileSummary = await res.json()
       await refreshList()
@@ -278,13 +277,11 @@ function FilesShell() {
   async function handleMobileUpload(files: FileList | null) {
     if (!files || !files[0]) return
     const file = files[0]
-    const body = new FormData()
-    body.append('file', file)
     setUploading(true)
     setUploadStatus('uploading')
     setError(null)
     try {
-      const res = await fetch(apiBase + '/api/files/upload', { method: 'POST', body })
+      const res = await uploadFile(file)
       if (!res.ok) throw new Error('Upload failed')
       const created: FileSummary = await res.json()
       await refreshList()
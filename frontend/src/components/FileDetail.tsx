@@ -118,6 +118,14 @@ export function FileDetail({
               </div>
             )}
           </div>
+          <div>
+            <img
+              src={`${apiBase}/api/files/${detail.id}/preview?size=page`}
+              alt={detail.filename}
+              style={{ maxWidth: '100%', border: '1px solid #e5e7eb', borderRadius: 4, marginBottom: '0.5rem' }}
+              onError={e => { e.currentTarget.style.display = 'none' }}
+            />
+          </div>
           <div>
             <a href={`${apiBase}/api/files/${detail.id}/download`} style={styles.link}>Download</a>
             {isMobile() && (
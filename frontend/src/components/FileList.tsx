@@ -2,6 +2,7 @@ import React, { useState } from 'react'
 import { FileSummary, FileDetail, MarkerFilter, MARKER_OPTIONS } from '../types'
 import { formatBytes, formatDate } from '../utils'
 import { styles, markerBadgeStyle, ocrBadgeStyle } from '../styles/styles'
+import { apiBase } from '../utils/apiConfig'
 
 interface FileListProps {
   files: FileSummary[]
@@ -143,6 +144,14 @@ export function FileList({
                 onClick={(e) => e.stopPropagation()}
               />
             )}
+            <img
+              src={`${apiBase}/api/files/${f.id}/preview`}
+              alt=""
+              loading="lazy"
+              width={48}
+              style={{ marginRight: '0.75rem', borderRadius: 4, border: '1px solid #e5e7eb', background: '#f9fafb', flexShrink: 0 }}
+              onError={e => { e.currentTarget.style.visibility = 'hidden' }}
+            />
             <div style={{ flex: 1 }}>
               <div style={styles.listTitle}>{f.filename}</div>
               <div style={{ display: 'flex', alignItems: 'center', gap: 6, flexWrap: 'wrap' }}>
@@ -4,18 +4,34 @@ export type FileSummary = {
   mime?: string
   size?: number
   checksum?: string
+  codec?: 'NONE' | 'DEFLATE'
+  storedSize?: number
+  integrity?: 'OK' | 'MISMATCH' | 'MISSING' | null
+  verifiedAt?: string | null
   createdAt?: string
   markers?: string[]
   dueDate?: string | null
   ocrStatus?: string | null
 }
 
+export type UploadStatus = {
+  id: string
+  filename: string
+  size: number
+  received: number
+  expiresAt?: string
+}
+
 export type OcrInfo = {
   id: number
   status: string
   createdAt?: string
   processedAt?: string
   retryCount?: number
+  format?: string | null
+  pageCount?: number | null
+  wordCount?: number | null
+  meanConfidence?: number | null
   rawJson?: string
 }
 
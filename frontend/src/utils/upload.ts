@@ -0,0 +1,56 @@
+import { apiBase } from './apiConfig'
+import { UploadStatus } from '../types'
+
+// files above this go through the resumable /api/uploads protocol
+export const CHUNKED_UPLOAD_THRESHOLD = 8 * 1024 * 1024
+const CHUNK_SIZE = 8 * 1024 * 1024
+const MAX_ATTEMPTS = 5
+
+// raw-body upload: streamed straight into storage, no multipart spooling on the server
+function uploadStream(file: File) {
+  return fetch(apiBase + '/api/files/stream?filename=' + encodeURIComponent(file.name), {
+    method: 'POST',
+    headers: { 'Content-Type': file.type || 'application/octet-stream' },
+    body: file,
+  })
+}
+
+// sends one chunk; on a network error asks the server where to continue
+async function sendChunk(id: string, file: File, offset: number): Promise<number> {
+  for (let attempt = 1; ; attempt++) {
+    try {
+      const res = await fetch(apiBase + `/api/uploads/${id}?offset=${offset}`, {
+        method: 'PUT',
+        headers: { 'Content-Type': 'application/octet-stream' },
+        body: file.slice(offset, offset + CHUNK_SIZE),
+      })
+      if (res.ok || res.status === 409) return ((await res.json()) as UploadStatus).received
+      throw new Error('Upload failed')
+    } catch (e) {
+      if (attempt >= MAX_ATTEMPTS) throw e
+      await new Promise((r) => setTimeout(r, 1000 * attempt))
+      const res = await fetch(apiBase + `/api/uploads/${id}`)
+      if (!res.ok) throw e
+      offset = ((await res.json()) as UploadStatus).received
+    }
+  }
+}
+
+async function uploadChunked(file: File) {
+  const res = await fetch(apiBase + '/api/uploads', {
+    method: 'POST',
+    headers: { 'Content-Type': 'application/json' },
+    body: JSON.stringify({ filename: file.name, mime: file.type || 'application/octet-stream', size: file.size }),
+  })
+  if (!res.ok) return res
+  const session: UploadStatus = await res.json()
+  let offset = 0
+  while (offset < file.size) {
+    offset = await sendChunk(session.id, file, offset)
+  }
+  return fetch(apiBase + `/api/uploads/${session.id}/complete`, { method: 'POST' })
+}
+
+export function uploadFile(file: File): Promise<Response> {
+  return file.size > CHUNKED_UPLOAD_THRESHOLD ? uploadChunked(file) : uploadStream(file)
+}